@@ -0,0 +1,59 @@
+package com.companyname.parking.api.application.base;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Cheap estimates of counts, each the exact count of a key cached for a time to live, so a list asking for an
+ * estimated total only pays for a count query once per time to live.
+ *
+ * @param <K> the type of the keys, usually criteria, which must not change once counted.
+ */
+public class CountEstimator<K> {
+
+    private final Map<K, Estimate> estimates = new ConcurrentHashMap<>();
+
+    private final long ttlMs;
+
+    private final int maxEntries;
+
+    public CountEstimator(long ttlMs, int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param key     the key of the count
+     * @param counter the exact count, run if the key has no live estimate
+     * @return the count of the key, at most the time to live old
+     */
+    public long estimate(K key, LongSupplier counter) {
+        long now = System.currentTimeMillis();
+        Estimate estimate = estimates.get(key);
+        if (estimate != null && estimate.expiresAt > now) {
+            return estimate.count;
+        }
+        long count = counter.getAsLong();
+        if (estimates.size() >= maxEntries) {
+            estimates.values().removeIf(expired -> expired.expiresAt <= now);
+            if (estimates.size() >= maxEntries) {
+                estimates.clear();
+            }
+        }
+        estimates.put(key, new Estimate(count, now + ttlMs));
+        return count;
+    }
+
+    private static final class Estimate {
+
+        final long count;
+
+        final long expiresAt;
+
+        Estimate(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
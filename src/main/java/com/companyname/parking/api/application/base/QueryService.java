@@ -19,7 +19,9 @@
 
 package com.companyname.parking.api.application.base;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
 
@@ -164,6 +166,112 @@ public abstract class QueryService<ENTITY> {
         return result;
     }
 
+    /**
+     * Helper function to and a filter on a single field to a {@link ShapedSpecification}, where equality, and
+     * null/non-null conditions are supported.
+     *
+     * @param specification the specification to which the filter is added.
+     * @param field the name of the field in the shape.
+     * @param filter the individual attribute filter coming from the frontend.
+     * @param metaclassFunction the function, which navigates from the current entity to a column, for which the filter applies.
+     * @param <X>    The type of the attribute which is filtered.
+     * @return a ShapedSpecification
+     */
+    protected <X> ShapedSpecification<ENTITY> buildShapedSpecification(ShapedSpecification<ENTITY> specification, String field,
+                                                                       Filter<X> filter, Function<Root<ENTITY>, Expression<X>> metaclassFunction) {
+        StringBuilder shape = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        if (!addEqualsOrIn(shape, values, field, filter) && filter.getSpecified() != null) {
+            addSpecified(shape, field, filter.getSpecified());
+        }
+        return specification.and(shape.toString(), values, buildSpecification(filter, metaclassFunction));
+    }
+
+    /**
+     * Helper function to and a filter on a {@link String} field to a {@link ShapedSpecification}, where equality,
+     * containment, and null/non-null conditions are supported.
+     *
+     * @param specification the specification to which the filter is added.
+     * @param field the name of the field in the shape.
+     * @param filter the individual attribute filter coming from the frontend.
+     * @param metaclassFunction lambda, which based on a Root&lt;ENTITY&gt; returns Expression - basicaly picks a column
+     * @return a ShapedSpecification
+     */
+    protected ShapedSpecification<ENTITY> buildShapedSpecification(ShapedSpecification<ENTITY> specification, String field,
+                                                                   StringFilter filter, Function<Root<ENTITY>, Expression<String>> metaclassFunction) {
+        StringBuilder shape = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        if (!addEqualsOrIn(shape, values, field, filter)) {
+            if (filter.getContains() != null) {
+                addOperator(shape, values, field + ".contains", wrapLikeQuery(filter.getContains()));
+            } else if (filter.getSpecified() != null) {
+                addSpecified(shape, field, filter.getSpecified());
+            }
+        }
+        return specification.and(shape.toString(), values, buildSpecification(filter, metaclassFunction));
+    }
+
+    /**
+     * Helper function to and a filter on a single {@link Comparable} to a {@link ShapedSpecification}, where equality,
+     * less than, greater than and less-than-or-equal-to and greater-than-or-equal-to and null/non-null conditions are
+     * supported.
+     *
+     * @param specification the specification to which the filter is added.
+     * @param field the name of the field in the shape.
+     * @param filter the individual attribute filter coming from the frontend.
+     * @param metaclassFunction lambda, which based on a Root&lt;ENTITY&gt; returns Expression - basicaly picks a column
+     * @param <X>    The type of the attribute which is filtered.
+     * @return a ShapedSpecification
+     */
+    protected <X extends Comparable<? super X>> ShapedSpecification<ENTITY> buildShapedSpecification(ShapedSpecification<ENTITY> specification,
+                                                                                                     String field, RangeFilter<X> filter,
+                                                                                                     Function<Root<ENTITY>, Expression<X>> metaclassFunction) {
+        StringBuilder shape = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        // in the order of buildSpecification(RangeFilter, Function)
+        if (!addEqualsOrIn(shape, values, field, filter)) {
+            if (filter.getSpecified() != null) {
+                addSpecified(shape, field, filter.getSpecified());
+            }
+            if (filter.getGreaterThan() != null) {
+                addOperator(shape, values, field + ".greaterThan", filter.getGreaterThan());
+            }
+            if (filter.getGreaterOrEqualThan() != null) {
+                addOperator(shape, values, field + ".greaterOrEqualThan", filter.getGreaterOrEqualThan());
+            }
+            if (filter.getLessThan() != null) {
+                addOperator(shape, values, field + ".lessThan", filter.getLessThan());
+            }
+            if (filter.getLessOrEqualThan() != null) {
+                addOperator(shape, values, field + ".lessOrEqualThan", filter.getLessOrEqualThan());
+            }
+        }
+        return specification.and(shape.toString(), values, buildSpecification(filter, metaclassFunction));
+    }
+
+    private static boolean addEqualsOrIn(StringBuilder shape, List<Object> values, String field, Filter<?> filter) {
+        if (filter.getEquals() != null) {
+            addOperator(shape, values, field + ".equals", filter.getEquals());
+            return true;
+        } else if (filter.getIn() != null) {
+            // each value of the list is a literal, so the size is part of the shape
+            shape.append(field).append(".in(").append(filter.getIn().size()).append(");");
+            values.addAll(filter.getIn());
+            return true;
+        }
+        return false;
+    }
+
+    private static void addOperator(StringBuilder shape, List<Object> values, String operator, Object value) {
+        shape.append(operator).append(';');
+        values.add(value);
+    }
+
+    private static void addSpecified(StringBuilder shape, String field, boolean specified) {
+        // the flag changes the query rather than a value, so it is part of the shape
+        shape.append(field).append(specified ? ".specified;" : ".unspecified;");
+    }
+
     /**
      * Helper function to return a specification for filtering on one-to-one or many-to-one reference. Usage:
      * <pre>
@@ -0,0 +1,74 @@
+package com.companyname.parking.api.application.base;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Specification} along with its shape: the key of the filters and operators it is made of, whatever their
+ * values, and the values in the order its predicate uses them. Specifications of the same shape only differ by their
+ * values, so a repository may render the query of a shape once, and then only bind the values of the others.
+ * <p>
+ * The predicate holds the values as literals, so a shaped specification runs like any other one too. It is built by
+ * the {@link QueryService} helpers.
+ *
+ * @param <ENTITY> the type of the entity which is queried.
+ */
+public final class ShapedSpecification<ENTITY> implements Specification<ENTITY> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String shape;
+
+    private final Specification<ENTITY> specification;
+
+    private final List<Object> values;
+
+    private ShapedSpecification(String shape, Specification<ENTITY> specification, List<Object> values) {
+        this.shape = shape;
+        this.specification = specification;
+        this.values = values;
+    }
+
+    /**
+     * @return the specification without any filter
+     */
+    public static <ENTITY> ShapedSpecification<ENTITY> empty() {
+        return new ShapedSpecification<>("", Specification.where(null), Collections.emptyList());
+    }
+
+    /**
+     * @return the key of the filters and operators of the specification, the same for all their values
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the values of the predicate, in the order it uses them
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<ENTITY> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        return specification.toPredicate(root, query, criteriaBuilder);
+    }
+
+    /**
+     * @return this specification and the other one, whose shape and values are appended
+     */
+    ShapedSpecification<ENTITY> and(String otherShape, List<?> otherValues, Specification<ENTITY> other) {
+        List<Object> allValues = new ArrayList<>(values.size() + otherValues.size());
+        allValues.addAll(values);
+        allValues.addAll(otherValues);
+        return new ShapedSpecification<>(shape + otherShape, specification.and(other), Collections.unmodifiableList(allValues));
+    }
+}
@@ -0,0 +1,187 @@
+package com.companyname.parking.api.application.gate;
+
+import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.gate.GateOccupancyJdbcRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of the facility gates.
+ * <p>
+ * The gates of every node share one counter of the spaces taken, kept in the database and seeded from the number of
+ * held parking spots. Each node takes a block of {@code application.parking-spots.gates.lease-size} spaces from it,
+ * and admits vehicles into that block with a compare-and-set of its in-memory lease, without lock, transaction or SQL,
+ * so decisions stay well under the 2 ms p99 target whatever the number of lanes. A node only goes to the database once
+ * its block is used up, to take the next one, at most half of the spaces left so the last spaces are not held by one
+ * node. Two lanes can never both take the last space, even on different nodes, as a space is only admitted into once
+ * it is taken from the shared counter.
+ * <p>
+ * An exit gives the space back to the lease of the node, which returns the spaces beyond two blocks to the counter
+ * right away, and reconciles with the counter every {@code lease-ttl-ms} by returning its whole lease, so the spaces a
+ * node does not use are soon admitted by the others. The spaces leased by the other nodes count as taken.
+ */
+@Service
+public class GateAdmissionService {
+
+    private final Logger log = LoggerFactory.getLogger(GateAdmissionService.class);
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ParkingSpotQueryService parkingSpotQueryService;
+
+    private final GateOccupancyJdbcRepository gateOccupancyJdbcRepository;
+
+    private final int leaseSize;
+
+    // the spaces taken from the shared counter which no vehicle admitted by this node uses
+    private final AtomicLong lease = new AtomicLong();
+
+    // the shared counter as last read, following the spaces this node took and gave back since
+    private final AtomicLong spacesTaken = new AtomicLong();
+
+    public GateAdmissionService(OccupancyEngine occupancyEngine, ParkingSpotQueryService parkingSpotQueryService,
+                                GateOccupancyJdbcRepository gateOccupancyJdbcRepository,
+                                ApplicationProperties applicationProperties) {
+        this.occupancyEngine = occupancyEngine;
+        this.parkingSpotQueryService = parkingSpotQueryService;
+        this.gateOccupancyJdbcRepository = gateOccupancyJdbcRepository;
+        this.leaseSize = Math.max(1, applicationProperties.getParkingSpots().getGates().getLeaseSize());
+    }
+
+    /**
+     * Admit a vehicle at a gate if a space is left, reserving it.
+     *
+     * @param gateId the id of the gate
+     * @return the decision, {@link GateDecisionDTO.Decision#ADMITTED} or {@link GateDecisionDTO.Decision#DENIED}
+     */
+    public GateDecisionDTO enter(String gateId) {
+        long capacity = getCapacity();
+        if (!takeFromLease()) {
+            long taken = gateOccupancyJdbcRepository.take(capacity, leaseSize);
+            // the spaces may have been leased by another lane of this node meanwhile
+            if (taken == 0 && !takeFromLease()) {
+                log.debug("Vehicle denied at gate {}, the facility is full", gateId);
+                return new GateDecisionDTO(gateId, GateDecisionDTO.Decision.DENIED, 0);
+            }
+            if (taken > 0) {
+                spacesTaken.addAndGet(taken);
+                // one for this vehicle
+                lease.addAndGet(taken - 1);
+            }
+        }
+        long freeCapacity = estimateFreeCapacity(capacity);
+        log.debug("Vehicle admitted at gate {}, {} spaces left", gateId, freeCapacity);
+        return new GateDecisionDTO(gateId, GateDecisionDTO.Decision.ADMITTED, freeCapacity);
+    }
+
+    /**
+     * Release the space of a vehicle leaving at a gate.
+     *
+     * @param gateId the id of the gate
+     * @return the decision, {@link GateDecisionDTO.Decision#RELEASED}
+     */
+    public GateDecisionDTO exit(String gateId) {
+        long capacity = getCapacity();
+        if (lease.incrementAndGet() > 2L * leaseSize) {
+            giveBackLease(leaseSize);
+        }
+        long freeCapacity = estimateFreeCapacity(capacity);
+        log.debug("Vehicle left at gate {}, {} spaces left", gateId, freeCapacity);
+        return new GateDecisionDTO(gateId, GateDecisionDTO.Decision.RELEASED, freeCapacity);
+    }
+
+    /**
+     * Give the whole lease back to the shared counter, and read it again.
+     * <p>
+     * This is scheduled every {@code application.parking-spots.gates.lease-ttl-ms}.
+     */
+    @Scheduled(fixedDelayString = "${application.parking-spots.gates.lease-ttl-ms:1000}")
+    @PreDestroy
+    public void reconcile() {
+        giveBackLease(0);
+        getVehiclesInside();
+    }
+
+    /**
+     * @return the number of spaces the gates may still admit vehicles to
+     */
+    public long getFreeCapacity() {
+        return Math.max(0, getCapacity() - getVehiclesInside());
+    }
+
+    /**
+     * @return the number of vehicles admitted and not left yet, the spaces leased by the other nodes included
+     */
+    public long getVehiclesInside() {
+        long taken = gateOccupancyJdbcRepository.findVehiclesInside();
+        spacesTaken.set(taken);
+        return taken - lease.get();
+    }
+
+    private boolean takeFromLease() {
+        for (long leased = lease.get(); leased > 0; leased = lease.get()) {
+            if (lease.compareAndSet(leased, leased - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Give the spaces of the lease beyond a number back to the shared counter.
+     */
+    private void giveBackLease(long kept) {
+        long leased;
+        do {
+            leased = lease.get();
+            if (leased <= kept) {
+                return;
+            }
+        } while (!lease.compareAndSet(leased, kept));
+        try {
+            gateOccupancyJdbcRepository.giveBack(leased - kept);
+            spacesTaken.addAndGet(kept - leased);
+        } catch (DataAccessException e) {
+            log.warn("Could not give back {} gate spaces, they stay leased", leased - kept, e);
+            lease.addAndGet(leased - kept);
+        }
+    }
+
+    /**
+     * @return the free capacity as of the last read of the shared counter, without SQL
+     */
+    private long estimateFreeCapacity(long capacity) {
+        return Math.max(0, capacity - spacesTaken.get() + lease.get());
+    }
+
+    private long getCapacity() {
+        return countParkingSpots(null);
+    }
+
+    private long countParkingSpots(Boolean isFree) {
+        if (occupancyEngine.isReady()) {
+            return isFree == null ? occupancyEngine.countAll() : occupancyEngine.count(equalsFilter(isFree));
+        }
+        ParkingSpotCriteria criteria = new ParkingSpotCriteria();
+        if (isFree != null) {
+            criteria.setIsFree(equalsFilter(isFree));
+        }
+        return parkingSpotQueryService.countByCriteria(criteria);
+    }
+
+    private static BooleanFilter equalsFilter(boolean value) {
+        BooleanFilter filter = new BooleanFilter();
+        filter.setEquals(value);
+        return filter;
+    }
+}
@@ -0,0 +1,33 @@
+package com.companyname.parking.api.application.gate;
+
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * A DTO reporting the decision taken for a vehicle at a gate.
+ */
+@Value
+public class GateDecisionDTO implements Serializable {
+
+    String gateId;
+
+    Decision decision;
+
+    long freeCapacity;
+
+    public enum Decision {
+        /**
+         * The vehicle may enter, one space of the facility was reserved for it.
+         */
+        ADMITTED,
+        /**
+         * The facility is full, the vehicle may not enter.
+         */
+        DENIED,
+        /**
+         * The vehicle left, its space was given back to the facility.
+         */
+        RELEASED
+    }
+}
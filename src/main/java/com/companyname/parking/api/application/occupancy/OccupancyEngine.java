@@ -0,0 +1,585 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory occupancy state of all parking spots.
+ * <p>
+ * Every spot owns two bits of a paged bitmap (present and free), so a state transition is a single CAS on one word.
+ * Free and total counters are maintained alongside the bitmap, which lets free-spot counts be answered in O(1)
+ * without touching the database, and the per-zone counters of {@link ZoneOccupancy} are kept the same way.
+ * Changes made inside a transaction are applied immediately and reverted
+ * if that transaction does not commit. {@link OccupancyListener}s are only notified once a change is committed.
+ * <p>
+ * Each node only sees its own changes, so the states are reloaded from the database every
+ * {@code application.parking-spots.occupancy.refresh-interval-ms} to follow the changes made by the other nodes
+ * sharing it. Until then, the counts of a node miss the changes of the other ones.
+ */
+@Service
+public class OccupancyEngine {
+
+    public static final int ABSENT = 0b00;
+
+    public static final int HELD = 0b01;
+
+    public static final int FREE = 0b11;
+
+    private static final int STATE_BITS = 2;
+
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+
+    private static final int SPOTS_PER_WORD = Long.SIZE / STATE_BITS;
+
+    private static final int PAGE_SHIFT = 16;
+
+    private static final int SPOTS_PER_PAGE = 1 << PAGE_SHIFT;
+
+    private static final int WORDS_PER_PAGE = SPOTS_PER_PAGE / SPOTS_PER_WORD;
+
+    private static final int MAX_PAGES = 1 << (Integer.SIZE - 1 - PAGE_SHIFT);
+
+    // undo log entries of state changes: {spot id, previous state, nanos since the epoch of the change}
+    // undo log entries of zone changes: {spot id, ZONE_CHANGE, previous zone id or NO_ZONE}
+    private static final long ZONE_CHANGE = -1;
+
+    private static final long NO_ZONE = -1;
+
+    private final Logger log = LoggerFactory.getLogger(OccupancyEngine.class);
+
+    private final ParkingSpotRepository parkingSpotRepository;
+
+    private final ZoneOccupancy zoneOccupancy;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(MAX_PAGES);
+
+    private final AtomicLong spots = new AtomicLong();
+
+    private final AtomicLong freeSpots = new AtomicLong();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean ready = false;
+
+    private volatile boolean overflowed = false;
+
+    // the spots changed on this node since the last reload, whose changes may not be in the database yet
+    private volatile SpotSet changedSinceReload = new SpotSet();
+
+    public OccupancyEngine(ParkingSpotRepository parkingSpotRepository, ZoneOccupancy zoneOccupancy) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.zoneOccupancy = zoneOccupancy;
+    }
+
+    /**
+     * Load the state of every parking spot from the database once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        log.debug("Loading parking spot occupancy");
+        reload(false);
+        ready = !overflowed;
+        log.info("Parking spot occupancy loaded: {} free of {} spots", freeSpots.get(), spots.get());
+    }
+
+    /**
+     * Reload the state of the parking spots from the database, to follow the changes made by the other nodes and
+     * notify the listeners of them.
+     * <p>
+     * This is scheduled every {@code application.parking-spots.occupancy.refresh-interval-ms}.
+     */
+    @Scheduled(initialDelayString = "${application.parking-spots.occupancy.refresh-interval-ms:60000}",
+        fixedDelayString = "${application.parking-spots.occupancy.refresh-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        int changed = reload(true);
+        log.debug("Parking spot occupancy refreshed: {} spots changed by other nodes", changed);
+    }
+
+    /**
+     * Replace the states of the parking spots by the ones in the database, and forget the spots not in it anymore.
+     * The spots changed on this node since the previous reload, or while reloading, are left as they are, as their
+     * changes may not be committed yet: they are reloaded by the next reload. So a change made while loading is never
+     * overwritten by the state read before it.
+     *
+     * @param notify whether to notify the listeners of the changed spots
+     * @return the number of changed spots
+     */
+    private int reload(boolean notify) {
+        SpotSet changedBefore = changedSinceReload;
+        changedSinceReload = new SpotSet();
+        SpotSet loaded = new SpotSet();
+        int changed = 0;
+        for (Object[] occupancy : parkingSpotRepository.findAllOccupancies()) {
+            long id = (Long) occupancy[0];
+            loaded.add(id);
+            if (changedBefore.contains(id) || changedSinceReload.contains(id)) {
+                continue;
+            }
+            Long zoneId = (Long) occupancy[2];
+            boolean zoneChanged = !Objects.equals(zoneOccupancy.getZone(id), zoneId);
+            if (zoneChanged) {
+                zoneOccupancy.assign(id, zoneId, getState(id));
+            }
+            int state = (Boolean) occupancy[1] ? FREE : HELD;
+            if (exchange(id, state) != state || zoneChanged) {
+                changed++;
+                if (notify) {
+                    notifyListeners(id, Instant.now());
+                }
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        forEachTracked(id -> {
+            if (!loaded.contains(id) && !changedBefore.contains(id) && !changedSinceReload.contains(id)) {
+                removed.add(id);
+            }
+        });
+        for (Long id : removed) {
+            exchange(id, ABSENT);
+            zoneOccupancy.assign(id, null, ABSENT);
+            if (notify) {
+                notifyListeners(id, Instant.now());
+            }
+        }
+        return changed + removed.size();
+    }
+
+    /**
+     * @return true if the engine holds the state of every parking spot and can answer counts on its own.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Register a listener notified of every committed state change.
+     *
+     * @param listener the listener
+     */
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OccupancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Record the current state of a parking spot.
+     *
+     * @param id     the id of the parking spot
+     * @param isFree whether the spot is free
+     */
+    public void update(Long id, boolean isFree) {
+        record(id, isFree ? FREE : HELD);
+    }
+
+    /**
+     * Record the current state and zone of a parking spot.
+     *
+     * @param id     the id of the parking spot
+     * @param isFree whether the spot is free
+     * @param zoneId the id of the zone of the spot, or null if it has none
+     */
+    public void update(Long id, boolean isFree, Long zoneId) {
+        if (id == null) {
+            return;
+        }
+        assignZone(id, zoneId);
+        record(id, isFree ? FREE : HELD);
+    }
+
+    /**
+     * Lock-free transition of a tracked parking spot to a new free state, made by a compare-and-set
+     * from the opposite state. Inside a transaction, an applied transition is reverted if it does not commit.
+     *
+     * @param id     the id of the parking spot
+     * @param isFree the new free state
+     * @return {@link Transition#APPLIED} if this call changed the state, {@link Transition#UNCHANGED} if the spot
+     * already was in that state, or {@link Transition#UNTRACKED} if the engine does not know the spot
+     */
+    public Transition transition(Long id, boolean isFree) {
+        if (!ready || getState(id) == ABSENT) {
+            return Transition.UNTRACKED;
+        }
+        int expected = isFree ? HELD : FREE;
+        int state = isFree ? FREE : HELD;
+        if (!compareAndSet(id, expected, state)) {
+            return getState(id) == state ? Transition.UNCHANGED : Transition.UNTRACKED;
+        }
+        changed(id, expected);
+        return Transition.APPLIED;
+    }
+
+    /**
+     * Forget a removed parking spot.
+     *
+     * @param id the id of the parking spot
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        record(id, ABSENT);
+        assignZone(id, null);
+    }
+
+    /**
+     * @param id the id of the parking spot
+     * @return one of {@link #ABSENT}, {@link #HELD} or {@link #FREE}
+     */
+    public int getState(Long id) {
+        if (id == null || id < 0 || (id >>> PAGE_SHIFT) >= MAX_PAGES) {
+            return ABSENT;
+        }
+        AtomicLongArray page = pages.get((int) (id >>> PAGE_SHIFT));
+        if (page == null) {
+            return ABSENT;
+        }
+        int index = (int) (id & (SPOTS_PER_PAGE - 1));
+        return (int) (page.get(index / SPOTS_PER_WORD) >>> shift(index)) & STATE_MASK;
+    }
+
+    /**
+     * @return the occupancy version, incremented by every committed state change
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long countFree() {
+        return freeSpots.get();
+    }
+
+    public long countHeld() {
+        return spots.get() - freeSpots.get();
+    }
+
+    public long countAll() {
+        return spots.get();
+    }
+
+    /**
+     * Count the parking spots matching a filter on their free state, following the same precedence
+     * (equals, in, specified) as {@link com.companyname.parking.api.application.base.QueryService}.
+     *
+     * @param filter the isFree filter, may be null
+     * @return the number of matching parking spots
+     */
+    public long count(BooleanFilter filter) {
+        return count(filter, countFree(), countAll());
+    }
+
+    /**
+     * Count the parking spots of a zone matching a filter on their free state, like {@link #count(BooleanFilter)}.
+     *
+     * @param zoneId the id of the zone
+     * @param filter the isFree filter, may be null
+     * @return the number of matching parking spots of the zone, 0 if the zone is unknown
+     */
+    public long countInZone(Long zoneId, BooleanFilter filter) {
+        // the two sums are not read atomically
+        long all = zoneOccupancy.countAll(zoneId);
+        return count(filter, Math.min(zoneOccupancy.countFree(zoneId), all), all);
+    }
+
+    private static long count(BooleanFilter filter, long free, long all) {
+        if (filter == null) {
+            return all;
+        } else if (filter.getEquals() != null) {
+            return filter.getEquals() ? free : all - free;
+        } else if (filter.getIn() != null) {
+            long count = 0;
+            if (filter.getIn().contains(Boolean.TRUE)) {
+                count += free;
+            }
+            if (filter.getIn().contains(Boolean.FALSE)) {
+                count += all - free;
+            }
+            return count;
+        } else if (filter.getSpecified() != null) {
+            // is_free is not nullable
+            return filter.getSpecified() ? all : 0;
+        }
+        return all;
+    }
+
+    /**
+     * Move a spot to another zone, reverted with the state changes if the transaction does not commit.
+     */
+    private void assignZone(long id, Long zoneId) {
+        Long previous = zoneOccupancy.getZone(id);
+        if (Objects.equals(previous, zoneId)) {
+            return;
+        }
+        zoneOccupancy.assign(id, zoneId, getState(id));
+        changedSinceReload.add(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            undoLog().push(new long[]{id, ZONE_CHANGE, previous == null ? NO_ZONE : previous});
+        }
+    }
+
+    private void record(Long id, int state) {
+        if (id == null) {
+            return;
+        }
+        int previous = exchange(id, state);
+        if (previous != state) {
+            changed(id, previous);
+        }
+    }
+
+    /**
+     * Notify the listeners of a change, once its transaction commits if there is one.
+     */
+    private void changed(long id, int previous) {
+        changedSinceReload.add(id);
+        Instant changedAt = Instant.now();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            undoLog().push(new long[]{id, previous, TimeUnit.SECONDS.toNanos(changedAt.getEpochSecond()) + changedAt.getNano()});
+        } else {
+            notifyListeners(id, changedAt);
+        }
+    }
+
+    private void notifyListeners(long id, Instant changedAt) {
+        version.incrementAndGet();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        int state = getState(id);
+        long free = countFree();
+        for (OccupancyListener listener : listeners) {
+            try {
+                listener.stateChanged(id, state, free, changedAt);
+            } catch (RuntimeException e) {
+                log.warn("Occupancy listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the state of a spot and adjust the counters.
+     *
+     * @return the previous state
+     */
+    int exchange(long id, int state) {
+        AtomicLongArray page = page(id);
+        if (page == null) {
+            return ABSENT;
+        }
+        int index = (int) (id & (SPOTS_PER_PAGE - 1));
+        int word = index / SPOTS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = page.get(word);
+            int previous = (int) (current >>> shift) & STATE_MASK;
+            if (previous == state) {
+                return previous;
+            }
+            long next = (current & ~((long) STATE_MASK << shift)) | ((long) state << shift);
+            if (page.compareAndSet(word, current, next)) {
+                adjustCounters(id, previous, state);
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the state of a spot if it is the expected one, and adjust the counters.
+     *
+     * @return true if the state was replaced
+     */
+    boolean compareAndSet(long id, int expected, int state) {
+        AtomicLongArray page = page(id);
+        if (page == null) {
+            return false;
+        }
+        int index = (int) (id & (SPOTS_PER_PAGE - 1));
+        int word = index / SPOTS_PER_WORD;
+        int shift = shift(index);
+        while (true) {
+            long current = page.get(word);
+            if (((int) (current >>> shift) & STATE_MASK) != expected) {
+                return false;
+            }
+            long next = (current & ~((long) STATE_MASK << shift)) | ((long) state << shift);
+            if (page.compareAndSet(word, current, next)) {
+                adjustCounters(id, expected, state);
+                return true;
+            }
+        }
+    }
+
+    private void adjustCounters(long id, int previous, int state) {
+        if (previous == ABSENT) {
+            spots.incrementAndGet();
+        } else if (state == ABSENT) {
+            spots.decrementAndGet();
+        }
+        if (previous == FREE) {
+            freeSpots.decrementAndGet();
+        } else if (state == FREE) {
+            freeSpots.incrementAndGet();
+        }
+        zoneOccupancy.adjust(id, previous, state);
+    }
+
+    private AtomicLongArray page(long id) {
+        if (id < 0 || (id >>> PAGE_SHIFT) >= MAX_PAGES) {
+            if (!overflowed) {
+                log.warn("Parking spot id {} is out of the occupancy bitmap range, counting falls back to the database", id);
+                overflowed = true;
+                ready = false;
+            }
+            return null;
+        }
+        int pageIndex = (int) (id >>> PAGE_SHIFT);
+        AtomicLongArray page = pages.get(pageIndex);
+        if (page == null) {
+            pages.compareAndSet(pageIndex, null, new AtomicLongArray(WORDS_PER_PAGE));
+            page = pages.get(pageIndex);
+        }
+        return page;
+    }
+
+    private static int shift(int index) {
+        return (index % SPOTS_PER_WORD) * STATE_BITS;
+    }
+
+    /**
+     * Pass the id of every tracked parking spot to a consumer.
+     */
+    private void forEachTracked(LongConsumer consumer) {
+        for (int pageIndex = 0; pageIndex < MAX_PAGES; pageIndex++) {
+            AtomicLongArray page = pages.get(pageIndex);
+            if (page == null) {
+                continue;
+            }
+            for (int word = 0; word < WORDS_PER_PAGE; word++) {
+                long states = page.get(word);
+                for (int slot = 0; states != 0 && slot < SPOTS_PER_WORD; slot++, states >>>= STATE_BITS) {
+                    if ((states & STATE_MASK) != ABSENT) {
+                        consumer.accept(((long) pageIndex << PAGE_SHIFT) + (long) word * SPOTS_PER_WORD + slot);
+                    }
+                }
+            }
+        }
+    }
+
+    public enum Transition {
+        APPLIED, UNCHANGED, UNTRACKED
+    }
+
+    /**
+     * Lock-free set of parking spot ids, one bit per spot of the bitmap range.
+     */
+    private static final class SpotSet {
+
+        private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(MAX_PAGES);
+
+        void add(long id) {
+            if (id < 0 || (id >>> PAGE_SHIFT) >= MAX_PAGES) {
+                return;
+            }
+            int pageIndex = (int) (id >>> PAGE_SHIFT);
+            AtomicLongArray page = pages.get(pageIndex);
+            if (page == null) {
+                pages.compareAndSet(pageIndex, null, new AtomicLongArray(SPOTS_PER_PAGE / Long.SIZE));
+                page = pages.get(pageIndex);
+            }
+            int index = (int) (id & (SPOTS_PER_PAGE - 1));
+            long bit = 1L << (index % Long.SIZE);
+            if ((page.get(index / Long.SIZE) & bit) == 0) {
+                page.accumulateAndGet(index / Long.SIZE, bit, (bits, added) -> bits | added);
+            }
+        }
+
+        boolean contains(long id) {
+            if (id < 0 || (id >>> PAGE_SHIFT) >= MAX_PAGES) {
+                return false;
+            }
+            AtomicLongArray page = pages.get((int) (id >>> PAGE_SHIFT));
+            if (page == null) {
+                return false;
+            }
+            int index = (int) (id & (SPOTS_PER_PAGE - 1));
+            return (page.get(index / Long.SIZE) & (1L << (index % Long.SIZE))) != 0;
+        }
+    }
+
+    /**
+     * The changes of the current transaction, notified to the listeners if it commits and replayed backwards otherwise.
+     */
+    private Deque<long[]> undoLog() {
+        @SuppressWarnings("unchecked")
+        Deque<long[]> undoLog = (Deque<long[]>) TransactionSynchronizationManager.getResource(this);
+        if (undoLog == null) {
+            Deque<long[]> newUndoLog = new ArrayDeque<>();
+            TransactionSynchronizationManager.bindResource(this, newUndoLog);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OccupancyEngine.this);
+                    if (status == STATUS_COMMITTED) {
+                        // notified in the order of their first change, with the time of their last state change
+                        Map<Long, Instant> changedIds = new LinkedHashMap<>();
+                        Instant committedAt = Instant.now();
+                        newUndoLog.descendingIterator().forEachRemaining(change -> {
+                            if (change[1] == ZONE_CHANGE) {
+                                changedIds.putIfAbsent(change[0], committedAt);
+                            } else {
+                                changedIds.put(change[0], Instant.ofEpochSecond(0, change[2]));
+                            }
+                        });
+                        changedIds.forEach(OccupancyEngine.this::notifyListeners);
+                    } else {
+                        newUndoLog.forEach(OccupancyEngine.this::undo);
+                    }
+                }
+            });
+            undoLog = newUndoLog;
+        }
+        return undoLog;
+    }
+
+    private void undo(long[] change) {
+        changedSinceReload.add(change[0]);
+        if (change.length == 3 && change[1] == ZONE_CHANGE) {
+            zoneOccupancy.assign(change[0], change[2] == NO_ZONE ? null : change[2], getState(change[0]));
+        } else {
+            exchange(change[0], (int) change[1]);
+        }
+    }
+}
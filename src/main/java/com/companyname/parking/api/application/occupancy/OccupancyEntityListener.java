@@ -0,0 +1,41 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.application.parkingspot.FreeParkingSpotIndex;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import org.springframework.context.annotation.Lazy;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener keeping the {@link OccupancyEngine} and the {@link FreeParkingSpotIndex} in line with every
+ * persisted {@link ParkingSpot} change. It is registered for the entity in {@code META-INF/orm.xml}, so the domain does
+ * not depend on it. They are injected lazily, as they depend on a repository which needs the entity manager factory creating
+ * this listener.
+ */
+public class OccupancyEntityListener {
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final FreeParkingSpotIndex freeParkingSpotIndex;
+
+    public OccupancyEntityListener(@Lazy OccupancyEngine occupancyEngine, @Lazy FreeParkingSpotIndex freeParkingSpotIndex) {
+        this.occupancyEngine = occupancyEngine;
+        this.freeParkingSpotIndex = freeParkingSpotIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(ParkingSpot parkingSpot) {
+        occupancyEngine.update(parkingSpot.getId(), parkingSpot.isFree(),
+            parkingSpot.getZone() == null ? null : parkingSpot.getZone().getId());
+        freeParkingSpotIndex.updatePosition(parkingSpot.getId(), parkingSpot.getX(), parkingSpot.getY());
+    }
+
+    @PostRemove
+    public void onRemove(ParkingSpot parkingSpot) {
+        occupancyEngine.remove(parkingSpot.getId());
+        freeParkingSpotIndex.updatePosition(parkingSpot.getId(), null, null);
+    }
+}
@@ -0,0 +1,419 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.domain.user.UserConstants;
+import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only log of the committed parking spot state changes, kept in memory-mapped segment files.
+ * <p>
+ * Every entry gets the next offset of the log. A segment is named after the offset of its first entry and holds
+ * length-prefixed entries: spot id, state, timestamp and actor. The length is written last, so a reader never sees a
+ * partly written entry and a zero length marks the end of a segment. Once the active segment is full the log rolls
+ * to a new one, and the oldest segments beyond {@code application.parking-spots.event-log.max-segments} are deleted.
+ * <p>
+ * Entries are written by a single writer thread, from a queue of at most {@code queue-capacity} entries, so the
+ * committing threads never wait on the segment files. The full segment is forced to disk by the writer thread once it
+ * wrote to the new one. Changes made while the queue is full are dropped from the log.
+ */
+@Service
+public class OccupancyEventLog implements OccupancyListener {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int LENGTH_SIZE = Integer.BYTES;
+
+    // spot id, state, epoch second, nano adjustment, actor length
+    private static final int HEADER_SIZE = Long.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES + Short.BYTES;
+
+    private static final int MAX_ACTOR_SIZE = 255;
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(OccupancyEventLog.class);
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ApplicationProperties.ParkingSpots.EventLog properties;
+
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final BlockingQueue<PendingEntry> queue;
+
+    private Path directory;
+
+    // written by the writer thread only, once started
+    private Segment active;
+
+    private volatile long nextOffset;
+
+    private volatile boolean running = false;
+
+    private Thread writer;
+
+    public OccupancyEventLog(OccupancyEngine occupancyEngine, ApplicationProperties applicationProperties) {
+        this.occupancyEngine = occupancyEngine;
+        this.properties = applicationProperties.getParkingSpots().getEventLog();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        List<Long> baseOffsets;
+        try (Stream<Path> files = Files.list(directory)) {
+            baseOffsets = files
+                .map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (int i = 0; i < baseOffsets.size(); i++) {
+            boolean last = i == baseOffsets.size() - 1;
+            Segment segment = Segment.open(segmentPath(baseOffsets.get(i)), baseOffsets.get(i), !last, properties.getSegmentSizeBytes());
+            segments.put(segment.baseOffset, segment);
+        }
+        if (segments.isEmpty()) {
+            active = createSegment(0);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        nextOffset = active.baseOffset + active.entries;
+        running = true;
+        writer = new Thread(this::run, "occupancy-event-log");
+        writer.setDaemon(true);
+        writer.start();
+        occupancyEngine.addListener(this);
+        log.info("Occupancy event log opened in {} at offset {}", directory.toAbsolutePath(), nextOffset);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        occupancyEngine.removeListener(this);
+        running = false;
+        // the writer drains the queue before it stops
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        writer = null;
+        active.buffer.force();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        stateChanged(spotId, state, freeSpots, Instant.now());
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots, Instant changedAt) {
+        // the actor is only known on the committing thread
+        String actor = SecurityUtils.getCurrentUserLogin().orElse(UserConstants.SYSTEM_ACCOUNT);
+        append(spotId, state, changedAt, actor);
+    }
+
+    /**
+     * Queue an entry for the writer thread.
+     *
+     * @return a future completed with the offset of the entry once it is written, or exceptionally if the queue is
+     * full or the log is not running
+     */
+    public CompletableFuture<Long> append(long spotId, int state, Instant timestamp, String actor) {
+        PendingEntry entry = new PendingEntry(spotId, state, timestamp, actor);
+        if (!running) {
+            entry.future.completeExceptionally(new IllegalStateException("The occupancy event log is not running"));
+        } else if (!queue.offer(entry)) {
+            log.warn("Occupancy event log queue is full, dropping the change of parking spot {}", spotId);
+            entry.future.completeExceptionally(new IllegalStateException("The occupancy event log queue is full"));
+        }
+        return entry.future;
+    }
+
+    private void run() {
+        List<PendingEntry> entries = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                entries.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(entries);
+            for (PendingEntry entry : entries) {
+                try {
+                    entry.future.complete(write(entry.spotId, entry.state, entry.timestamp, entry.actor));
+                } catch (RuntimeException e) {
+                    log.error("Could not append the change of parking spot {} to the occupancy event log", entry.spotId, e);
+                    entry.future.completeExceptionally(e);
+                }
+            }
+            entries.clear();
+        }
+    }
+
+    private long write(long spotId, int state, Instant timestamp, String actor) {
+        byte[] actorBytes = actor.getBytes(StandardCharsets.UTF_8);
+        int actorSize = Math.min(actorBytes.length, MAX_ACTOR_SIZE);
+        int length = HEADER_SIZE + actorSize;
+        if (active.limit + LENGTH_SIZE + length > active.buffer.capacity()) {
+            roll();
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.limit;
+        buffer.position(position + LENGTH_SIZE);
+        buffer.putLong(spotId);
+        buffer.put((byte) state);
+        buffer.putLong(timestamp.getEpochSecond());
+        buffer.putInt(timestamp.getNano());
+        buffer.putShort((short) actorSize);
+        buffer.put(actorBytes, 0, actorSize);
+        // published last, readers stop at the first zero length
+        buffer.putInt(position, length);
+        active.entries++;
+        active.limit = buffer.position();
+        return nextOffset++;
+    }
+
+    /**
+     * @return the offset the next entry will get
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return the offset of the oldest entry still retained
+     */
+    public long getFirstOffset() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        return first == null ? 0 : first.getKey();
+    }
+
+    /**
+     * Stream the entries of the log from the given offset, up to the last entry appended when this method was called.
+     * Entries deleted by the retention are skipped, the stream then starts at {@link #getFirstOffset()}.
+     *
+     * @param fromOffset the offset of the first entry to read
+     * @return the entries, in offset order
+     */
+    public Stream<OccupancyLogEntry> read(long fromOffset) {
+        long endOffset = nextOffset;
+        Long firstBaseOffset = segments.floorKey(fromOffset);
+        List<Segment> snapshot = new ArrayList<>(
+            (firstBaseOffset == null ? segments : segments.tailMap(firstBaseOffset)).values());
+        Iterator<OccupancyLogEntry> entries = new EntryIterator(snapshot, fromOffset, endOffset);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private void roll() {
+        Segment full = active;
+        active = createSegment(nextOffset);
+        while (segments.size() > Math.max(1, properties.getMaxSegments())) {
+            Segment deleted = segments.pollFirstEntry().getValue();
+            try {
+                Files.deleteIfExists(deleted.path);
+            } catch (IOException e) {
+                log.warn("Could not delete occupancy event log segment {}", deleted.path, e);
+            }
+        }
+        if (segments.containsKey(full.baseOffset)) {
+            full.buffer.force();
+        }
+    }
+
+    private Segment createSegment(long baseOffset) {
+        try {
+            Segment segment = Segment.open(segmentPath(baseOffset), baseOffset, false, properties.getSegmentSizeBytes());
+            segments.put(baseOffset, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+
+        private final long baseOffset;
+
+        private final Path path;
+
+        private final MappedByteBuffer buffer;
+
+        // written by the writer thread, read by the readers
+        private volatile int limit;
+
+        private volatile int entries;
+
+        private Segment(long baseOffset, Path path, MappedByteBuffer buffer) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private static Segment open(Path path, long baseOffset, boolean sealed, int size) throws IOException {
+            MappedByteBuffer buffer;
+            if (sealed) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+                }
+            }
+            Segment segment = new Segment(baseOffset, path, buffer);
+            // recover the end of the segment
+            int position = 0;
+            int entries = 0;
+            while (position + LENGTH_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + LENGTH_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                position += LENGTH_SIZE + length;
+                entries++;
+            }
+            segment.limit = position;
+            segment.entries = entries;
+            return segment;
+        }
+    }
+
+    private static final class PendingEntry {
+
+        private final long spotId;
+
+        private final int state;
+
+        private final Instant timestamp;
+
+        private final String actor;
+
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingEntry(long spotId, int state, Instant timestamp, String actor) {
+            this.spotId = spotId;
+            this.state = state;
+            this.timestamp = timestamp;
+            this.actor = actor;
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<OccupancyLogEntry> {
+
+        private final Iterator<Segment> segments;
+
+        private final long fromOffset;
+
+        private final long endOffset;
+
+        private ByteBuffer buffer;
+
+        private int limit;
+
+        private long offset;
+
+        private OccupancyLogEntry next;
+
+        private EntryIterator(List<Segment> segments, long fromOffset, long endOffset) {
+            this.segments = segments.iterator();
+            this.fromOffset = fromOffset;
+            this.endOffset = endOffset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (buffer == null || buffer.position() >= limit) {
+                    if (!segments.hasNext()) {
+                        return false;
+                    }
+                    Segment segment = segments.next();
+                    limit = segment.limit;
+                    buffer = segment.buffer.duplicate();
+                    buffer.position(0);
+                    offset = segment.baseOffset;
+                    continue;
+                }
+                if (offset >= endOffset) {
+                    return false;
+                }
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if (offset < fromOffset) {
+                    buffer.position(end);
+                    offset++;
+                    continue;
+                }
+                long spotId = buffer.getLong();
+                int state = buffer.get();
+                Instant timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+                byte[] actor = new byte[buffer.getShort()];
+                buffer.get(actor);
+                buffer.position(end);
+                next = new OccupancyLogEntry(offset++, spotId, state, timestamp, new String(actor, StandardCharsets.UTF_8));
+            }
+            return true;
+        }
+
+        @Override
+        public OccupancyLogEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            OccupancyLogEntry entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.companyname.parking.api.application.occupancy;
+
+import java.time.Instant;
+
+/**
+ * Listener notified by the {@link OccupancyEngine} of every committed change of the state of a parking spot.
+ */
+public interface OccupancyListener {
+
+    /**
+     * Called once a change is committed, or right away for changes made outside of a transaction. Implementations
+     * must not block, as they are called on the thread which made the change.
+     *
+     * @param spotId    the id of the parking spot
+     * @param state     its new state, one of {@link OccupancyEngine#ABSENT}, {@link OccupancyEngine#HELD} or {@link OccupancyEngine#FREE}
+     * @param freeSpots the number of free parking spots after the change
+     */
+    void stateChanged(long spotId, int state, long freeSpots);
+
+    /**
+     * Called like {@link #stateChanged(long, int, long)}, with the time the state was changed at, for the listeners
+     * recording it.
+     *
+     * @param spotId    the id of the parking spot
+     * @param state     its new state
+     * @param freeSpots the number of free parking spots after the change
+     * @param changedAt the time of the change, before its commit
+     */
+    default void stateChanged(long spotId, int state, long freeSpots, Instant changedAt) {
+        stateChanged(spotId, state, freeSpots);
+    }
+}
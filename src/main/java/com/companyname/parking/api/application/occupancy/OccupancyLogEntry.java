@@ -0,0 +1,28 @@
+package com.companyname.parking.api.application.occupancy;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A state change of a parking spot, as recorded in the {@link OccupancyEventLog}.
+ */
+@Value
+public class OccupancyLogEntry {
+
+    /**
+     * The position of the entry in the log.
+     */
+    long offset;
+
+    long spotId;
+
+    /**
+     * One of {@link OccupancyEngine#ABSENT}, {@link OccupancyEngine#HELD} or {@link OccupancyEngine#FREE}.
+     */
+    int state;
+
+    Instant timestamp;
+
+    String actor;
+}
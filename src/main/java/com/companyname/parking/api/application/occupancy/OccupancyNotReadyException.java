@@ -0,0 +1,13 @@
+package com.companyname.parking.api.application.occupancy;
+
+/**
+ * This exception is thrown when the {@link OccupancyEngine} is needed before it has loaded the parking spots.
+ */
+public class OccupancyNotReadyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public OccupancyNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,290 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.domain.occupancy.OccupancyRollup;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.occupancy.OccupancyRollupJdbcRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Incremental per-minute rollups of the free and occupied parking spot counts.
+ * <p>
+ * Every committed state change updates the minimum, maximum and time-weighted sum of the current minute. Once a minute
+ * has elapsed its {@link OccupancyRollup} is pushed to an in-memory ring buffer of
+ * {@code application.parking-spots.rollups.ring-size} minutes and saved to the database. Queries within the ring
+ * buffer are answered from memory, older ones from the saved rollups, so raw state changes are never scanned.
+ */
+@Service
+public class OccupancyRollupAggregator implements OccupancyListener {
+
+    private static final long MINUTE_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private final Logger log = LoggerFactory.getLogger(OccupancyRollupAggregator.class);
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final OccupancyRollupJdbcRepository occupancyRollupJdbcRepository;
+
+    // guarded by this
+    private final OccupancyRollup[] ring;
+
+    private int ringNext = 0;
+
+    private int ringSize = 0;
+
+    private final Deque<OccupancyRollup> unsaved = new ArrayDeque<>();
+
+    private long bucketStart = -1;
+
+    private long observedFrom;
+
+    private long lastChange;
+
+    private long free;
+
+    private long occupied;
+
+    private long freeMin;
+
+    private long freeMax;
+
+    private long occupiedMin;
+
+    private long occupiedMax;
+
+    private double freeSum;
+
+    private double occupiedSum;
+
+    public OccupancyRollupAggregator(OccupancyEngine occupancyEngine, OccupancyRollupJdbcRepository occupancyRollupJdbcRepository,
+                                     ApplicationProperties applicationProperties) {
+        this.occupancyEngine = occupancyEngine;
+        this.occupancyRollupJdbcRepository = occupancyRollupJdbcRepository;
+        this.ring = new OccupancyRollup[Math.max(1, applicationProperties.getParkingSpots().getRollups().getRingSize())];
+    }
+
+    @PostConstruct
+    public void start() {
+        occupancyEngine.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        occupancyEngine.removeListener(this);
+        saveClosedMinutes();
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        long total = occupancyEngine.countAll();
+        synchronized (this) {
+            if (!advance(System.currentTimeMillis())) {
+                return;
+            }
+            free = freeSpots;
+            occupied = Math.max(0, total - freeSpots);
+            freeMin = Math.min(freeMin, free);
+            freeMax = Math.max(freeMax, free);
+            occupiedMin = Math.min(occupiedMin, occupied);
+            occupiedMax = Math.max(occupiedMax, occupied);
+        }
+    }
+
+    /**
+     * Close the elapsed minutes, even without any change, and save their rollups.
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void closeElapsedMinutes() {
+        synchronized (this) {
+            advance(System.currentTimeMillis());
+        }
+        saveClosedMinutes();
+    }
+
+    /**
+     * Get the occupancy between two instants, aggregated by step: minimum of the minimums, average of the averages
+     * and maximum of the maximums of the minutes of each step. Steps without any rollup are left out.
+     *
+     * @param from the start, rounded down to the minute
+     * @param to   the end, exclusive
+     * @param step the length of a step, a whole number of minutes
+     * @return one rollup per step, starting at the start of the step, in time order
+     */
+    public List<OccupancyRollup> findRollups(Instant from, Instant to, Duration step) {
+        long fromMillis = from.toEpochMilli() - Math.floorMod(from.toEpochMilli(), MINUTE_MILLIS);
+        long toMillis = to.toEpochMilli();
+        long stepMillis = step.toMillis();
+        List<OccupancyRollup> minutes = findInRing(fromMillis, toMillis);
+        if (minutes == null) {
+            minutes = occupancyRollupJdbcRepository.findBetween(Instant.ofEpochMilli(fromMillis), to);
+        }
+        if (stepMillis == MINUTE_MILLIS) {
+            return minutes;
+        }
+        List<OccupancyRollup> steps = new ArrayList<>();
+        StepAggregate aggregate = null;
+        for (OccupancyRollup minute : minutes) {
+            long minuteMillis = minute.getBucketStart().toEpochMilli();
+            long stepStart = fromMillis + (minuteMillis - fromMillis) / stepMillis * stepMillis;
+            if (aggregate == null || aggregate.start != stepStart) {
+                if (aggregate != null) {
+                    steps.add(aggregate.toRollup());
+                }
+                aggregate = new StepAggregate(stepStart);
+            }
+            aggregate.add(minute);
+        }
+        if (aggregate != null) {
+            steps.add(aggregate.toRollup());
+        }
+        return steps;
+    }
+
+    /**
+     * @return the rollups of the range, or null if the ring buffer does not reach back to its start
+     */
+    private synchronized List<OccupancyRollup> findInRing(long fromMillis, long toMillis) {
+        if (ringSize == 0) {
+            return null;
+        }
+        int oldest = Math.floorMod(ringNext - ringSize, ring.length);
+        if (ring[oldest].getBucketStart().toEpochMilli() > fromMillis) {
+            return null;
+        }
+        List<OccupancyRollup> minutes = new ArrayList<>();
+        for (int i = 0; i < ringSize; i++) {
+            OccupancyRollup minute = ring[(oldest + i) % ring.length];
+            long minuteMillis = minute.getBucketStart().toEpochMilli();
+            if (minuteMillis >= fromMillis && minuteMillis < toMillis) {
+                minutes.add(minute);
+            }
+        }
+        return minutes;
+    }
+
+    /**
+     * Close the minutes elapsed before now and account for the current counts up to now. Must hold the lock.
+     *
+     * @return false if the engine is not ready yet, so there is nothing to aggregate
+     */
+    private boolean advance(long now) {
+        if (!occupancyEngine.isReady()) {
+            return false;
+        }
+        if (bucketStart < 0) {
+            bucketStart = now - Math.floorMod(now, MINUTE_MILLIS);
+            observedFrom = now;
+            lastChange = now;
+            free = occupancyEngine.countFree();
+            occupied = occupancyEngine.countHeld();
+            resetMinute();
+            return true;
+        }
+        while (now >= bucketStart + MINUTE_MILLIS) {
+            long bucketEnd = bucketStart + MINUTE_MILLIS;
+            accumulate(bucketEnd);
+            long observed = Math.max(1, bucketEnd - observedFrom);
+            OccupancyRollup rollup = new OccupancyRollup(Instant.ofEpochMilli(bucketStart),
+                freeMin, freeSum / observed, freeMax,
+                occupiedMin, occupiedSum / observed, occupiedMax);
+            ring[ringNext] = rollup;
+            ringNext = (ringNext + 1) % ring.length;
+            ringSize = Math.min(ringSize + 1, ring.length);
+            unsaved.add(rollup);
+            bucketStart = bucketEnd;
+            observedFrom = bucketEnd;
+            resetMinute();
+        }
+        accumulate(now);
+        return true;
+    }
+
+    private void accumulate(long to) {
+        long elapsed = to - lastChange;
+        if (elapsed > 0) {
+            freeSum += (double) free * elapsed;
+            occupiedSum += (double) occupied * elapsed;
+            lastChange = to;
+        }
+    }
+
+    private void resetMinute() {
+        freeMin = free;
+        freeMax = free;
+        occupiedMin = occupied;
+        occupiedMax = occupied;
+        freeSum = 0;
+        occupiedSum = 0;
+    }
+
+    private void saveClosedMinutes() {
+        while (true) {
+            OccupancyRollup rollup;
+            synchronized (this) {
+                rollup = unsaved.peekFirst();
+            }
+            if (rollup == null) {
+                return;
+            }
+            try {
+                occupancyRollupJdbcRepository.save(rollup);
+            } catch (RuntimeException e) {
+                log.warn("Could not save the occupancy rollup of {}, retrying later", rollup.getBucketStart(), e);
+                return;
+            }
+            synchronized (this) {
+                unsaved.pollFirst();
+            }
+        }
+    }
+
+    private static final class StepAggregate {
+
+        private final long start;
+
+        private long freeMin = Long.MAX_VALUE;
+
+        private long freeMax = Long.MIN_VALUE;
+
+        private long occupiedMin = Long.MAX_VALUE;
+
+        private long occupiedMax = Long.MIN_VALUE;
+
+        private double freeAvgSum;
+
+        private double occupiedAvgSum;
+
+        private int minutes;
+
+        private StepAggregate(long start) {
+            this.start = start;
+        }
+
+        private void add(OccupancyRollup minute) {
+            freeMin = Math.min(freeMin, minute.getFreeMin());
+            freeMax = Math.max(freeMax, minute.getFreeMax());
+            occupiedMin = Math.min(occupiedMin, minute.getOccupiedMin());
+            occupiedMax = Math.max(occupiedMax, minute.getOccupiedMax());
+            freeAvgSum += minute.getFreeAvg();
+            occupiedAvgSum += minute.getOccupiedAvg();
+            minutes++;
+        }
+
+        private OccupancyRollup toRollup() {
+            return new OccupancyRollup(Instant.ofEpochMilli(start),
+                freeMin, freeAvgSum / minutes, freeMax,
+                occupiedMin, occupiedAvgSum / minutes, occupiedMax);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.zone.ZoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Free and total parking spot counters of every zone, maintained by the {@link OccupancyEngine} on each transition.
+ * <p>
+ * The counters are {@link LongAdder}s: an update adds to a cell striped by thread, so transitions reported on
+ * different cores do not contend on a shared word, and a count only sums the cells, without any lock or SQL.
+ */
+@Service
+public class ZoneOccupancy {
+
+    private final Logger log = LoggerFactory.getLogger(ZoneOccupancy.class);
+
+    private final ZoneRepository zoneRepository;
+
+    private final ConcurrentMap<Long, Long> spotZones = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Counters> zones = new ConcurrentHashMap<>();
+
+    public ZoneOccupancy(ZoneRepository zoneRepository) {
+        this.zoneRepository = zoneRepository;
+    }
+
+    /**
+     * Register every existing zone once the application is up, so that empty zones are counted too.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        zoneRepository.findAllIds().forEach(this::register);
+        log.info("Zone occupancy loaded: {} zones", zones.size());
+    }
+
+    /**
+     * @param zoneId the id of a new zone
+     */
+    public void register(Long zoneId) {
+        zones.putIfAbsent(zoneId, new Counters());
+    }
+
+    /**
+     * @param zoneId the id of a deleted zone, which has no parking spot left
+     */
+    public void unregister(Long zoneId) {
+        zones.remove(zoneId);
+    }
+
+    /**
+     * @return true if the zone is known
+     */
+    public boolean contains(Long zoneId) {
+        return zoneId != null && zones.containsKey(zoneId);
+    }
+
+    public long countFree(Long zoneId) {
+        Counters counters = zoneId == null ? null : zones.get(zoneId);
+        return counters == null ? 0 : counters.free.sum();
+    }
+
+    public long countAll(Long zoneId) {
+        Counters counters = zoneId == null ? null : zones.get(zoneId);
+        return counters == null ? 0 : counters.spots.sum();
+    }
+
+    /**
+     * @return the id of the zone of the spot, or null if it has none
+     */
+    Long getZone(long spotId) {
+        return spotZones.get(spotId);
+    }
+
+    /**
+     * Move a spot to another zone, carrying its current state from the counters of the previous zone to the new one.
+     *
+     * @param spotId the id of the parking spot
+     * @param zoneId the id of the new zone, or null to leave any zone
+     * @param state  the current state of the spot
+     */
+    void assign(long spotId, Long zoneId, int state) {
+        Long previous = zoneId == null ? spotZones.remove(spotId) : spotZones.put(spotId, zoneId);
+        if (previous != null) {
+            counters(previous).add(state, -1);
+        }
+        if (zoneId != null) {
+            counters(zoneId).add(state, 1);
+        }
+    }
+
+    /**
+     * Account for a state transition of a spot in the counters of its zone.
+     */
+    void adjust(long spotId, int previous, int state) {
+        Long zoneId = spotZones.get(spotId);
+        if (zoneId == null) {
+            return;
+        }
+        Counters counters = counters(zoneId);
+        counters.add(previous, -1);
+        counters.add(state, 1);
+    }
+
+    private Counters counters(Long zoneId) {
+        return zones.computeIfAbsent(zoneId, id -> new Counters());
+    }
+
+    private static final class Counters {
+
+        private final LongAdder spots = new LongAdder();
+
+        private final LongAdder free = new LongAdder();
+
+        private void add(int state, int delta) {
+            if (state != OccupancyEngine.ABSENT) {
+                spots.add(delta);
+            }
+            if (state == OccupancyEngine.FREE) {
+                free.add(delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-memory uniform grid index of the free parking spots with coordinates.
+ * <p>
+ * The plane is cut in square cells of {@code application.parking-spots.nearest.cell-size}. Each cell holds the ids of
+ * the free spots it contains, and is updated in place on every committed state change, so the index never needs to
+ * be rebuilt. A k-nearest lookup scans rings of cells around the point, and stops as soon as no cell of the next ring
+ * can be closer than the k-th spot found. Spots are checked against the {@link OccupancyEngine} as they are found, so
+ * a spot held in the meantime is never returned.
+ * <p>
+ * Coordinates are bounded by {@code application.parking-spots.nearest.max-coordinate}, so every cell index fits in an
+ * int. The rings are clipped to the bounds of the cells in use, starting with the first one reaching them, and once
+ * the cells probed would outnumber the cells in use, the remaining ones are scanned directly instead. A lookup thus
+ * never costs more than the size of the index, however far the point is. The cell of a spot is moved under the lock
+ * of its entry in the positions, which serializes the position and state changes of the spot.
+ */
+@Service
+public class FreeParkingSpotIndex implements OccupancyListener {
+
+    private final Logger log = LoggerFactory.getLogger(FreeParkingSpotIndex.class);
+
+    private final ParkingSpotRepository parkingSpotRepository;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final double cellSize;
+
+    private final double maxCoordinate;
+
+    private final ConcurrentMap<Long, Position> positions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    // bounds of the cells ever used, only growing
+    private volatile int minCellX = Integer.MAX_VALUE;
+
+    private volatile int maxCellX = Integer.MIN_VALUE;
+
+    private volatile int minCellY = Integer.MAX_VALUE;
+
+    private volatile int maxCellY = Integer.MIN_VALUE;
+
+    public FreeParkingSpotIndex(ParkingSpotRepository parkingSpotRepository, OccupancyEngine occupancyEngine,
+                                ApplicationProperties applicationProperties) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.occupancyEngine = occupancyEngine;
+        this.cellSize = applicationProperties.getParkingSpots().getNearest().getCellSize();
+        this.maxCoordinate = applicationProperties.getParkingSpots().getNearest().getMaxCoordinate();
+        if (!(cellSize > 0) || maxCoordinate / cellSize >= Integer.MAX_VALUE / 2) {
+            throw new IllegalStateException("application.parking-spots.nearest.max-coordinate is too large for the cell size");
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        occupancyEngine.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        occupancyEngine.removeListener(this);
+    }
+
+    /**
+     * Index the coordinates of every parking spot once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        for (Object[] row : parkingSpotRepository.findAllPositions()) {
+            applyPosition((Long) row[0], toPosition((Double) row[2], (Double) row[3]));
+        }
+        log.info("Free parking spot index loaded: {} spots with coordinates", positions.size());
+    }
+
+    /**
+     * Record the coordinates of a parking spot, once its transaction commits if there is one.
+     *
+     * @param id the id of the parking spot
+     * @param x  the x coordinate, or null if the spot has none
+     * @param y  the y coordinate, or null if the spot has none
+     */
+    public void updatePosition(Long id, Double x, Double y) {
+        if (id == null) {
+            return;
+        }
+        Position position = toPosition(x, y);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    applyPosition(id, position);
+                }
+            });
+        } else {
+            applyPosition(id, position);
+        }
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        positions.computeIfPresent(spotId, (id, position) -> {
+            if (state == OccupancyEngine.FREE) {
+                addToCell(id, position);
+            } else {
+                removeFromCell(id, position);
+            }
+            return position;
+        });
+    }
+
+    /**
+     * @param x the x coordinate of a point
+     * @param y the y coordinate of a point
+     * @return whether the point is finite and within the max coordinate
+     */
+    public boolean isInRange(double x, double y) {
+        return isInRange(x) && isInRange(y);
+    }
+
+    /**
+     * Find the free parking spots nearest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the number of spots to find
+     * @return at most k free spots, nearest first
+     * @throws IllegalArgumentException if the point is not {@link #isInRange(double, double) in range}
+     */
+    public List<NearestParkingSpotDTO> findNearest(double x, double y, int k) {
+        if (!isInRange(x, y)) {
+            throw new IllegalArgumentException("The point (" + x + ", " + y + ") is out of range");
+        }
+        // farthest of the k best first
+        PriorityQueue<NearestParkingSpotDTO> nearest = new PriorityQueue<>(k,
+            Comparator.comparingDouble(NearestParkingSpotDTO::getDistance).reversed());
+        Bounds bounds = new Bounds(minCellX, maxCellX, minCellY, maxCellY);
+        long cellX = cell(x);
+        long cellY = cell(y);
+        // the rings closer than the bounds hold no cell, the rings farther are around all of them
+        long firstRing = Math.max(0, Math.max(Math.max(bounds.minX - cellX, cellX - bounds.maxX),
+            Math.max(bounds.minY - cellY, cellY - bounds.maxY)));
+        long lastRing = Math.max(Math.max(cellX - bounds.minX, bounds.maxX - cellX),
+            Math.max(cellY - bounds.minY, bounds.maxY - cellY));
+        long probes = cells.size();
+        for (long ring = firstRing; ring <= lastRing; ring++) {
+            if (nearest.size() == k && nearest.peek().getDistance() <= (ring - 1) * cellSize) {
+                break;
+            }
+            probes -= bounds.countRingCells(cellX, cellY, ring);
+            if (probes < 0) {
+                scanCellsFrom(ring, cellX, cellY, x, y, k, nearest);
+                break;
+            }
+            scanRing(ring, cellX, cellY, bounds, x, y, k, nearest);
+        }
+        List<NearestParkingSpotDTO> result = new ArrayList<>(nearest);
+        result.sort(Comparator.comparingDouble(NearestParkingSpotDTO::getDistance));
+        return result;
+    }
+
+    private void scanRing(long ring, long cellX, long cellY, Bounds bounds, double x, double y, int k,
+                          PriorityQueue<NearestParkingSpotDTO> nearest) {
+        long fromX = Math.max(cellX - ring, bounds.minX);
+        long toX = Math.min(cellX + ring, bounds.maxX);
+        for (long row : ring == 0 ? new long[]{cellY} : new long[]{cellY - ring, cellY + ring}) {
+            if (row >= bounds.minY && row <= bounds.maxY) {
+                for (long column = fromX; column <= toX; column++) {
+                    scanCell(column, row, x, y, k, nearest);
+                }
+            }
+        }
+        if (ring == 0) {
+            return;
+        }
+        long fromY = Math.max(cellY - ring + 1, bounds.minY);
+        long toY = Math.min(cellY + ring - 1, bounds.maxY);
+        for (long column : new long[]{cellX - ring, cellX + ring}) {
+            if (column >= bounds.minX && column <= bounds.maxX) {
+                for (long row = fromY; row <= toY; row++) {
+                    scanCell(column, row, x, y, k, nearest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan the cells in use from the given ring on, whatever their distance.
+     */
+    private void scanCellsFrom(long ring, long cellX, long cellY, double x, double y, int k,
+                               PriorityQueue<NearestParkingSpotDTO> nearest) {
+        for (Long key : cells.keySet()) {
+            long column = key >> Integer.SIZE;
+            long row = (int) (long) key;
+            if (Math.max(Math.abs(column - cellX), Math.abs(row - cellY)) >= ring) {
+                scanCell(column, row, x, y, k, nearest);
+            }
+        }
+    }
+
+    private void scanCell(long cellX, long cellY, double x, double y, int k, PriorityQueue<NearestParkingSpotDTO> nearest) {
+        Set<Long> cell = cells.get(key((int) cellX, (int) cellY));
+        if (cell == null) {
+            return;
+        }
+        for (Long id : cell) {
+            Position position = positions.get(id);
+            // skip an id the cell is being moved from, it is found in its new cell
+            if (position == null || cell(position.x) != cellX || cell(position.y) != cellY
+                || occupancyEngine.getState(id) != OccupancyEngine.FREE) {
+                continue;
+            }
+            double distance = Math.hypot(position.x - x, position.y - y);
+            if (nearest.size() < k) {
+                nearest.add(new NearestParkingSpotDTO(id, position.x, position.y, distance));
+            } else if (distance < nearest.peek().getDistance()) {
+                nearest.poll();
+                nearest.add(new NearestParkingSpotDTO(id, position.x, position.y, distance));
+            }
+        }
+    }
+
+    private void applyPosition(Long id, Position position) {
+        positions.compute(id, (key, previous) -> {
+            if (previous != null) {
+                removeFromCell(id, previous);
+            }
+            if (position != null && occupancyEngine.getState(id) == OccupancyEngine.FREE) {
+                addToCell(id, position);
+            }
+            return position;
+        });
+    }
+
+    private Position toPosition(Double x, Double y) {
+        if (x == null || y == null) {
+            return null;
+        }
+        if (!isInRange(x, y)) {
+            log.debug("Parking spot coordinates ({}, {}) are out of range, not indexed", x, y);
+            return null;
+        }
+        return new Position(x, y);
+    }
+
+    private boolean isInRange(double coordinate) {
+        return Double.isFinite(coordinate) && Math.abs(coordinate) <= maxCoordinate;
+    }
+
+    private void addToCell(Long id, Position position) {
+        int cellX = cell(position.x);
+        int cellY = cell(position.y);
+        expandBounds(cellX, cellY);
+        cells.computeIfAbsent(key(cellX, cellY), key -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private void removeFromCell(Long id, Position position) {
+        Set<Long> cell = cells.get(key(cell(position.x), cell(position.y)));
+        if (cell != null) {
+            cell.remove(id);
+        }
+    }
+
+    private void expandBounds(int cellX, int cellY) {
+        if (cellX >= minCellX && cellX <= maxCellX && cellY >= minCellY && cellY <= maxCellY) {
+            return;
+        }
+        synchronized (this) {
+            minCellX = Math.min(minCellX, cellX);
+            maxCellX = Math.max(maxCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellY = Math.max(maxCellY, cellY);
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << Integer.SIZE) | (cellY & 0xffffffffL);
+    }
+
+    /**
+     * Snapshot of the bounds of the cells in use.
+     */
+    private static final class Bounds {
+
+        private final long minX;
+
+        private final long maxX;
+
+        private final long minY;
+
+        private final long maxY;
+
+        private Bounds(long minX, long maxX, long minY, long maxY) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        /**
+         * @return the number of cells of the ring within the bounds
+         */
+        private long countRingCells(long cellX, long cellY, long ring) {
+            long width = Math.max(0, Math.min(cellX + ring, maxX) - Math.max(cellX - ring, minX) + 1);
+            long height = Math.max(0, Math.min(cellY + ring - 1, maxY) - Math.max(cellY - ring + 1, minY) + 1);
+            long rows = ring == 0 ? 1 : countWithin(cellY - ring, minY, maxY) + countWithin(cellY + ring, minY, maxY);
+            long columns = ring == 0 ? 0 : countWithin(cellX - ring, minX, maxX) + countWithin(cellX + ring, minX, maxX);
+            return rows * width + columns * height;
+        }
+
+        private static long countWithin(long value, long min, long max) {
+            return value >= min && value <= max ? 1 : 0;
+        }
+    }
+
+    private static final class Position {
+
+        private final double x;
+
+        private final double y;
+
+        private Position(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine.Transition;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lock-free pool of the ids of the free parking spots, handing each free spot to a single taker.
+ * <p>
+ * Taking a spot polls an id and holds it by a compare-and-set in the {@link OccupancyEngine}, which only one taker can
+ * win, so a spot is never handed out twice. Ids which are no longer free are dropped on the way. The pool is refilled
+ * by the committed changes of the engine, and a spot taken by a transaction which does not commit goes back to it.
+ */
+@Service
+public class FreeParkingSpotPool implements OccupancyListener {
+
+    private final Logger log = LoggerFactory.getLogger(FreeParkingSpotPool.class);
+
+    private final ParkingSpotRepository parkingSpotRepository;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final Queue<Long> freeIds = new ConcurrentLinkedQueue<>();
+
+    // the ids in the queue, so an id is queued at most once
+    private final Set<Long> pooledIds = ConcurrentHashMap.newKeySet();
+
+    public FreeParkingSpotPool(ParkingSpotRepository parkingSpotRepository, OccupancyEngine occupancyEngine) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.occupancyEngine = occupancyEngine;
+    }
+
+    @PostConstruct
+    public void start() {
+        occupancyEngine.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        occupancyEngine.removeListener(this);
+    }
+
+    /**
+     * Pool every free parking spot once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        for (Object[] occupancy : parkingSpotRepository.findAllOccupancies()) {
+            if ((Boolean) occupancy[1]) {
+                offer((Long) occupancy[0]);
+            }
+        }
+        log.info("Free parking spot pool loaded: {} spots", pooledIds.size());
+    }
+
+    /**
+     * Take a free parking spot out of the pool and hold it in the {@link OccupancyEngine}. Inside a transaction,
+     * the spot goes back to the pool if it does not commit.
+     *
+     * @return the id of the held parking spot, or empty if no spot is free or the engine is not ready
+     */
+    public Optional<Long> take() {
+        if (!occupancyEngine.isReady()) {
+            return Optional.empty();
+        }
+        for (Long id = freeIds.poll(); id != null; id = freeIds.poll()) {
+            pooledIds.remove(id);
+            if (occupancyEngine.transition(id, false) == Transition.APPLIED) {
+                returnOnRollback(id);
+                return Optional.of(id);
+            }
+            // freed again between the poll and the transition
+            if (occupancyEngine.getState(id) == OccupancyEngine.FREE) {
+                offer(id);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        if (state == OccupancyEngine.FREE) {
+            offer(spotId);
+        }
+    }
+
+    /**
+     * @return the number of ids in the pool, including the ones no longer free which have not been dropped yet
+     */
+    public int size() {
+        return pooledIds.size();
+    }
+
+    private void offer(Long id) {
+        if (pooledIds.add(id)) {
+            freeIds.offer(id);
+        }
+    }
+
+    private void returnOnRollback(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && occupancyEngine.getState(id) == OccupancyEngine.FREE) {
+                    offer(id);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel, expiring timeouts in O(1) each.
+ * <p>
+ * Time is divided in ticks. Level 0 has one slot per tick, each higher level one slot per full turn of the level
+ * below, so four levels of 512 slots cover far more than any deadline. A timeout goes to the lowest level whose
+ * current turn contains its deadline. When a level turns over, the timeouts of the next slot of the level above are
+ * cascaded down, and the timeouts of the current level 0 slot expire. Scheduling and cancelling only enqueue or flag a
+ * timeout; the slots themselves are only touched by the wheel thread.
+ *
+ * @param <T> the type of the payload of the timeouts
+ */
+final class HierarchicalTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 9;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 4;
+
+    private final Logger log = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+    private final long tickNanos;
+
+    private final Consumer<List<Timeout<T>>> expiry;
+
+    private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+
+    // owned by the wheel thread, by level then slot index, each slot created on first use
+    private final List<List<ArrayDeque<Timeout<T>>>> slots = newSlots();
+
+    private final long startNanos = System.nanoTime();
+
+    private long tick = 0;
+
+    private volatile boolean running = false;
+
+    private Thread wheel;
+
+    /**
+     * @param tick   the duration of a tick, the precision of the timeouts
+     * @param expiry called by the wheel thread with the timeouts expired at each tick
+     */
+    HierarchicalTimingWheel(Duration tick, Consumer<List<Timeout<T>>> expiry) {
+        this.tickNanos = Math.max(1, tick.toNanos());
+        this.expiry = expiry;
+    }
+
+    void start(String threadName) {
+        running = true;
+        wheel = new Thread(this::run, threadName);
+        wheel.setDaemon(true);
+        wheel.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        if (wheel != null) {
+            LockSupport.unpark(wheel);
+            wheel.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Schedule a timeout. Safe to call from any thread.
+     *
+     * @param payload the payload handed back when the timeout expires
+     * @param delay   the delay after which it expires, rounded up to the next tick
+     * @return the timeout, which may be cancelled
+     */
+    Timeout<T> schedule(T payload, Duration delay) {
+        long delayNanos = Math.max(0, delay.toNanos());
+        long deadline = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Timeout<T> timeout = new Timeout<>(payload, deadline);
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long waitNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            // late ticks are caught up one after the other
+            advance(++tick);
+        }
+    }
+
+    private void advance(long tick) {
+        for (Timeout<T> timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            place(timeout, tick);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                cascade(level, tick);
+            }
+        }
+        ArrayDeque<Timeout<T>> slot = slots.get(0).get((int) (tick & WHEEL_MASK));
+        if (slot == null || slot.isEmpty()) {
+            return;
+        }
+        List<Timeout<T>> expired = new ArrayList<>(slot.size());
+        for (Timeout<T> timeout : slot) {
+            if (!timeout.isCancelled()) {
+                expired.add(timeout);
+            }
+        }
+        slot.clear();
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            expiry.accept(expired);
+        } catch (RuntimeException e) {
+            log.error("Expiry of {} timeouts failed", expired.size(), e);
+        }
+    }
+
+    private void cascade(int level, long tick) {
+        ArrayDeque<Timeout<T>> slot = slots.get(level).get((int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+        if (slot == null || slot.isEmpty()) {
+            return;
+        }
+        List<Timeout<T>> cascaded = new ArrayList<>(slot);
+        slot.clear();
+        for (Timeout<T> timeout : cascaded) {
+            if (!timeout.isCancelled()) {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout, long tick) {
+        long deadline = Math.max(timeout.deadline, tick);
+        int level = 0;
+        while (level < LEVELS - 1 && (deadline >>> (WHEEL_BITS * (level + 1))) != (tick >>> (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int index = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        ArrayDeque<Timeout<T>> slot = slots.get(level).get(index);
+        if (slot == null) {
+            slot = new ArrayDeque<>();
+            slots.get(level).set(index, slot);
+        }
+        slot.add(timeout);
+    }
+
+    private static <T> List<List<ArrayDeque<Timeout<T>>>> newSlots() {
+        List<List<ArrayDeque<Timeout<T>>>> levels = new ArrayList<>(LEVELS);
+        for (int level = 0; level < LEVELS; level++) {
+            levels.add(new ArrayList<>(Collections.nCopies(WHEEL_SIZE, null)));
+        }
+        return levels;
+    }
+
+    static final class Timeout<T> {
+
+        private final T payload;
+
+        private final long deadline;
+
+        private volatile boolean cancelled = false;
+
+        private Timeout(T payload, long deadline) {
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        T getPayload() {
+            return payload;
+        }
+
+        /**
+         * Cancel the timeout, it is dropped when the wheel reaches it.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for a free ParkingSpot found near a point, with its distance to that point.
+ */
+@Value
+public class NearestParkingSpotDTO implements Serializable {
+
+    Long id;
+
+    double x;
+
+    double y;
+
+    double distance;
+}
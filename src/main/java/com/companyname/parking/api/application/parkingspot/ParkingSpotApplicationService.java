@@ -1,16 +1,40 @@
 package com.companyname.parking.api.application.parkingspot;
 
-import com.companyname.parking.api.application.user.UserService;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine.Transition;
+import com.companyname.parking.api.application.occupancy.OccupancyNotReadyException;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotStateResultDTO.Status;
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotVersion;
+import com.companyname.parking.api.domain.user.UserConstants;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotTombstoneJdbcRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service Implementation for managing ParkingSpot.
@@ -23,27 +47,55 @@ public class ParkingSpotApplicationService {
 
     private final ParkingSpotRepository parkingSpotRepository;
 
+    private final ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    private final ParkingSpotTombstoneJdbcRepository parkingSpotTombstoneJdbcRepository;
+
     private final ParkingSpotMapper parkingSpotMapper;
 
-    private final UserService userService;
+    private final OccupancyEngine occupancyEngine;
+
+    private final ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue;
+
+    private final ParkingSpotGroupCommitter parkingSpotGroupCommitter;
+
+    private final FreeParkingSpotPool freeParkingSpotPool;
+
+    private final int ingestionBatchSize;
+
+    private final boolean crossNodeAssignment;
 
-    public ParkingSpotApplicationService(ParkingSpotRepository parkingSpotRepository, ParkingSpotMapper parkingSpotMapper, UserService userService) {
+    private final int tombstoneRetentionDays;
+
+    public ParkingSpotApplicationService(ParkingSpotRepository parkingSpotRepository, ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository,
+                                         ParkingSpotTombstoneJdbcRepository parkingSpotTombstoneJdbcRepository, ParkingSpotMapper parkingSpotMapper, OccupancyEngine occupancyEngine,
+                                         ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue, ParkingSpotGroupCommitter parkingSpotGroupCommitter,
+                                         FreeParkingSpotPool freeParkingSpotPool, ApplicationProperties applicationProperties) {
         this.parkingSpotRepository = parkingSpotRepository;
+        this.parkingSpotStateJdbcRepository = parkingSpotStateJdbcRepository;
+        this.parkingSpotTombstoneJdbcRepository = parkingSpotTombstoneJdbcRepository;
         this.parkingSpotMapper = parkingSpotMapper;
-        this.userService = userService;
+        this.occupancyEngine = occupancyEngine;
+        this.parkingSpotWriteBehindQueue = parkingSpotWriteBehindQueue;
+        this.parkingSpotGroupCommitter = parkingSpotGroupCommitter;
+        this.freeParkingSpotPool = freeParkingSpotPool;
+        this.ingestionBatchSize = Math.max(1, applicationProperties.getParkingSpots().getIngestion().getBatchSize());
+        this.crossNodeAssignment = applicationProperties.getParkingSpots().getAssignment().isCrossNode();
+        this.tombstoneRetentionDays = applicationProperties.getParkingSpots().getChanges().getTombstoneRetentionDays();
     }
 
     /**
-     * Save a parkingSpot.
+     * Save a parkingSpot. An existing parkingSpot is only updated if the version of the DTO is still current,
+     * otherwise an {@link OptimisticLockingFailureException} is thrown.
      *
      * @param parkingSpotDTO the entity to save
-     * @return the persisted entity
+     * @return the persisted entity, with its new version
      */
 
     public ParkingSpotDTO save(ParkingSpotDTO parkingSpotDTO) {
         log.debug("Request to save ParkingSpot : {}", parkingSpotDTO);
         ParkingSpot parkingSpot = parkingSpotMapper.toEntity(parkingSpotDTO);
-        parkingSpot = parkingSpotRepository.save(parkingSpot);
+        parkingSpot = parkingSpotRepository.saveAndFlush(parkingSpot);
         return parkingSpotMapper.toDto(parkingSpot);
     }
 
@@ -75,33 +127,319 @@ public class ParkingSpotApplicationService {
     }
 
     /**
-     * Delete the parkingSpot by id.
+     * Get the version of one parkingSpot by id, with the login of its owner, without loading nor mapping it.
+     *
+     * @param id the id of the entity
+     * @return the version of the entity
+     */
+    @Transactional(readOnly = true)
+    public Optional<ParkingSpotVersion> findVersion(Long id) {
+        log.debug("Request to get the version of ParkingSpot : {}", id);
+        return parkingSpotRepository.findVersionById(id);
+    }
+
+    /**
+     * Delete the parkingSpot by id, leaving a tombstone for the clients syncing the changes.
      *
      * @param id the id of the entity
      */
     public void delete(Long id) {
         log.debug("Request to delete ParkingSpot : {}", id);
         parkingSpotRepository.deleteById(id);
+        parkingSpotTombstoneJdbcRepository.insert(id, Instant.now());
+    }
+
+    /**
+     * The tombstones of the deleted parkingSpots are kept for the retention period, clients syncing from an older
+     * watermark have to reload all the parkingSpots.
+     * <p>
+     * This is scheduled to get fired everyday, at 01:00 (am).
+     */
+    @Scheduled(cron = "0 0 1 * * ?")
+    public void removeExpiredTombstones() {
+        int removed = parkingSpotTombstoneJdbcRepository.deleteOlderThan(Instant.now().minus(tombstoneRetentionDays, ChronoUnit.DAYS));
+        log.debug("Removed {} expired ParkingSpot tombstones", removed);
     }
 
     /**
      * Free up own parkingSpot.
      *
+     * @return a future completed once the new state is acknowledged
      */
-    public void freeUpOwnParkingSpot() {
+    public CompletableFuture<Void> freeUpOwnParkingSpot() {
         log.debug("Request to free up own ParkingSpot");
-        userService.getCurrentUser().ifPresent(user ->
-                parkingSpotRepository.save(user.getParkingSpot().freeUp()));
+        return SecurityUtils.getCurrentUserLogin()
+            .map(login -> changeOwnParkingSpotState(login, true))
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
     }
 
     /**
-     * Free up own parkingSpot.
+     * Hold own parkingSpot.
      *
+     * @return a future completed once the new state is acknowledged
      */
-    public void holdOwnParkingSpot() {
+    public CompletableFuture<Void> holdOwnParkingSpot() {
         log.debug("Request to hold own ParkingSpot");
-        userService.getCurrentUser().ifPresent(user ->
-                parkingSpotRepository.save(user.getParkingSpot().hold()));
+        return SecurityUtils.getCurrentUserLogin()
+            .map(login -> changeOwnParkingSpotState(login, false))
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Assign a free parkingSpot to the current user, and hold it.
+     * <p>
+     * The spot is taken from the {@link FreeParkingSpotPool}, which holds it in the {@link OccupancyEngine} by a
+     * compare-and-set, so concurrent assignments never get the same spot. The change is then written like any other
+     * state change, the assignment in the same statement. With {@code application.parking-spots.assignment.cross-node},
+     * the pool only knows the changes of this node, so the spot is claimed in the database instead, see
+     * {@link #claimFreeParkingSpot(String)}. Either way the spot is linked to the user until it is freed, see
+     * {@link #releaseAssignedParkingSpot(Long)}.
+     *
+     * @return a future completed with the assignment once the new state is acknowledged, or with empty if no
+     * parkingSpot is free
+     * @throws OccupancyNotReadyException if the free parkingSpots are not loaded in the {@link OccupancyEngine} yet
+     */
+    public CompletableFuture<Optional<ParkingSpotAssignmentDTO>> assignFreeParkingSpot() {
+        log.debug("Request to assign a free ParkingSpot");
+        String login = SecurityUtils.getCurrentUserLogin().orElse(UserConstants.SYSTEM_ACCOUNT);
+        if (crossNodeAssignment) {
+            return CompletableFuture.completedFuture(claimFreeParkingSpot(login));
+        }
+        if (!occupancyEngine.isReady()) {
+            throw new OccupancyNotReadyException("The free parking spots are not loaded yet");
+        }
+        for (Optional<Long> taken = freeParkingSpotPool.take(); taken.isPresent(); taken = freeParkingSpotPool.take()) {
+            Long id = taken.get();
+            ParkingSpotStateChange change = ParkingSpotStateChange.assign(id, login, Instant.now());
+            Optional<ParkingSpotAssignmentDTO> assignment =
+                Optional.of(new ParkingSpotAssignmentDTO(id, login, change.getTimestamp()));
+            if (parkingSpotGroupCommitter.isEnabled()) {
+                // the spot was held by the pool before the commit, so it is freed again if the commit fails
+                return parkingSpotGroupCommitter.submit(change)
+                    .whenComplete((acknowledged, e) -> {
+                        if (e != null) {
+                            occupancyEngine.update(id, true);
+                        }
+                    })
+                    .thenApply(acknowledged -> assignment);
+            }
+            if (parkingSpotWriteBehindQueue.isEnabled()) {
+                parkingSpotWriteBehindQueue.enqueue(change);
+                return CompletableFuture.completedFuture(assignment);
+            }
+            if (writeStates(Collections.singletonList(change)).isEmpty()) {
+                return CompletableFuture.completedFuture(assignment);
+            }
+            // deleted in the meantime
+            occupancyEngine.remove(id);
+        }
+        return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    /**
+     * Claim a free parkingSpot shared with other nodes: its row is locked, skipping the rows other claims hold, then
+     * it is held through the persistence context, which checks its version. On databases without
+     * {@code SKIP LOCKED}, e.g. H2, the lock is a plain {@code FOR UPDATE}, so concurrent claims are serialized on the
+     * first free row instead of each locking a different one, and the version check still prevents a double claim.
+     */
+    private Optional<ParkingSpotAssignmentDTO> claimFreeParkingSpot(String login) {
+        List<ParkingSpot> claimed = parkingSpotRepository.findFreeForClaim(PageRequest.of(0, 1));
+        if (claimed.isEmpty()) {
+            return Optional.empty();
+        }
+        ParkingSpot parkingSpot = parkingSpotRepository.saveAndFlush(claimed.get(0).hold());
+        parkingSpotStateJdbcRepository.assign(parkingSpot.getId(), login);
+        return Optional.of(new ParkingSpotAssignmentDTO(parkingSpot.getId(), login, parkingSpot.getLastModifiedDate()));
+    }
+
+    /**
+     * Release a parkingSpot assigned to the current user: it is freed like any other state change, which also ends the
+     * assignment.
+     *
+     * @param id the id of the parkingSpot
+     * @return a future completed with true once the new state is acknowledged, or with false if the parkingSpot is not
+     * assigned to the current user
+     */
+    public CompletableFuture<Boolean> releaseAssignedParkingSpot(Long id) {
+        log.debug("Request to release assigned ParkingSpot : {}", id);
+        String login = SecurityUtils.getCurrentUserLogin().orElse(UserConstants.SYSTEM_ACCOUNT);
+        if (!parkingSpotRepository.findAssignedIdsByLogin(login).contains(id)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return changeState(id, true, login).thenApply(acknowledged -> true);
     }
 
-}
\ No newline at end of file
+    /**
+     * Change the state of the parkingSpot owned by the user with the given login, without loading the user.
+     * <p>
+     * By default the id, version and state of the parkingSpot are looked up, and the change is written right away by a
+     * single update conditional on that version, so an {@link OptimisticLockingFailureException} is thrown if the
+     * parkingSpot was changed meanwhile. In group-commit and write-behind modes only the id is looked up, and a spot
+     * already in the requested state in the {@link OccupancyEngine} is acknowledged without any write. In group-commit
+     * mode the returned future completes once the {@link ParkingSpotGroupCommitter} has committed the change, which
+     * only then updates the engine. In write-behind mode the transition is made right away by a compare-and-set in the
+     * engine, and the change is written later by the {@link ParkingSpotWriteBehindQueue}.
+     */
+    private CompletableFuture<Void> changeOwnParkingSpotState(String login, boolean isFree) {
+        if (!parkingSpotGroupCommitter.isEnabled() && !parkingSpotWriteBehindQueue.isEnabled()) {
+            parkingSpotRepository.findOwnedStateByLogin(login).stream()
+                .filter(owned -> (Boolean) owned[2] != isFree)
+                .findFirst()
+                .ifPresent(owned -> {
+                    Long id = (Long) owned[0];
+                    ParkingSpotStateChange change = new ParkingSpotStateChange(id, isFree, login, Instant.now());
+                    if (!parkingSpotStateJdbcRepository.compareAndSetState(change, (Long) owned[1])) {
+                        throw new OptimisticLockingFailureException("ParkingSpot " + id + " was changed concurrently");
+                    }
+                    occupancyEngine.update(id, isFree);
+                });
+            return CompletableFuture.completedFuture(null);
+        }
+        return parkingSpotRepository.findOwnedIdByLogin(login)
+            .map(id -> changeState(id, isFree, login))
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Change the state of a parkingSpot, without checking its version. A spot already in the requested state in the
+     * {@link OccupancyEngine} is acknowledged without any write. In group-commit mode the returned future completes
+     * once the {@link ParkingSpotGroupCommitter} has committed the change, in write-behind mode the change is written
+     * later by the {@link ParkingSpotWriteBehindQueue}, and otherwise it is written right away.
+     */
+    private CompletableFuture<Void> changeState(Long id, boolean isFree, String login) {
+        Transition transition = prepareTransition(id, isFree);
+        if (transition == Transition.UNCHANGED) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ParkingSpotStateChange change = new ParkingSpotStateChange(id, isFree, login, Instant.now());
+        if (parkingSpotGroupCommitter.isEnabled()) {
+            return parkingSpotGroupCommitter.submit(change);
+        }
+        if (parkingSpotWriteBehindQueue.isEnabled()) {
+            parkingSpotWriteBehindQueue.enqueue(change);
+        } else if (!writeStates(Collections.singletonList(change)).isEmpty()) {
+            // deleted in the meantime
+            occupancyEngine.remove(id);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (transition == Transition.UNTRACKED) {
+            occupancyEngine.update(id, isFree);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Apply the state changes reported for many parkingSpots at once, e.g. by a sensor gateway.
+     * <p>
+     * The changes are first coalesced to the latest observed change per parkingSpot. Each remaining change is made by a
+     * compare-and-set in the {@link OccupancyEngine}, so the ones not changing anything are dropped, and the others are
+     * written like a single change, in JDBC batches of {@code application.parking-spots.ingestion.batch-size} in the
+     * default synchronous mode. A change observed before the last observation written for its parkingSpot is not
+     * written, and its transition is reverted. In group-commit mode, the engine is only checked, and updated once the
+     * changes are committed. In group-commit and write-behind modes, the changes older than the last observation are
+     * only dropped when written, and reported as applied.
+     *
+     * @param changes the state changes, in the order they were reported
+     * @return a future completed with the result of each change, in the same order, once the changes are acknowledged
+     */
+    public CompletableFuture<List<ParkingSpotStateResultDTO>> changeStates(List<ParkingSpotStateChange> changes) {
+        log.debug("Request to change the state of {} ParkingSpots", changes.size());
+        List<Status> statuses = new ArrayList<>(changes.size());
+        Map<Long, ParkingSpotStateChange> latestChanges = new HashMap<>();
+        changes.forEach(change -> latestChanges.merge(change.getSpotId(), change, ParkingSpotStateChange::latest));
+        Map<Long, ParkingSpotStateChange> writes = new LinkedHashMap<>();
+        Set<Long> untracked = new HashSet<>();
+        for (ParkingSpotStateChange change : changes) {
+            if (latestChanges.get(change.getSpotId()) != change) {
+                statuses.add(Status.STALE);
+                continue;
+            }
+            if (occupancyEngine.isReady() && occupancyEngine.getState(change.getSpotId()) == OccupancyEngine.ABSENT) {
+                statuses.add(Status.NOT_FOUND);
+                continue;
+            }
+            Transition transition = prepareTransition(change.getSpotId(), change.isFree());
+            if (transition == Transition.UNCHANGED) {
+                statuses.add(Status.UNCHANGED);
+                continue;
+            }
+            if (transition == Transition.UNTRACKED) {
+                untracked.add(change.getSpotId());
+            }
+            writes.put(change.getSpotId(), change);
+            statuses.add(Status.APPLIED);
+        }
+        Set<Long> unwritten = new HashSet<>();
+        CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+        if (parkingSpotGroupCommitter.isEnabled()) {
+            acknowledged = CompletableFuture.allOf(writes.values().stream()
+                .map(parkingSpotGroupCommitter::submit)
+                .toArray(CompletableFuture[]::new));
+        } else if (parkingSpotWriteBehindQueue.isEnabled()) {
+            writes.values().forEach(parkingSpotWriteBehindQueue::enqueue);
+        } else {
+            List<ParkingSpotStateChange> batch = new ArrayList<>(Math.min(writes.size(), ingestionBatchSize));
+            for (ParkingSpotStateChange change : writes.values()) {
+                batch.add(change);
+                if (batch.size() == ingestionBatchSize) {
+                    unwritten.addAll(writeStates(batch));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                unwritten.addAll(writeStates(batch));
+            }
+        }
+        // the parkingSpots not written either do not exist, or have a newer observation
+        Map<Long, Boolean> stale = parkingSpotStateJdbcRepository.findStates(unwritten);
+        stale.forEach(occupancyEngine::update);
+        if (!parkingSpotGroupCommitter.isEnabled()) {
+            writes.values().stream()
+                .filter(change -> untracked.contains(change.getSpotId()) && !unwritten.contains(change.getSpotId()))
+                .forEach(change -> occupancyEngine.update(change.getSpotId(), change.isFree()));
+        }
+        return acknowledged.thenApply(ignored -> {
+            List<ParkingSpotStateResultDTO> results = new ArrayList<>(changes.size());
+            for (int i = 0; i < changes.size(); i++) {
+                Long spotId = changes.get(i).getSpotId();
+                Status status = statuses.get(i);
+                if (status == Status.APPLIED && unwritten.contains(spotId)) {
+                    status = stale.containsKey(spotId) ? Status.STALE : Status.NOT_FOUND;
+                }
+                results.add(new ParkingSpotStateResultDTO(spotId, status));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Make the transition of a parkingSpot in the {@link OccupancyEngine} before its change is written. In group-commit
+     * mode the transition is only checked, as the {@link ParkingSpotGroupCommitter} makes it once the change is
+     * committed, like the transactions do on commit.
+     */
+    private Transition prepareTransition(Long id, boolean isFree) {
+        if (!parkingSpotGroupCommitter.isEnabled()) {
+            return occupancyEngine.transition(id, isFree);
+        }
+        int state = occupancyEngine.getState(id);
+        if (state == OccupancyEngine.ABSENT) {
+            return Transition.UNTRACKED;
+        }
+        return state == (isFree ? OccupancyEngine.FREE : OccupancyEngine.HELD) ? Transition.UNCHANGED : Transition.APPLIED;
+    }
+
+    /**
+     * @return the ids of the parkingSpots of the batch which were not written, as they do not exist or have a newer
+     * observation
+     */
+    private List<Long> writeStates(List<ParkingSpotStateChange> batch) {
+        int[] updated = parkingSpotStateJdbcRepository.updateStates(batch);
+        List<Long> unwritten = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                unwritten.add(batch.get(i).getSpotId());
+            }
+        }
+        return unwritten;
+    }
+}
@@ -0,0 +1,19 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for the free parkingSpot assigned to an arriving driver.
+ */
+@Value
+public class ParkingSpotAssignmentDTO implements Serializable {
+
+    Long spotId;
+
+    String assignedTo;
+
+    Instant assignedAt;
+}
@@ -0,0 +1,23 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A DTO for the parkingSpots changed and deleted since a watermark, with the watermark to ask the next changes from,
+ * and whether more changes up to now are to be asked right away.
+ */
+@Value
+public class ParkingSpotChangesDTO implements Serializable {
+
+    List<ParkingSpotDTO> changed;
+
+    List<Long> deleted;
+
+    Instant watermark;
+
+    boolean more;
+}
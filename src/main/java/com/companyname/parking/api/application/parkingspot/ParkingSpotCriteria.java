@@ -1,6 +1,8 @@
 package com.companyname.parking.api.application.parkingspot;
 
 import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.application.base.filter.InstantFilter;
+import com.companyname.parking.api.application.base.filter.IntegerFilter;
 import com.companyname.parking.api.application.base.filter.LongFilter;
 import com.companyname.parking.api.application.base.filter.StringFilter;
 import lombok.Data;
@@ -27,4 +29,10 @@ public class ParkingSpotCriteria implements Serializable {
     private StringFilter name;
 
     private BooleanFilter isFree;
+
+    private LongFilter zoneId;
+
+    private IntegerFilter level;
+
+    private InstantFilter lastModifiedDate;
 }
@@ -8,6 +8,7 @@ import lombok.experimental.FieldDefaults;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -20,6 +21,12 @@ public class ParkingSpotDTO implements Serializable {
     Long id;
     @NotEmpty String name;
     boolean isFree;
+    Long version;
     @NotNull Long ownedAccountId;
     String ownedAccountLogin;
+    Long zoneId;
+    Instant reservedUntil;
+    String assignedTo;
+    Double x;
+    Double y;
 }
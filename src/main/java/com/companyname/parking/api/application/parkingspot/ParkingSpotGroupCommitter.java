@@ -0,0 +1,183 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group-commit executor for parking spot state changes.
+ * <p>
+ * Changes submitted within {@code application.parking-spots.group-commit.window-ms} of the first pending one are
+ * written in a single transaction, as one JDBC batch. The future returned to each submitter completes only once
+ * that shared transaction has committed, so acknowledgements stay durable while the number of commits drops. The
+ * {@link OccupancyEngine} is only updated then, so it never counts a change which is not committed.
+ * <p>
+ * The commits run on the {@code groupCommitExecutor}, which drains the pending changes on shutdown.
+ */
+@Service
+public class ParkingSpotGroupCommitter {
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotGroupCommitter.class);
+
+    private final ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final AsyncTaskExecutor groupCommitExecutor;
+
+    private final ApplicationProperties.ParkingSpots.GroupCommit properties;
+
+    private final BlockingQueue<PendingCommit> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running = false;
+
+    private Future<?> committer;
+
+    public ParkingSpotGroupCommitter(ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository, OccupancyEngine occupancyEngine,
+                                     @Qualifier("groupCommitExecutor") AsyncTaskExecutor groupCommitExecutor,
+                                     ApplicationProperties applicationProperties) {
+        this.parkingSpotStateJdbcRepository = parkingSpotStateJdbcRepository;
+        this.occupancyEngine = occupancyEngine;
+        this.groupCommitExecutor = groupCommitExecutor;
+        this.properties = applicationProperties.getParkingSpots().getGroupCommit();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        committer = groupCommitExecutor.submit(this::run);
+        log.info("Parking spot group commit started, window of {} ms", properties.getWindowMs());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (committer == null) {
+            return;
+        }
+        // not interrupted, an interrupt would close the H2 file channel in the middle of a commit
+        running = false;
+        try {
+            committer.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            log.error("Parking spot group commit failed", e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Parking spot group commit did not stop within 10 seconds");
+        }
+        List<PendingCommit> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(pendingCommit -> pendingCommit.future.completeExceptionally(
+            new IllegalStateException("Parking spot group commit stopped before committing the change")));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Submit a state change to the next group commit.
+     *
+     * @param change the state change to write
+     * @return a future completed once the change is committed, or completed exceptionally if the commit failed
+     */
+    public CompletableFuture<Void> submit(ParkingSpotStateChange change) {
+        PendingCommit pendingCommit = new PendingCommit(change);
+        if (!running) {
+            pendingCommit.future.completeExceptionally(new IllegalStateException("Parking spot group commit is not running"));
+            return pendingCommit.future;
+        }
+        queue.add(pendingCommit);
+        return pendingCommit.future;
+    }
+
+    private void run() {
+        int maxBatchSize = Math.max(1, properties.getMaxBatchSize());
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(properties.getWindowMs());
+        List<PendingCommit> group = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingCommit first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < maxBatchSize) {
+                    PendingCommit next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            commit(group);
+            group.clear();
+        }
+        // drain what was submitted before shutdown
+        queue.drainTo(group);
+        if (!group.isEmpty()) {
+            commit(group);
+        }
+    }
+
+    private void commit(List<PendingCommit> group) {
+        Map<Long, ParkingSpotStateChange> latestChanges = new LinkedHashMap<>();
+        group.forEach(pendingCommit ->
+            latestChanges.merge(pendingCommit.change.getSpotId(), pendingCommit.change, ParkingSpotStateChange::latest));
+        List<ParkingSpotStateChange> writes = new ArrayList<>(latestChanges.values());
+        int[] updated;
+        try {
+            updated = parkingSpotStateJdbcRepository.updateStates(writes);
+        } catch (RuntimeException e) {
+            log.error("Group commit of {} parking spot state changes failed", group.size(), e);
+            group.forEach(pendingCommit -> pendingCommit.future.completeExceptionally(e));
+            return;
+        }
+        log.debug("Group committed {} parking spot state changes", group.size());
+        // the parking spots not updated do not exist, or have a newer observation
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                occupancyEngine.update(writes.get(i).getSpotId(), writes.get(i).isFree());
+            }
+        }
+        group.forEach(pendingCommit -> pendingCommit.future.complete(null));
+    }
+
+    private static final class PendingCommit {
+
+        private final ParkingSpotStateChange change;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingCommit(ParkingSpotStateChange change) {
+            this.change = change;
+        }
+    }
+}
@@ -2,21 +2,27 @@ package com.companyname.parking.api.application.parkingspot;
 
 import com.companyname.parking.api.application.base.EntityMapper;
 import com.companyname.parking.api.application.user.UserMapperResolver;
+import com.companyname.parking.api.application.zone.ZoneMapper;
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotView;
 import com.companyname.parking.api.domain.user.User;
 import org.mapstruct.*;
 
 /**
  * Mapper for the entity ParkingSpot and its DTO ParkingSpotDTO.
  */
-@Mapper(componentModel = "spring", uses = { UserMapperResolver.class })
+@Mapper(componentModel = "spring", uses = { UserMapperResolver.class, ZoneMapper.class })
 public interface ParkingSpotMapper extends EntityMapper<ParkingSpotDTO, ParkingSpot> {
 
     @Mapping(source = "ownedAccount.id", target = "ownedAccountId")
     @Mapping(source = "ownedAccount.login", target = "ownedAccountLogin")
+    @Mapping(source = "zone.id", target = "zoneId")
     ParkingSpotDTO toDto(ParkingSpot parkingSpot);
 
+    ParkingSpotDTO toDto(ParkingSpotView parkingSpotView);
+
     @Mapping(source = "ownedAccountId", target = "ownedAccount")
+    @Mapping(source = "zoneId", target = "zone")
     ParkingSpot toEntity(ParkingSpotDTO parkingSpotDTO);
 
     User map(Long value);
@@ -0,0 +1,19 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for a freed parkingSpot offered to the head of the waitlist, held for them until it expires.
+ */
+@Value
+public class ParkingSpotOfferDTO implements Serializable {
+
+    Long spotId;
+
+    String login;
+
+    Instant expiresAt;
+}
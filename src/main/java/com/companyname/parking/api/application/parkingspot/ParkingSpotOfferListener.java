@@ -0,0 +1,21 @@
+package com.companyname.parking.api.application.parkingspot;
+
+/**
+ * Listener notified by the {@link ParkingSpotWaitlistService} of the offers made to the users of the waitlist.
+ */
+public interface ParkingSpotOfferListener {
+
+    /**
+     * Called once a parkingSpot is held for the user of the offer.
+     *
+     * @param offer the offer
+     */
+    void offered(ParkingSpotOfferDTO offer);
+
+    /**
+     * Called once an offer which was not accepted ends, because it expired, was declined or its parkingSpot changed.
+     *
+     * @param offer the offer
+     */
+    void withdrawn(ParkingSpotOfferDTO offer);
+}
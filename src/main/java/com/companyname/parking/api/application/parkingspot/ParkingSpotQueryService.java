@@ -1,24 +1,48 @@
 package com.companyname.parking.api.application.parkingspot;
 
+import com.companyname.parking.api.application.base.CountEstimator;
 import com.companyname.parking.api.application.base.QueryService;
+import com.companyname.parking.api.application.base.ShapedSpecification;
+import com.companyname.parking.api.application.base.filter.InstantFilter;
+import com.companyname.parking.api.application.base.filter.LongFilter;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.domain.audit.AbstractAuditingEntity_;
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotView;
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot_;
+import com.companyname.parking.api.domain.zone.Zone_;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotTombstoneJdbcRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.criteria.JoinType;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for executing complex queries for ParkingSpot entities in the database.
  * The main input is a {@link ParkingSpotCriteria} which gets converted to {@link Specification},
- * in a way that all the filters must apply.
+ * in a way that all the filters must apply. The matching parkingSpots are read as {@link ParkingSpotView}s, by one
+ * query selecting only the columns of the {@link ParkingSpotDTO}, rather than as entities each loading their owned account.
+ * The filters make a {@link ShapedSpecification}, so the query of each set of filters is only rendered once, whatever
+ * their values.
  * It returns a {@link List} of {@link ParkingSpotDTO} or a {@link Page} of {@link ParkingSpotDTO} which fulfills the criteria.
  */
 @Service
@@ -31,9 +55,33 @@ public class ParkingSpotQueryService extends QueryService<ParkingSpot> {
 
     private final ParkingSpotMapper parkingSpotMapper;
 
-    public ParkingSpotQueryService(ParkingSpotRepository parkingSpotRepository, ParkingSpotMapper parkingSpotMapper) {
+    private final OccupancyEngine occupancyEngine;
+
+    private final ParkingSpotTombstoneJdbcRepository parkingSpotTombstoneJdbcRepository;
+
+    private final long changesSettleMs;
+
+    private final int tombstoneRetentionDays;
+
+    private final int changesMaxPageSize;
+
+    private final CountEstimator<ParkingSpotCriteria> countEstimator;
+
+    private final int exportFetchSize;
+
+    public ParkingSpotQueryService(ParkingSpotRepository parkingSpotRepository, ParkingSpotMapper parkingSpotMapper,
+                                   OccupancyEngine occupancyEngine, ParkingSpotTombstoneJdbcRepository parkingSpotTombstoneJdbcRepository,
+                                   ApplicationProperties applicationProperties) {
         this.parkingSpotRepository = parkingSpotRepository;
         this.parkingSpotMapper = parkingSpotMapper;
+        this.occupancyEngine = occupancyEngine;
+        this.parkingSpotTombstoneJdbcRepository = parkingSpotTombstoneJdbcRepository;
+        this.changesSettleMs = applicationProperties.getParkingSpots().getChanges().getSettleMs();
+        this.tombstoneRetentionDays = applicationProperties.getParkingSpots().getChanges().getTombstoneRetentionDays();
+        this.changesMaxPageSize = Math.max(1, applicationProperties.getParkingSpots().getChanges().getMaxPageSize());
+        this.countEstimator = new CountEstimator<>(applicationProperties.getPagination().getCountEstimateTtlMs(),
+            applicationProperties.getPagination().getCountEstimateMaxEntries());
+        this.exportFetchSize = applicationProperties.getParkingSpots().getExport().getFetchSize();
     }
 
     /**
@@ -45,7 +93,9 @@ public class ParkingSpotQueryService extends QueryService<ParkingSpot> {
     public List<ParkingSpotDTO> findByCriteria(ParkingSpotCriteria criteria) {
         log.debug("find by criteria : {}", criteria);
         final Specification<ParkingSpot> specification = createSpecification(criteria);
-        return parkingSpotMapper.toDto(parkingSpotRepository.findAll(specification));
+        return parkingSpotRepository.findAllViews(specification, Sort.unsorted()).stream()
+            .map(parkingSpotMapper::toDto)
+            .collect(Collectors.toList());
     }
 
     /**
@@ -58,38 +108,180 @@ public class ParkingSpotQueryService extends QueryService<ParkingSpot> {
     public Page<ParkingSpotDTO> findByCriteria(ParkingSpotCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<ParkingSpot> specification = createSpecification(criteria);
-        return parkingSpotRepository.findAll(specification, page)
+        return parkingSpotRepository.findAllViews(specification, page)
             .map(parkingSpotMapper::toDto);
     }
 
     /**
-     * Return the number of matching entities in the database
+     * Return a {@link Slice} of {@link ParkingSpotDTO} which matches the criteria from the database, without counting them.
      * @param criteria The object which holds all the filters, which the entities should match.
-     * @return the number of matching entities.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ParkingSpotDTO> findSliceByCriteria(ParkingSpotCriteria criteria, Pageable page) {
+        log.debug("find slice by criteria : {}, page: {}", criteria, page);
+        final Specification<ParkingSpot> specification = createSpecification(criteria);
+        return parkingSpotRepository.findViewSlice(specification, page)
+            .map(parkingSpotMapper::toDto);
+    }
+
+    /**
+     * Return a {@link Slice} of {@link ParkingSpotDTO} which matches the criteria from the database, ordered by id and
+     * starting after an id, so the page is read from the primary key index however deep it is, and is not counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param afterId The id after which the page starts, or null for the first page.
+     * @param size The size of the page.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ParkingSpotDTO> findByCriteriaAfter(ParkingSpotCriteria criteria, Long afterId, int size) {
+        log.debug("find by criteria : {}, after: {}, size: {}", criteria, afterId, size);
+        ShapedSpecification<ParkingSpot> specification = createSpecification(criteria);
+        if (afterId != null) {
+            specification = buildShapedSpecification(specification, "after", new LongFilter().setGreaterThan(afterId),
+                root -> root.get(ParkingSpot_.id));
+        }
+        return parkingSpotRepository.findViewSlice(specification, PageRequest.of(0, size, Sort.by(ParkingSpot_.ID)))
+            .map(parkingSpotMapper::toDto);
+    }
+
+    /**
+     * Pass every {@link ParkingSpotDTO} which matches the criteria, ordered by id, to a consumer, as they are read from
+     * a database cursor, so the memory used stays the same however many parkingSpots there are.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param consumer The consumer of the matching entities, called in the transaction reading them.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(ParkingSpotCriteria criteria, Consumer<ParkingSpotDTO> consumer) {
+        log.debug("export by criteria : {}", criteria);
+        final Specification<ParkingSpot> specification = createSpecification(criteria);
+        try (Stream<ParkingSpotView> views = parkingSpotRepository.streamAllViews(specification, Sort.by(ParkingSpot_.ID), exportFetchSize)) {
+            views.map(parkingSpotMapper::toDto).forEach(consumer);
+        }
+    }
+
+    /**
+     * Return the parkingSpots matching the criteria which changed since a watermark, and the ids of the parkingSpots
+     * deleted since, up to a new watermark. The new watermark lags a settle period behind now, so a change whose
+     * transaction is still committing is returned by the next call rather than skipped. A parkingSpot deleted since
+     * the watermark is reported whatever the criteria.
+     * <p>
+     * At most a limit of changes and deletions are returned, the new watermark being then the time of the last one,
+     * and more changes are to be asked right away. The changes made at the same time as the last one are all returned,
+     * so a page exceeds the limit by the changes sharing its watermark.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param since The watermark returned by the previous call.
+     * @param limit The maximum number of changes and deletions, capped by {@code max-page-size}, or null for the cap.
+     * @return the changes, or empty if the watermark is older than the retained tombstones.
      */
     @Transactional(readOnly = true)
+    public Optional<ParkingSpotChangesDTO> findChanges(ParkingSpotCriteria criteria, Instant since, Integer limit) {
+        log.debug("find changes by criteria : {}, since: {}, limit: {}", criteria, since, limit);
+        Instant now = Instant.now();
+        if (since.isBefore(now.minus(tombstoneRetentionDays, ChronoUnit.DAYS))) {
+            return Optional.empty();
+        }
+        Instant watermark = now.minusMillis(changesSettleMs);
+        if (!since.isBefore(watermark)) {
+            return Optional.of(new ParkingSpotChangesDTO(Collections.emptyList(), Collections.emptyList(), since, false));
+        }
+        int pageSize = limit == null ? changesMaxPageSize : Math.max(1, Math.min(limit, changesMaxPageSize));
+        // the times of the first changes only, one more than a page telling if there are more
+        List<Instant> changeTimes = parkingSpotRepository.findLastModifiedDates(
+            createChangesSpecification(criteria, since, watermark), pageSize + 1);
+        List<Instant> deletionTimes = parkingSpotTombstoneJdbcRepository.findDeletionTimes(since, watermark, pageSize + 1);
+        Instant until = watermark;
+        if (changeTimes.size() + deletionTimes.size() > pageSize) {
+            until = Stream.concat(changeTimes.stream(), deletionTimes.stream())
+                .sorted()
+                .skip(pageSize - 1L)
+                .findFirst()
+                .orElse(watermark);
+        }
+        List<ParkingSpotDTO> changed = parkingSpotRepository.findAllViews(createChangesSpecification(criteria, since, until),
+            Sort.by(AbstractAuditingEntity_.LAST_MODIFIED_DATE, ParkingSpot_.ID)).stream()
+            .map(parkingSpotMapper::toDto)
+            .collect(Collectors.toList());
+        List<Long> deleted = parkingSpotTombstoneJdbcRepository.findDeletedSpotIds(since, until);
+        return Optional.of(new ParkingSpotChangesDTO(changed, deleted, until, until.isBefore(watermark)));
+    }
+
+    /**
+     * Return the number of matching entities. Criteria filtering only on isFree are answered by the
+     * {@link OccupancyEngine} without a database round trip. The engine is per node: the changes made by other nodes
+     * are only counted once it is refreshed, see {@link OccupancyEngine#refresh()}.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the number of matching entities.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public long countByCriteria(ParkingSpotCriteria criteria) {
         log.debug("count by criteria : {}", criteria);
+        if (occupancyEngine.isReady() && isOccupancyOnly(criteria)) {
+            return occupancyEngine.count(criteria == null ? null : criteria.getIsFree());
+        }
         final Specification<ParkingSpot> specification = createSpecification(criteria);
-        return parkingSpotRepository.count(specification);
+        return parkingSpotRepository.countViews(specification);
     }
 
     /**
-     * Function to convert ParkingSpotCriteria to a {@link Specification}
+     * Return an estimate of the number of matching entities. Criteria filtering only on isFree are counted exactly by
+     * the {@link OccupancyEngine}, other criteria are counted by the database at most once per time to live.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the estimated number of matching entities.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public long estimateCountByCriteria(ParkingSpotCriteria criteria) {
+        log.debug("estimate count by criteria : {}", criteria);
+        if (occupancyEngine.isReady() && isOccupancyOnly(criteria)) {
+            return countByCriteria(criteria);
+        }
+        return countEstimator.estimate(criteria != null ? criteria : new ParkingSpotCriteria(), () -> countByCriteria(criteria));
+    }
+
+    /**
+     * @return true if the criteria does not filter on anything but isFree.
      */
-    private Specification<ParkingSpot> createSpecification(ParkingSpotCriteria criteria) {
-        Specification<ParkingSpot> specification = Specification.where(null);
+    private boolean isOccupancyOnly(ParkingSpotCriteria criteria) {
+        return criteria == null || (criteria.getId() == null && criteria.getName() == null
+            && criteria.getZoneId() == null && criteria.getLevel() == null && criteria.getLastModifiedDate() == null);
+    }
+
+    /**
+     * Function to convert ParkingSpotCriteria to a {@link ShapedSpecification}, to which more filters can be added
+     */
+    private ShapedSpecification<ParkingSpot> createSpecification(ParkingSpotCriteria criteria) {
+        ShapedSpecification<ParkingSpot> specification = ShapedSpecification.empty();
         if (criteria != null) {
             if (criteria.getId() != null) {
-                specification = specification.and(buildSpecification(criteria.getId(), ParkingSpot_.id));
+                specification = buildShapedSpecification(specification, "id", criteria.getId(), root -> root.get(ParkingSpot_.id));
             }
             if (criteria.getName() != null) {
-                specification = specification.and(buildStringSpecification(criteria.getName(), ParkingSpot_.name));
+                specification = buildShapedSpecification(specification, "name", criteria.getName(), root -> root.get(ParkingSpot_.name));
             }
             if (criteria.getIsFree() != null) {
-                specification = specification.and(buildSpecification(criteria.getIsFree(), ParkingSpot_.isFree));
+                specification = buildShapedSpecification(specification, "isFree", criteria.getIsFree(),
+                    root -> root.get(ParkingSpot_.isFree));
+            }
+            if (criteria.getZoneId() != null) {
+                specification = buildShapedSpecification(specification, "zoneId", criteria.getZoneId(),
+                    root -> root.join(ParkingSpot_.zone, JoinType.LEFT).get(Zone_.id));
+            }
+            if (criteria.getLevel() != null) {
+                specification = buildShapedSpecification(specification, "level", criteria.getLevel(),
+                    root -> root.join(ParkingSpot_.zone, JoinType.LEFT).get(Zone_.level));
+            }
+            if (criteria.getLastModifiedDate() != null) {
+                specification = buildShapedSpecification(specification, "lastModifiedDate", criteria.getLastModifiedDate(),
+                    root -> root.get(AbstractAuditingEntity_.lastModifiedDate));
             }
         }
         return specification;
     }
+
+    private Specification<ParkingSpot> createChangesSpecification(ParkingSpotCriteria criteria, Instant since, Instant until) {
+        return buildShapedSpecification(createSpecification(criteria), "changed",
+            new InstantFilter().setGreaterThan(since).setLessOrEqualThan(until),
+            root -> root.get(AbstractAuditingEntity_.lastModifiedDate));
+    }
 }
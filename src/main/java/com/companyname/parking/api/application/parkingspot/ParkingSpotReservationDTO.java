@@ -0,0 +1,17 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for the reservation of a parkingSpot, held until it expires.
+ */
+@Value
+public class ParkingSpotReservationDTO implements Serializable {
+
+    Long spotId;
+
+    Instant reservedUntil;
+}
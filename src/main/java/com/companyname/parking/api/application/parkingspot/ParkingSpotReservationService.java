@@ -0,0 +1,152 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.application.parkingspot.HierarchicalTimingWheel.Timeout;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotReservation;
+import com.companyname.parking.api.domain.user.UserConstants;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Service for the time-limited reservations of parking spots.
+ * <p>
+ * A reservation holds the spot of its owner until a given time, recorded on the spot so it survives a restart. Its
+ * expiry is tracked by a {@link HierarchicalTimingWheel} ticking every {@code application.parking-spots.reservations.tick-ms},
+ * not by polling the database. Once expired, the spot is freed by an update conditional on the reservation still
+ * being over in the database, so a reservation renewed in the meantime, maybe by another node, is kept. Freeing the
+ * spot before ends the reservation.
+ */
+@Service
+public class ParkingSpotReservationService implements OccupancyListener {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotReservationService.class);
+
+    private final ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    private final ParkingSpotRepository parkingSpotRepository;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final HierarchicalTimingWheel<Long> timingWheel;
+
+    private final ConcurrentMap<Long, Timeout<Long>> reservations = new ConcurrentHashMap<>();
+
+    public ParkingSpotReservationService(ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository, ParkingSpotRepository parkingSpotRepository,
+                                         OccupancyEngine occupancyEngine, ApplicationProperties applicationProperties) {
+        this.parkingSpotStateJdbcRepository = parkingSpotStateJdbcRepository;
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.occupancyEngine = occupancyEngine;
+        this.timingWheel = new HierarchicalTimingWheel<>(
+            Duration.ofMillis(applicationProperties.getParkingSpots().getReservations().getTickMs()), this::expire);
+    }
+
+    @PostConstruct
+    public void start() {
+        occupancyEngine.addListener(this);
+        timingWheel.start("parking-spot-reservations");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        occupancyEngine.removeListener(this);
+        timingWheel.stop();
+    }
+
+    /**
+     * Schedule the expiry of the reservations recorded before the application started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ParkingSpotReservation> recorded = parkingSpotStateJdbcRepository.findReservations();
+        recorded.forEach(reservation -> schedule(reservation.getSpotId(), reservation.getReservedUntil()));
+        log.info("Parking spot reservations loaded: {} reservations", recorded.size());
+    }
+
+    /**
+     * Hold own parkingSpot for a limited time, after which it goes back to free. Reserving it again replaces the
+     * previous reservation.
+     *
+     * @param ttl how long the spot is held
+     * @return the reservation, or empty if the current user owns no parkingSpot
+     */
+    public Optional<ParkingSpotReservationDTO> reserveOwnParkingSpot(Duration ttl) {
+        log.debug("Request to reserve own ParkingSpot for {}", ttl);
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (!login.isPresent()) {
+            return Optional.empty();
+        }
+        Instant now = Instant.now();
+        Instant reservedUntil = now.plus(ttl);
+        return parkingSpotRepository.findOwnedIdByLogin(login.get())
+            .filter(id -> parkingSpotStateJdbcRepository.updateReservation(id, reservedUntil, login.get(), now))
+            .map(id -> {
+                occupancyEngine.update(id, false);
+                schedule(id, reservedUntil);
+                return new ParkingSpotReservationDTO(id, reservedUntil);
+            });
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        if (state == OccupancyEngine.HELD) {
+            return;
+        }
+        Timeout<Long> timeout = reservations.remove(spotId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void schedule(Long spotId, Instant reservedUntil) {
+        Timeout<Long> timeout = timingWheel.schedule(spotId, Duration.between(Instant.now(), reservedUntil));
+        Timeout<Long> previous = reservations.put(spotId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void expire(List<Timeout<Long>> expired) {
+        Instant now = Instant.now();
+        List<Long> spotIds = new ArrayList<>(expired.size());
+        for (Timeout<Long> timeout : expired) {
+            // skip the reservations ended or replaced in the meantime
+            if (reservations.remove(timeout.getPayload(), timeout)) {
+                spotIds.add(timeout.getPayload());
+            }
+        }
+        if (spotIds.isEmpty()) {
+            return;
+        }
+        log.debug("Freeing {} parking spots with an expired reservation", spotIds.size());
+        int[] updated;
+        try {
+            updated = parkingSpotStateJdbcRepository.expireReservations(spotIds, UserConstants.SYSTEM_ACCOUNT, now);
+        } catch (RuntimeException e) {
+            log.error("Could not free {} parking spots with an expired reservation", spotIds.size(), e);
+            return;
+        }
+        for (int i = 0; i < spotIds.size(); i++) {
+            if (updated[i] > 0) {
+                occupancyEngine.update(spotIds.get(i), true);
+            }
+        }
+    }
+}
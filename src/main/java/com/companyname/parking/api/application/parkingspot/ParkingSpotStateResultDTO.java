@@ -0,0 +1,35 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * A DTO reporting the outcome of one state change of a bulk update.
+ */
+@Value
+public class ParkingSpotStateResultDTO implements Serializable {
+
+    Long spotId;
+
+    Status status;
+
+    public enum Status {
+        /**
+         * The state of the parking spot was changed.
+         */
+        APPLIED,
+        /**
+         * The parking spot already was in that state, nothing was written.
+         */
+        UNCHANGED,
+        /**
+         * A newer state of the parking spot was observed, nothing was written.
+         */
+        STALE,
+        /**
+         * There is no parking spot with that id.
+         */
+        NOT_FOUND
+    }
+}
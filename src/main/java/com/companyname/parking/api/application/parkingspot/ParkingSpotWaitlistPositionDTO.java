@@ -0,0 +1,17 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A DTO for the place of a user in the waitlist, 1 being the next one offered a freed parkingSpot.
+ */
+@Value
+public class ParkingSpotWaitlistPositionDTO implements Serializable {
+
+    int position;
+
+    Instant joinedAt;
+}
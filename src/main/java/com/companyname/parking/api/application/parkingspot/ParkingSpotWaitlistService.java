@@ -0,0 +1,526 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine.Transition;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.application.parkingspot.HierarchicalTimingWheel.Timeout;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.user.UserConstants;
+import com.companyname.parking.api.domain.waitlist.WaitlistEntry;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.waitlist.WaitlistJdbcRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service for the waitlist of the users waiting for a parking spot.
+ * <p>
+ * The waitlist is a concurrent skip list in memory, ordered by the time the users joined, so leaving it and getting a
+ * turn back are cheap. Every spot freed is offered to the head of the waitlist: it is held for them by a
+ * compare-and-set in the {@link OccupancyEngine}, recorded as a reservation, and pushed to the
+ * {@link ParkingSpotOfferListener}s. As every node loads the whole waitlist, the offer is claimed in the database, by
+ * deleting the entry of the user and reserving the spot only if it is still free, so neither is offered twice. An
+ * offer which is not accepted within {@code application.parking-spots.waitlist.offer-ttl-seconds}, expired by a
+ * {@link HierarchicalTimingWheel}, frees the spot again, which offers it to the next user. The joins and leaves are
+ * written to the database in batches every {@code application.parking-spots.waitlist.flush-interval-ms}, and the
+ * waitlist is read back on startup.
+ */
+@Service
+public class ParkingSpotWaitlistService implements OccupancyListener {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotWaitlistService.class);
+
+    private final WaitlistJdbcRepository waitlistJdbcRepository;
+
+    private final ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    private final ParkingSpotApplicationService parkingSpotApplicationService;
+
+    private final ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ApplicationProperties.ParkingSpots.Waitlist properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final HierarchicalTimingWheel<Long> timingWheel;
+
+    private static final Comparator<WaitlistEntry> JOIN_ORDER =
+        Comparator.comparing(WaitlistEntry::getJoinedAt).thenComparing(WaitlistEntry::getLogin);
+
+    private final NavigableSet<WaitlistEntry> queue = new ConcurrentSkipListSet<>(JOIN_ORDER);
+
+    // the join time of the last user who joined on this node, so the users joining within the same clock tick keep
+    // their order
+    private final AtomicReference<Instant> lastJoinedAt = new AtomicReference<>(Instant.EPOCH);
+
+    // the entries still waiting by login, an entry of the queue which is not is skipped when reaching its head
+    private final ConcurrentMap<String, WaitlistEntry> waiting = new ConcurrentHashMap<>();
+
+    // joins, and leaves with a null entry, not written yet
+    private final Queue<Map.Entry<String, WaitlistEntry>> unwritten = new ConcurrentLinkedQueue<>();
+
+    // guarded by this, the changes of a flush which failed
+    private final Map<String, WaitlistEntry> retried = new LinkedHashMap<>();
+
+    private final ConcurrentMap<Long, Offer> offers = new ConcurrentHashMap<>();
+
+    private final List<ParkingSpotOfferListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ExecutorService offering;
+
+    public ParkingSpotWaitlistService(WaitlistJdbcRepository waitlistJdbcRepository,
+                                      ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository,
+                                      ParkingSpotApplicationService parkingSpotApplicationService,
+                                      ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue, OccupancyEngine occupancyEngine,
+                                      PlatformTransactionManager transactionManager, ApplicationProperties applicationProperties) {
+        this.waitlistJdbcRepository = waitlistJdbcRepository;
+        this.parkingSpotStateJdbcRepository = parkingSpotStateJdbcRepository;
+        this.parkingSpotApplicationService = parkingSpotApplicationService;
+        this.parkingSpotWriteBehindQueue = parkingSpotWriteBehindQueue;
+        this.occupancyEngine = occupancyEngine;
+        this.properties = applicationProperties.getParkingSpots().getWaitlist();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.timingWheel = new HierarchicalTimingWheel<>(Duration.ofMillis(properties.getTickMs()), this::expire);
+    }
+
+    @PostConstruct
+    public void start() {
+        offering = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parking-spot-waitlist");
+            thread.setDaemon(true);
+            return thread;
+        });
+        occupancyEngine.addListener(this);
+        timingWheel.start("parking-spot-offers");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        occupancyEngine.removeListener(this);
+        offering.shutdownNow();
+        timingWheel.stop();
+        log.info("Draining {} pending waitlist changes", unwritten.size());
+        flush();
+    }
+
+    /**
+     * Read the waitlist back once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<WaitlistEntry> entries = waitlistJdbcRepository.findAll();
+        for (WaitlistEntry entry : entries) {
+            if (waiting.putIfAbsent(entry.getLogin(), entry) == null) {
+                queue.add(entry);
+            }
+        }
+        log.info("Waitlist loaded: {} users", entries.size());
+    }
+
+    /**
+     * Register a listener notified of the offers.
+     *
+     * @param listener the listener
+     */
+    public void addListener(ParkingSpotOfferListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ParkingSpotOfferListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Join the end of the waitlist, unless already in it.
+     *
+     * @param login the login of the user
+     * @return the position of the user in the waitlist, 0 if they were just taken off its head for an offer
+     */
+    public ParkingSpotWaitlistPositionDTO join(String login) {
+        log.debug("Request to join the waitlist : {}", login);
+        WaitlistEntry entry = new WaitlistEntry(login, lastJoinedAt.updateAndGet(last -> {
+            Instant now = Instant.now();
+            return now.isAfter(last) ? now : last.plusMillis(1);
+        }));
+        if (waiting.putIfAbsent(login, entry) == null) {
+            queue.add(entry);
+            unwritten.add(new AbstractMap.SimpleImmutableEntry<>(login, entry));
+        }
+        return getPosition(login).orElseGet(() -> new ParkingSpotWaitlistPositionDTO(0, entry.getJoinedAt()));
+    }
+
+    /**
+     * Leave the waitlist.
+     *
+     * @param login the login of the user
+     * @return false if the user was not in the waitlist
+     */
+    public boolean leave(String login) {
+        log.debug("Request to leave the waitlist : {}", login);
+        WaitlistEntry entry = waiting.remove(login);
+        if (entry == null) {
+            return false;
+        }
+        queue.remove(entry);
+        unwritten.add(new AbstractMap.SimpleImmutableEntry<>(login, null));
+        return true;
+    }
+
+    /**
+     * @param login the login of the user
+     * @return the position of the user in the waitlist, or empty if the user is not in it
+     */
+    public Optional<ParkingSpotWaitlistPositionDTO> getPosition(String login) {
+        WaitlistEntry entry = waiting.get(login);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        int position = 0;
+        for (WaitlistEntry queued : queue) {
+            if (waiting.get(queued.getLogin()) == queued) {
+                position++;
+            }
+            if (queued == entry) {
+                return Optional.of(new ParkingSpotWaitlistPositionDTO(position, entry.getJoinedAt()));
+            }
+        }
+        // taken off the head meanwhile
+        return Optional.empty();
+    }
+
+    /**
+     * @param login the login of the user
+     * @return the pending offer made to the user, if any
+     */
+    public Optional<ParkingSpotOfferDTO> getOffer(String login) {
+        return offers.values().stream()
+            .map(offer -> offer.dto)
+            .filter(dto -> dto.getLogin().equals(login))
+            .findFirst();
+    }
+
+    /**
+     * Accept an offer: the parkingSpot stays held, assigned to the user, and its reservation ends. The user releases
+     * it like any assigned parkingSpot, see {@link ParkingSpotApplicationService#releaseAssignedParkingSpot(Long)}.
+     *
+     * @param login  the login of the user
+     * @param spotId the id of the offered parkingSpot
+     * @return the accepted offer, or empty if there is no pending offer of that parkingSpot to the user, or if the
+     * parkingSpot was deleted meanwhile
+     */
+    public Optional<ParkingSpotOfferDTO> accept(String login, Long spotId) {
+        log.debug("Request to accept the offer of ParkingSpot {} : {}", spotId, login);
+        return end(login, spotId)
+            .filter(accepted -> parkingSpotStateJdbcRepository.endReservation(spotId, login, Instant.now()))
+            .map(accepted -> accepted.dto);
+    }
+
+    /**
+     * Decline an offer: the parkingSpot is freed, and offered to the next user.
+     *
+     * @param login  the login of the user
+     * @param spotId the id of the offered parkingSpot
+     * @return the declined offer, or empty if there is no pending offer of that parkingSpot to the user
+     */
+    public Optional<ParkingSpotOfferDTO> decline(String login, Long spotId) {
+        log.debug("Request to decline the offer of ParkingSpot {} : {}", spotId, login);
+        Optional<Offer> offer = end(login, spotId);
+        offer.ifPresent(declined -> {
+            notifyWithdrawn(declined.dto);
+            free(Collections.singletonList(new ParkingSpotStateChange(spotId, true, login, Instant.now())));
+        });
+        return offer.map(declined -> declined.dto);
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        if (state != OccupancyEngine.HELD) {
+            // freed or removed by someone else
+            Offer offer = offers.remove(spotId);
+            if (offer != null) {
+                offer.timeout.cancel();
+                notifyWithdrawn(offer.dto);
+            }
+        }
+        if (state == OccupancyEngine.FREE && !waiting.isEmpty()) {
+            try {
+                offering.execute(() -> offer(spotId));
+            } catch (RejectedExecutionException e) {
+                log.debug("Waitlist is stopped, parking spot {} is not offered", spotId);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.parking-spots.waitlist.flush-interval-ms:1000}")
+    public void flushUnwritten() {
+        if (!unwritten.isEmpty()) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the pending joins and leaves, coalesced to the latest change of each user, in batches of at most
+     * {@code batch-size} users. A batch which fails is retried by the next flush, under any newer change.
+     */
+    public synchronized void flush() {
+        Map<String, WaitlistEntry> changes = new LinkedHashMap<>(retried);
+        retried.clear();
+        for (Map.Entry<String, WaitlistEntry> change = unwritten.poll(); change != null; change = unwritten.poll()) {
+            changes.remove(change.getKey());
+            changes.put(change.getKey(), change.getValue());
+        }
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<String> logins = new ArrayList<>(Math.min(batchSize, changes.size()));
+        List<WaitlistEntry> entries = new ArrayList<>(Math.min(batchSize, changes.size()));
+        for (Map.Entry<String, WaitlistEntry> change : changes.entrySet()) {
+            logins.add(change.getKey());
+            if (change.getValue() != null) {
+                entries.add(change.getValue());
+            }
+            if (logins.size() == batchSize) {
+                write(logins, entries, changes);
+                logins.clear();
+                entries.clear();
+            }
+        }
+        if (!logins.isEmpty()) {
+            write(logins, entries, changes);
+        }
+    }
+
+    private void write(List<String> logins, List<WaitlistEntry> entries, Map<String, WaitlistEntry> changes) {
+        try {
+            waitlistJdbcRepository.replace(logins, entries);
+            log.debug("Flushed {} waitlist changes", logins.size());
+        } catch (DataAccessException e) {
+            log.error("Could not flush {} waitlist changes, they will be retried", logins.size(), e);
+            logins.forEach(login -> retried.put(login, changes.get(login)));
+        }
+    }
+
+    /**
+     * Offer a freed parkingSpot to the head of the waitlist. Only called by the offering thread.
+     * <p>
+     * The spot is held in the {@link OccupancyEngine} and its reservation written in a single transaction, so the
+     * transition is reverted if the reservation is not written, and the user taken off the head of the waitlist then
+     * gets their turn back.
+     */
+    private void offer(long spotId) {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Duration ttl = Duration.ofSeconds(properties.getOfferTtlSeconds());
+        Instant expiresAt = now.plus(ttl);
+        WaitlistEntry[] head = new WaitlistEntry[1];
+        boolean reserved;
+        try {
+            reserved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!reserve(spotId, expiresAt, now, head)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            }));
+        } catch (DataAccessException | TransactionException e) {
+            log.error("Could not offer parking spot {}, the user keeps their turn", spotId, e);
+            if (head[0] != null) {
+                rejoin(head[0]);
+            }
+            return;
+        }
+        if (!reserved) {
+            if (head[0] != null) {
+                // the spot could not be reserved, the user keeps their turn
+                rejoin(head[0]);
+                resync(spotId);
+            }
+            return;
+        }
+        if (parkingSpotWriteBehindQueue.isEnabled()) {
+            // replaces the pending write freeing the spot
+            parkingSpotWriteBehindQueue.enqueue(new ParkingSpotStateChange(spotId, false, UserConstants.SYSTEM_ACCOUNT, now));
+        }
+        Offer offer = new Offer(new ParkingSpotOfferDTO(spotId, head[0].getLogin(), expiresAt), timingWheel.schedule(spotId, ttl));
+        offers.put(spotId, offer);
+        log.debug("Offered parking spot {} to {} until {}", spotId, head[0].getLogin(), expiresAt);
+        for (ParkingSpotOfferListener listener : listeners) {
+            try {
+                listener.offered(offer.dto);
+            } catch (RuntimeException e) {
+                log.warn("Offer listener {} failed", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Hold a freed parkingSpot in the {@link OccupancyEngine} and reserve it for the head of the waitlist, taken off it.
+     * Runs in the transaction of the offer.
+     *
+     * @param head receives the entry taken off the head of the waitlist, if any
+     * @return false if the spot was not reserved, and the transaction has to be rolled back
+     */
+    private boolean reserve(long spotId, Instant expiresAt, Instant now, WaitlistEntry[] head) {
+        if (occupancyEngine.transition(spotId, false) != Transition.APPLIED) {
+            // taken meanwhile, or not tracked by the engine
+            return false;
+        }
+        for (head[0] = pollHead(); head[0] != null && !claim(head[0]); head[0] = pollHead()) {
+            log.debug("{} left the waitlist or was offered a parking spot by another node", head[0].getLogin());
+        }
+        if (head[0] == null) {
+            // everyone left meanwhile, the spot stays free
+            return false;
+        }
+        if (parkingSpotWriteBehindQueue.isEnabled()) {
+            // the write freeing the spot may still be pending, so it cannot be claimed in the database
+            return parkingSpotStateJdbcRepository.updateReservation(spotId, expiresAt, UserConstants.SYSTEM_ACCOUNT, now);
+        }
+        // false if deleted or taken by another node meanwhile
+        return parkingSpotStateJdbcRepository.claimReservation(spotId, expiresAt, UserConstants.SYSTEM_ACCOUNT, now);
+    }
+
+    /**
+     * Claim the entry of a user taken off the head of the waitlist, by deleting it in the database. A join not written
+     * yet is only known to this node, and is cancelled instead. Runs in the transaction of the offer.
+     *
+     * @return false if the user left, or was offered a parkingSpot by another node
+     */
+    private boolean claim(WaitlistEntry entry) {
+        if (waitlistJdbcRepository.claim(entry)) {
+            return true;
+        }
+        // not concurrent with a flush, which may be writing the join
+        synchronized (this) {
+            Map.Entry<String, WaitlistEntry> join = new AbstractMap.SimpleImmutableEntry<>(entry.getLogin(), entry);
+            if (entry.equals(retried.get(entry.getLogin())) || unwritten.contains(join)) {
+                unwritten.add(new AbstractMap.SimpleImmutableEntry<>(entry.getLogin(), null));
+                return true;
+            }
+            return waitlistJdbcRepository.claim(entry);
+        }
+    }
+
+    /**
+     * Align the state of a parkingSpot in the {@link OccupancyEngine} with the database.
+     */
+    private void resync(long spotId) {
+        Map<Long, Boolean> states = parkingSpotStateJdbcRepository.findStates(Collections.singletonList(spotId));
+        if (states.containsKey(spotId)) {
+            occupancyEngine.update(spotId, states.get(spotId));
+        } else {
+            occupancyEngine.remove(spotId);
+        }
+    }
+
+    private WaitlistEntry pollHead() {
+        for (WaitlistEntry entry = queue.pollFirst(); entry != null; entry = queue.pollFirst()) {
+            if (waiting.remove(entry.getLogin(), entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Put a user taken off the head of the waitlist back in it, at the position they had.
+     */
+    private void rejoin(WaitlistEntry entry) {
+        if (waiting.putIfAbsent(entry.getLogin(), entry) == null) {
+            queue.add(entry);
+            unwritten.add(new AbstractMap.SimpleImmutableEntry<>(entry.getLogin(), entry));
+        }
+    }
+
+    private Optional<Offer> end(String login, Long spotId) {
+        Offer offer = offers.get(spotId);
+        if (offer == null || !offer.dto.getLogin().equals(login) || !offers.remove(spotId, offer)) {
+            return Optional.empty();
+        }
+        offer.timeout.cancel();
+        return Optional.of(offer);
+    }
+
+    private void expire(List<Timeout<Long>> expired) {
+        Instant now = Instant.now();
+        List<ParkingSpotStateChange> changes = new ArrayList<>(expired.size());
+        for (Timeout<Long> timeout : expired) {
+            Offer offer = offers.get(timeout.getPayload());
+            // skip the offers ended meanwhile
+            if (offer != null && offer.timeout == timeout && offers.remove(timeout.getPayload(), offer)) {
+                notifyWithdrawn(offer.dto);
+                changes.add(new ParkingSpotStateChange(timeout.getPayload(), true, UserConstants.SYSTEM_ACCOUNT, now));
+            }
+        }
+        if (!changes.isEmpty()) {
+            log.debug("Freeing {} parking spots with an expired offer", changes.size());
+            free(changes);
+        }
+    }
+
+    private void free(List<ParkingSpotStateChange> changes) {
+        parkingSpotApplicationService.changeStates(changes)
+            .whenComplete((results, e) -> {
+                if (e != null) {
+                    log.error("Could not free {} offered parking spots", changes.size(), e);
+                }
+            });
+    }
+
+    private void notifyWithdrawn(ParkingSpotOfferDTO offer) {
+        for (ParkingSpotOfferListener listener : listeners) {
+            try {
+                listener.withdrawn(offer);
+            } catch (RuntimeException e) {
+                log.warn("Offer listener {} failed", listener, e);
+            }
+        }
+    }
+
+    private static final class Offer {
+
+        private final ParkingSpotOfferDTO dto;
+
+        private final Timeout<Long> timeout;
+
+        private Offer(ParkingSpotOfferDTO dto, Timeout<Long> timeout) {
+            this.dto = dto;
+            this.timeout = timeout;
+        }
+    }
+}
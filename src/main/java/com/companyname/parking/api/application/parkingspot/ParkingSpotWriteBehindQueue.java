@@ -0,0 +1,192 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind queue for parking spot state changes.
+ * <p>
+ * Pending changes are coalesced per parking spot, so only the latest state of a spot is written. They are flushed
+ * as JDBC batch updates every {@code application.parking-spots.write-behind.flush-interval-ms} or as soon as
+ * {@code batch-size} changes are pending, and drained when the application shuts down.
+ * <p>
+ * The batches bypass JPA: the last modification audit columns are written, but the entity listeners do not run and
+ * no audit revision is recorded. The {@link OccupancyEngine} is updated by the callers instead, and a change which
+ * updates no row, as the spot was deleted or observed later, has the state of its spot read back into the engine.
+ * <p>
+ * A batch which fails is retried after a backoff doubling from the flush interval up to {@code max-backoff-ms}. A
+ * change which failed {@code max-retries} times is dropped, and the state of its spot read back.
+ */
+@Service
+public class ParkingSpotWriteBehindQueue {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotWriteBehindQueue.class);
+
+    private final ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    private final ApplicationProperties.ParkingSpots.WriteBehind properties;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final TaskExecutor taskExecutor;
+
+    private final ConcurrentMap<Long, ParkingSpotStateChange> pending = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // guarded by this, the failed writes of the spots whose change is pending again
+    private final Map<Long, Integer> failures = new HashMap<>();
+
+    // guarded by this, the batches which failed in a row, and the System.nanoTime() before which none is retried
+    private int failedBatches = 0;
+
+    private long retryAt = 0;
+
+    public ParkingSpotWriteBehindQueue(ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository,
+                                       OccupancyEngine occupancyEngine, @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                                       ApplicationProperties applicationProperties) {
+        this.parkingSpotStateJdbcRepository = parkingSpotStateJdbcRepository;
+        this.occupancyEngine = occupancyEngine;
+        this.taskExecutor = taskExecutor;
+        this.properties = applicationProperties.getParkingSpots().getWriteBehind();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queue a state change, replacing any change of the same spot which has not been written yet, unless that one was
+     * observed later. Once a full batch
+     * is pending, it is flushed without waiting for the next interval.
+     *
+     * @param change the state change to write
+     */
+    public void enqueue(ParkingSpotStateChange change) {
+        pending.merge(change.getSpotId(), change, ParkingSpotStateChange::latest);
+        if (pending.size() >= Math.max(1, properties.getBatchSize()) && flushRequested.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.parking-spots.write-behind.flush-interval-ms:100}")
+    public void flushPending() {
+        if (!pending.isEmpty()) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void drain() {
+        log.info("Draining {} pending parking spot state changes", pending.size());
+        retryAt = 0;
+        flush();
+    }
+
+    /**
+     * Write the pending changes, one batch of at most {@code batch-size} changes at a time, unless a failed batch is
+     * backing off. A batch which fails is queued again, unless a newer change of the same spot arrived meanwhile.
+     */
+    public synchronized void flush() {
+        if (failedBatches > 0 && System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        int batchSize = Math.max(1, properties.getBatchSize());
+        List<ParkingSpotStateChange> batch;
+        do {
+            batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Long> spotIds = pending.keySet().iterator();
+            while (spotIds.hasNext() && batch.size() < batchSize) {
+                ParkingSpotStateChange change = pending.remove(spotIds.next());
+                if (change != null) {
+                    batch.add(change);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            int[] updated;
+            try {
+                updated = parkingSpotStateJdbcRepository.updateStates(batch);
+                log.debug("Flushed {} parking spot state changes", batch.size());
+            } catch (DataAccessException e) {
+                retry(batch, e);
+                return;
+            }
+            failedBatches = 0;
+            List<Long> unwritten = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                failures.remove(batch.get(i).getSpotId());
+                if (updated[i] == 0) {
+                    unwritten.add(batch.get(i).getSpotId());
+                }
+            }
+            resync(unwritten);
+        } while (batch.size() == batchSize);
+    }
+
+    private void retry(List<ParkingSpotStateChange> batch, DataAccessException e) {
+        failedBatches++;
+        long backoffMs = Math.min(Math.max(1, properties.getFlushIntervalMs()) << Math.min(failedBatches - 1, 20),
+            Math.max(1, properties.getMaxBackoffMs()));
+        retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        int maxRetries = Math.max(0, properties.getMaxRetries());
+        List<Long> dropped = new ArrayList<>();
+        for (ParkingSpotStateChange change : batch) {
+            if (failures.merge(change.getSpotId(), 1, Integer::sum) > maxRetries) {
+                // kept if a newer change arrived meanwhile, which gets its own retries
+                failures.remove(change.getSpotId());
+                dropped.add(change.getSpotId());
+            } else {
+                pending.merge(change.getSpotId(), change, (next, failed) -> ParkingSpotStateChange.latest(failed, next));
+            }
+        }
+        log.error("Could not flush {} parking spot state changes, retrying in {} ms, dropping the changes of spots {}",
+            batch.size(), backoffMs, dropped, e);
+        resync(dropped);
+    }
+
+    /**
+     * Read the state of parking spots whose change was not written back into the {@link OccupancyEngine}.
+     */
+    private void resync(List<Long> spotIds) {
+        if (spotIds.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Boolean> states = parkingSpotStateJdbcRepository.findStates(spotIds);
+            for (Long spotId : spotIds) {
+                if (states.containsKey(spotId)) {
+                    occupancyEngine.update(spotId, states.get(spotId));
+                } else {
+                    occupancyEngine.remove(spotId);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read back the state of parking spots {}, left to the next refresh", spotIds, e);
+        }
+    }
+}
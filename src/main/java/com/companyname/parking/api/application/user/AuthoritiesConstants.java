@@ -16,5 +16,7 @@ public final class AuthoritiesConstants {
 
     public static final String GATE = "ROLE_GATE";
 
+    public static final String SENSOR_GATEWAY = "ROLE_SENSOR_GATEWAY";
+
     public static final String ANONYMOUS = "ROLE_ANONYMOUS";
 }
@@ -1,19 +1,25 @@
 package com.companyname.parking.api.application.user;
 
+import com.companyname.parking.api.application.base.CountEstimator;
 import com.companyname.parking.api.domain.user.Authority;
 import com.companyname.parking.api.domain.user.UserConstants;
 import com.companyname.parking.api.domain.user.User;
 import com.companyname.parking.api.domain.user.UserDomainService;
+import com.companyname.parking.api.domain.user.User_;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.AuthorityRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.EmailAlreadyUsedException;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.InvalidPasswordException;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.LoginAlreadyUsedException;
 import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -46,11 +52,16 @@ public class UserService {
 
     private final UserDomainService userDomainService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository, UserDomainService userDomainService) {
+    // the users are only counted as a whole
+    private final CountEstimator<String> countEstimator;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository,
+                       UserDomainService userDomainService, ApplicationProperties applicationProperties) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.userDomainService = userDomainService;
+        this.countEstimator = new CountEstimator<>(applicationProperties.getPagination().getCountEstimateTtlMs(), 1);
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -225,6 +236,44 @@ public class UserService {
         return userRepository.findAllByLoginNot(pageable, UserConstants.ANONYMOUS_USER).map(UserDTO::new);
     }
 
+    /**
+     * Get a page of the users, ordered by id and starting after an id, so the page is read from the primary key index
+     * however deep it is, and is not counted.
+     *
+     * @param afterId the id after which the page starts, or null for the first page
+     * @param size    the size of the page
+     * @return the page of users
+     */
+    @Transactional(readOnly = true)
+    public Slice<UserDTO> getAllManagedUsersAfter(Long afterId, int size) {
+        return userRepository.findAllByIdGreaterThanAndLoginNot(afterId != null ? afterId : Long.MIN_VALUE,
+            UserConstants.ANONYMOUS_USER, PageRequest.of(0, size, Sort.by(User_.ID))).map(UserDTO::new);
+    }
+
+    /**
+     * Get a page of the users, without counting them.
+     *
+     * @param pageable the pagination information
+     * @return the page of users, telling if there is a next page
+     */
+    @Transactional(readOnly = true)
+    public Slice<UserDTO> getAllManagedUsersSlice(Pageable pageable) {
+        return userRepository.findSliceByLoginNot(UserConstants.ANONYMOUS_USER, pageable).map(UserDTO::new);
+    }
+
+    @Transactional(readOnly = true)
+    public long countManagedUsers() {
+        return userRepository.countByLoginNot(UserConstants.ANONYMOUS_USER);
+    }
+
+    /**
+     * @return the number of users, counted at most the count estimate time to live ago
+     */
+    @Transactional(readOnly = true)
+    public long estimateCountManagedUsers() {
+        return countEstimator.estimate(UserConstants.ANONYMOUS_USER, this::countManagedUsers);
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
         return userRepository.findOneWithAuthoritiesByLogin(login);
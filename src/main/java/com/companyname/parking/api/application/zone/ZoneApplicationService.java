@@ -0,0 +1,125 @@
+package com.companyname.parking.api.application.zone;
+
+import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.application.base.filter.LongFilter;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.ZoneOccupancy;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.domain.zone.Zone;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.zone.ZoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Service Implementation for managing Zone.
+ */
+@Service
+@Transactional
+public class ZoneApplicationService {
+
+    private final Logger log = LoggerFactory.getLogger(ZoneApplicationService.class);
+
+    private final ZoneRepository zoneRepository;
+
+    private final ZoneMapper zoneMapper;
+
+    private final ZoneOccupancy zoneOccupancy;
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ParkingSpotQueryService parkingSpotQueryService;
+
+    public ZoneApplicationService(ZoneRepository zoneRepository, ZoneMapper zoneMapper, ZoneOccupancy zoneOccupancy,
+                                  OccupancyEngine occupancyEngine, ParkingSpotQueryService parkingSpotQueryService) {
+        this.zoneRepository = zoneRepository;
+        this.zoneMapper = zoneMapper;
+        this.zoneOccupancy = zoneOccupancy;
+        this.occupancyEngine = occupancyEngine;
+        this.parkingSpotQueryService = parkingSpotQueryService;
+    }
+
+    /**
+     * Save a zone.
+     *
+     * @param zoneDTO the entity to save
+     * @return the persisted entity
+     */
+    public ZoneDTO save(ZoneDTO zoneDTO) {
+        log.debug("Request to save Zone : {}", zoneDTO);
+        Zone zone = zoneRepository.save(zoneMapper.toEntity(zoneDTO));
+        zoneOccupancy.register(zone.getId());
+        return zoneMapper.toDto(zone);
+    }
+
+    /**
+     * Get all the zones.
+     *
+     * @param pageable the pagination information
+     * @return the list of entities
+     */
+    @Transactional(readOnly = true)
+    public Page<ZoneDTO> findAll(Pageable pageable) {
+        log.debug("Request to get all Zones");
+        return zoneRepository.findAll(pageable)
+            .map(zoneMapper::toDto);
+    }
+
+    /**
+     * Get one zone by id.
+     *
+     * @param id the id of the entity
+     * @return the entity
+     */
+    @Transactional(readOnly = true)
+    public Optional<ZoneDTO> findOne(Long id) {
+        log.debug("Request to get Zone : {}", id);
+        return zoneRepository.findById(id)
+            .map(zoneMapper::toDto);
+    }
+
+    /**
+     * Delete the zone by id. Fails if parking spots still belong to it.
+     *
+     * @param id the id of the entity
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete Zone : {}", id);
+        zoneRepository.deleteById(id);
+        // flushed first, so the zone is only forgotten once no parking spot refers to it
+        zoneRepository.flush();
+        zoneOccupancy.unregister(id);
+    }
+
+    /**
+     * Count the parking spots of a zone. Answered from the {@link ZoneOccupancy} counters once the
+     * {@link OccupancyEngine} is ready, from the database before.
+     *
+     * @param id     the id of the zone
+     * @param isFree the filter on the free state of the spots, may be null
+     * @return the number of matching parking spots, or empty if the zone does not exist
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<Long> countParkingSpots(Long id, BooleanFilter isFree) {
+        log.debug("Request to count the ParkingSpots of Zone : {}", id);
+        if (occupancyEngine.isReady()) {
+            return zoneOccupancy.contains(id) ? Optional.of(occupancyEngine.countInZone(id, isFree)) : Optional.empty();
+        }
+        if (!zoneRepository.existsById(id)) {
+            return Optional.empty();
+        }
+        ParkingSpotCriteria criteria = new ParkingSpotCriteria();
+        LongFilter zoneId = new LongFilter();
+        zoneId.setEquals(id);
+        criteria.setZoneId(zoneId);
+        criteria.setIsFree(isFree);
+        return Optional.of(parkingSpotQueryService.countByCriteria(criteria));
+    }
+}
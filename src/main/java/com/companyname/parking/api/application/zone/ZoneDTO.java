@@ -0,0 +1,21 @@
+package com.companyname.parking.api.application.zone;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.constraints.NotEmpty;
+import java.io.Serializable;
+
+/**
+ * A DTO for the Zone entity.
+ */
+@Data
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ZoneDTO implements Serializable {
+    Long id;
+    @NotEmpty String name;
+    int level;
+}
@@ -0,0 +1,21 @@
+package com.companyname.parking.api.application.zone;
+
+import com.companyname.parking.api.application.base.EntityMapper;
+import com.companyname.parking.api.domain.zone.Zone;
+import org.mapstruct.Mapper;
+
+/**
+ * Mapper for the entity Zone and its DTO ZoneDTO.
+ */
+@Mapper(componentModel = "spring")
+public interface ZoneMapper extends EntityMapper<ZoneDTO, Zone> {
+
+    default Zone fromId(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Zone zone = new Zone();
+        zone.setId(id);
+        return zone;
+    }
+}
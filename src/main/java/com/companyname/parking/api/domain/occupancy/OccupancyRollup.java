@@ -0,0 +1,26 @@
+package com.companyname.parking.api.domain.occupancy;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * The free and occupied parking spot counts over one minute: their minimum, time-weighted average and maximum.
+ */
+@Value
+public class OccupancyRollup {
+
+    Instant bucketStart;
+
+    long freeMin;
+
+    double freeAvg;
+
+    long freeMax;
+
+    long occupiedMin;
+
+    double occupiedAvg;
+
+    long occupiedMax;
+}
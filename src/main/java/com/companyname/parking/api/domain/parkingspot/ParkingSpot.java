@@ -2,11 +2,13 @@ package com.companyname.parking.api.domain.parkingspot;
 
 import com.companyname.parking.api.domain.audit.AbstractAuditingEntity;
 import com.companyname.parking.api.domain.user.User;
+import com.companyname.parking.api.domain.zone.Zone;
 import lombok.*;
 import lombok.experimental.Accessors;
 import lombok.experimental.FieldDefaults;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Entity
 @Table(name = "parking_spot")
@@ -31,10 +33,32 @@ public class ParkingSpot extends AbstractAuditingEntity {
     @Column(name = "is_free", nullable = false)
     boolean isFree;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    long version;
+
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "owned_account_id", referencedColumnName = "id", nullable = false)
     private User ownedAccount;
 
+    @ManyToOne
+    @JoinColumn(name = "zone_id")
+    Zone zone;
+
+    // written by ParkingSpotStateJdbcRepository only
+    @Column(name = "reserved_until", insertable = false, updatable = false)
+    Instant reservedUntil;
+
+    // login of the driver the spot is assigned to, written by ParkingSpotStateJdbcRepository only
+    @Column(name = "assigned_to", insertable = false, updatable = false)
+    String assignedTo;
+
+    @Column(name = "x")
+    Double x;
+
+    @Column(name = "y")
+    Double y;
+
     public ParkingSpot freeUp() {
         return this.setFree(true);
     }
@@ -0,0 +1,16 @@
+package com.companyname.parking.api.domain.parkingspot;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A hold of a {@link ParkingSpot} which ends on its own: the spot goes back to free once the reservation expires.
+ */
+@Value
+public class ParkingSpotReservation {
+
+    Long spotId;
+
+    Instant reservedUntil;
+}
@@ -0,0 +1,67 @@
+package com.companyname.parking.api.domain.parkingspot;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A change of the free state of a {@link ParkingSpot}, made by an actor at a point in time.
+ * <p>
+ * A change reported by a sensor also carries the time its state was observed, and is only applied if it was observed
+ * after the last applied observation of the spot, so observations arriving out of order never overwrite newer ones.
+ * <p>
+ * A change holding a spot may also assign it to a driver, written with the state, and freeing a spot ends its
+ * assignment.
+ */
+@Value
+@AllArgsConstructor
+public class ParkingSpotStateChange {
+
+    Long spotId;
+
+    boolean isFree;
+
+    String actor;
+
+    // when the change was received, recorded as the last modification date
+    Instant timestamp;
+
+    // when the state was observed, or null if the change is not an observation
+    Instant observedAt;
+
+    // login of the driver a held spot is assigned to, or null to keep its assignment
+    String assignedTo;
+
+    public ParkingSpotStateChange(Long spotId, boolean isFree, String actor, Instant timestamp) {
+        this(spotId, isFree, actor, timestamp, null);
+    }
+
+    public ParkingSpotStateChange(Long spotId, boolean isFree, String actor, Instant timestamp, Instant observedAt) {
+        this(spotId, isFree, actor, timestamp, observedAt, null);
+    }
+
+    /**
+     * @return the change holding a spot and assigning it to a driver, who is recorded as the actor
+     */
+    public static ParkingSpotStateChange assign(Long spotId, String login, Instant timestamp) {
+        return new ParkingSpotStateChange(spotId, false, login, timestamp, null, login);
+    }
+
+    /**
+     * @return the latest of two changes of the same spot: the one observed last, or the second one if they were not
+     * both observed or were observed at the same time. A spot held by both keeps the assignment of the first one,
+     * unless the second one assigns it
+     */
+    public static ParkingSpotStateChange latest(ParkingSpotStateChange change, ParkingSpotStateChange next) {
+        ParkingSpotStateChange first = change;
+        if (change.observedAt != null && next.observedAt != null && change.observedAt.isAfter(next.observedAt)) {
+            first = next;
+            next = change;
+        }
+        if (!first.isFree && !next.isFree && next.assignedTo == null && first.assignedTo != null) {
+            return new ParkingSpotStateChange(next.spotId, false, next.actor, next.timestamp, next.observedAt, first.assignedTo);
+        }
+        return next;
+    }
+}
@@ -0,0 +1,14 @@
+package com.companyname.parking.api.domain.parkingspot;
+
+import lombok.Value;
+
+/**
+ * Version of a parking spot, with the login of its owned account, which changes without changing the version.
+ */
+@Value
+public class ParkingSpotVersion {
+
+    long version;
+
+    String ownedAccountLogin;
+}
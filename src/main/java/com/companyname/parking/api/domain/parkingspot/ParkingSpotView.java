@@ -0,0 +1,35 @@
+package com.companyname.parking.api.domain.parkingspot;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Read-only view of a parking spot, with the id and login of its owned account and the id of its zone instead of
+ * the associated entities, read by a single query.
+ */
+@Value
+public class ParkingSpotView {
+
+    Long id;
+
+    String name;
+
+    boolean isFree;
+
+    long version;
+
+    Long ownedAccountId;
+
+    String ownedAccountLogin;
+
+    Long zoneId;
+
+    Instant reservedUntil;
+
+    Double x;
+
+    Double y;
+
+    String assignedTo;
+}
@@ -0,0 +1,16 @@
+package com.companyname.parking.api.domain.waitlist;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A user waiting for a parking spot to be freed, served in the order they joined the waitlist.
+ */
+@Value
+public class WaitlistEntry {
+
+    String login;
+
+    Instant joinedAt;
+}
@@ -0,0 +1,35 @@
+package com.companyname.parking.api.domain.zone;
+
+import com.companyname.parking.api.domain.audit.AbstractAuditingEntity;
+import lombok.*;
+import lombok.experimental.Accessors;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.*;
+
+/**
+ * A zone of the facility, on a level. Parking spots may belong to one zone.
+ */
+@Entity
+@Table(name = "zone")
+@Data
+@NoArgsConstructor
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+@Accessors(chain = true)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class Zone extends AbstractAuditingEntity {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    Long id;
+
+    @Column(name = "name", nullable = false)
+    String name;
+
+    @Column(name = "level", nullable = false)
+    int level;
+}
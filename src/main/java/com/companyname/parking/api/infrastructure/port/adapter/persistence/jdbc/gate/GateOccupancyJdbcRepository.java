@@ -0,0 +1,68 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.gate;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JDBC repository for the counter of the spaces taken inside the facility, shared by the gates of every node.
+ * <p>
+ * The counter is a single row, seeded by the changelog from the number of held parking spots. The nodes take spaces
+ * from it in blocks and give back the ones they do not use, so it is not changed by every gate decision.
+ */
+@Repository
+public class GateOccupancyJdbcRepository {
+
+    private static final String FIND_VEHICLES_INSIDE_SQL = "select vehicles_inside from gate_occupancy where id = 1";
+
+    private static final String LOCK_VEHICLES_INSIDE_SQL = FIND_VEHICLES_INSIDE_SQL + " for update";
+
+    private static final String TAKE_SQL = "update gate_occupancy set vehicles_inside = vehicles_inside + ? where id = 1";
+
+    private static final String GIVE_BACK_SQL =
+        "update gate_occupancy set vehicles_inside = case when vehicles_inside > ? then vehicles_inside - ? else 0 end where id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GateOccupancyJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return the number of spaces taken, by the vehicles inside and the blocks held by the nodes
+     */
+    @Transactional(readOnly = true)
+    public long findVehiclesInside() {
+        return jdbcTemplate.queryForObject(FIND_VEHICLES_INSIDE_SQL, Long.class);
+    }
+
+    /**
+     * Take a block of spaces, at most half of the ones left but at least one, so a node does not hold the last
+     * spaces while the others are denied. Committed right away.
+     *
+     * @param capacity the number of vehicles the facility holds
+     * @param wanted   the number of spaces wanted
+     * @return the number of spaces taken, 0 if the facility is full
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long take(long capacity, long wanted) {
+        long left = capacity - jdbcTemplate.queryForObject(LOCK_VEHICLES_INSIDE_SQL, Long.class);
+        long taken = Math.min(wanted, Math.max(1, left / 2));
+        if (left <= 0 || taken <= 0) {
+            return 0;
+        }
+        jdbcTemplate.update(TAKE_SQL, taken);
+        return taken;
+    }
+
+    /**
+     * Give back spaces, never below none taken. Committed right away.
+     *
+     * @param spaces the number of spaces given back
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void giveBack(long spaces) {
+        jdbcTemplate.update(GIVE_BACK_SQL, spaces, spaces);
+    }
+}
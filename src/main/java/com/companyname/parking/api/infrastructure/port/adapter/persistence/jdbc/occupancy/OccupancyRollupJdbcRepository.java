@@ -0,0 +1,84 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.occupancy;
+
+import com.companyname.parking.api.domain.occupancy.OccupancyRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * JDBC repository for the per-minute {@link OccupancyRollup}s.
+ */
+@Repository
+public class OccupancyRollupJdbcRepository {
+
+    private static final String COLUMNS = "bucket_start, free_min, free_avg, free_max, occupied_min, occupied_avg, occupied_max";
+
+    private static final String UPDATE_SQL = "update occupancy_rollup set free_min = ?, free_avg = ?, free_max = ?, " +
+        "occupied_min = ?, occupied_avg = ?, occupied_max = ? where bucket_start = ?";
+
+    private static final String INSERT_SQL = "insert into occupancy_rollup (free_min, free_avg, free_max, " +
+        "occupied_min, occupied_avg, occupied_max, bucket_start) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String FIND_BETWEEN_SQL = "select " + COLUMNS + " from occupancy_rollup " +
+        "where bucket_start >= ? and bucket_start < ? order by bucket_start";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RowMapper<OccupancyRollup> rowMapper = (rs, rowNum) -> new OccupancyRollup(
+        rs.getTimestamp(1, utcCalendar()).toInstant(),
+        rs.getLong(2), rs.getDouble(3), rs.getLong(4),
+        rs.getLong(5), rs.getDouble(6), rs.getLong(7));
+
+    public OccupancyRollupJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Save a rollup, replacing the one of the same minute if any.
+     *
+     * @param rollup the rollup to save
+     */
+    @Transactional
+    public void save(OccupancyRollup rollup) {
+        if (jdbcTemplate.update(UPDATE_SQL, ps -> setParameters(ps, rollup)) == 0) {
+            jdbcTemplate.update(INSERT_SQL, ps -> setParameters(ps, rollup));
+        }
+    }
+
+    /**
+     * @param from the start of the first minute, inclusive
+     * @param to   the end, exclusive
+     * @return the rollups of the minutes in that range, in time order
+     */
+    @Transactional(readOnly = true)
+    public List<OccupancyRollup> findBetween(Instant from, Instant to) {
+        return jdbcTemplate.query(FIND_BETWEEN_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.from(from), utcCalendar());
+            ps.setTimestamp(2, Timestamp.from(to), utcCalendar());
+        }, rowMapper);
+    }
+
+    private static void setParameters(PreparedStatement ps, OccupancyRollup rollup) throws SQLException {
+        ps.setLong(1, rollup.getFreeMin());
+        ps.setDouble(2, rollup.getFreeAvg());
+        ps.setLong(3, rollup.getFreeMax());
+        ps.setLong(4, rollup.getOccupiedMin());
+        ps.setDouble(5, rollup.getOccupiedAvg());
+        ps.setLong(6, rollup.getOccupiedMax());
+        ps.setTimestamp(7, Timestamp.from(rollup.getBucketStart()), utcCalendar());
+    }
+
+    private static Calendar utcCalendar() {
+        // same zone as hibernate.jdbc.time_zone
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
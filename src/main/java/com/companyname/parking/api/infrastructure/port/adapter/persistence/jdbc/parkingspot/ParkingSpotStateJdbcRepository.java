@@ -0,0 +1,229 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot;
+
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotReservation;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC repository writing parking spot state changes as batch updates, bypassing the persistence context.
+ */
+@Repository
+public class ParkingSpotStateJdbcRepository {
+
+    // freeing a parking spot ends its reservation and assignment, holding it may assign it, and an observation only
+    // applies if it is newer than the last one
+    private static final String UPDATE_STATE_SQL =
+        "update parking_spot set is_free = ?, reserved_until = case when ? then null else reserved_until end, " +
+            "assigned_to = case when ? then null else coalesce(?, assigned_to) end, " +
+            "version = version + 1, last_modified_by = ?, last_modified_date = ?, observed_at = coalesce(?, observed_at) " +
+            "where id = ? and (cast(? as timestamp) is null or observed_at is null or observed_at < ?)";
+
+    private static final String COMPARE_AND_SET_STATE_SQL = UPDATE_STATE_SQL + " and version = ?";
+
+    private static final String UPDATE_RESERVATION_SQL =
+        "update parking_spot set is_free = false, reserved_until = ?, version = version + 1, last_modified_by = ?, last_modified_date = ? " +
+            "where id = ?";
+
+    // a spot taken in the meantime, maybe by another node, is not reserved
+    private static final String CLAIM_RESERVATION_SQL = UPDATE_RESERVATION_SQL + " and is_free = true";
+
+    private static final String END_RESERVATION_SQL =
+        "update parking_spot set reserved_until = null, assigned_to = ?, version = version + 1, last_modified_by = ?, " +
+            "last_modified_date = ? where id = ? and is_free = false";
+
+    // a reservation replaced or ended in the meantime, maybe by another node, is not expired
+    private static final String EXPIRE_RESERVATION_SQL =
+        "update parking_spot set is_free = true, reserved_until = null, assigned_to = null, version = version + 1, last_modified_by = ?, last_modified_date = ? " +
+            "where id = ? and reserved_until <= ?";
+
+    private static final String ASSIGN_SQL =
+        "update parking_spot set assigned_to = ? where id = ?";
+
+    private static final String FIND_RESERVATIONS_SQL =
+        "select id, reserved_until from parking_spot where reserved_until is not null";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ParkingSpotStateJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Write a state change in a single statement, only if the parking spot still has the expected version.
+     *
+     * @param change          the state change to write
+     * @param expectedVersion the version the parking spot had when its state was read
+     * @return false if the parking spot was changed or deleted since that version
+     */
+    @Transactional
+    public boolean compareAndSetState(ParkingSpotStateChange change, long expectedVersion) {
+        return jdbcTemplate.update(COMPARE_AND_SET_STATE_SQL, ps -> {
+            setStateParameters(ps, change);
+            ps.setLong(11, expectedVersion);
+        }) > 0;
+    }
+
+    /**
+     * Hold a parking spot until the given time.
+     *
+     * @param spotId        the id of the parking spot
+     * @param reservedUntil the end of the reservation
+     * @param actor         the login recorded as the modifier
+     * @param timestamp     the time of the change
+     * @return false if there is no parking spot with that id
+     */
+    @Transactional
+    public boolean updateReservation(Long spotId, Instant reservedUntil, String actor, Instant timestamp) {
+        return jdbcTemplate.update(UPDATE_RESERVATION_SQL, ps -> setReservationParameters(ps, spotId, reservedUntil, actor, timestamp)) > 0;
+    }
+
+    /**
+     * Hold a parking spot until the given time, only if it is free in the database.
+     *
+     * @param spotId        the id of the parking spot
+     * @param reservedUntil the end of the reservation
+     * @param actor         the login recorded as the modifier
+     * @param timestamp     the time of the change
+     * @return false if there is no free parking spot with that id
+     */
+    @Transactional
+    public boolean claimReservation(Long spotId, Instant reservedUntil, String actor, Instant timestamp) {
+        return jdbcTemplate.update(CLAIM_RESERVATION_SQL, ps -> setReservationParameters(ps, spotId, reservedUntil, actor, timestamp)) > 0;
+    }
+
+    /**
+     * End the reservation of a held parking spot, which then stays held, assigned to the given user until it is freed.
+     *
+     * @param spotId    the id of the parking spot
+     * @param login     the login of the user the spot is assigned to, recorded as the modifier
+     * @param timestamp the time of the change
+     * @return false if there is no held parking spot with that id
+     */
+    @Transactional
+    public boolean endReservation(Long spotId, String login, Instant timestamp) {
+        return jdbcTemplate.update(END_RESERVATION_SQL, ps -> {
+            ps.setString(1, login);
+            ps.setString(2, login);
+            ps.setTimestamp(3, Timestamp.from(timestamp), utcCalendar());
+            ps.setLong(4, spotId);
+        }) > 0;
+    }
+
+    /**
+     * Link a parking spot to the driver it is assigned to, until it is freed. The version is not changed, so this must
+     * run in the transaction which holds the spot and changes its version, e.g. through the persistence context.
+     *
+     * @param spotId the id of the parking spot
+     * @param login  the login of the driver
+     * @return false if there is no parking spot with that id
+     */
+    @Transactional
+    public boolean assign(Long spotId, String login) {
+        return jdbcTemplate.update(ASSIGN_SQL, login, spotId) > 0;
+    }
+
+    /**
+     * Free the given parking spots whose reservation is over, in a single transaction, as one JDBC batch.
+     *
+     * @param spotIds   the ids of the parking spots
+     * @param actor     the login recorded as the modifier
+     * @param timestamp the time of the change, the reservations ending later are kept
+     * @return the number of rows updated for each parking spot, 0 for one which is not reserved until then
+     */
+    @Transactional
+    public int[] expireReservations(List<Long> spotIds, String actor, Instant timestamp) {
+        if (spotIds.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(EXPIRE_RESERVATION_SQL, spotIds, spotIds.size(), (ps, spotId) -> {
+            ps.setString(1, actor);
+            ps.setTimestamp(2, Timestamp.from(timestamp), utcCalendar());
+            ps.setLong(3, spotId);
+            ps.setTimestamp(4, Timestamp.from(timestamp), utcCalendar());
+        })[0];
+    }
+
+    /**
+     * @return the reservations of all the reserved parking spots
+     */
+    @Transactional(readOnly = true)
+    public List<ParkingSpotReservation> findReservations() {
+        return jdbcTemplate.query(FIND_RESERVATIONS_SQL, (rs, rowNum) ->
+            new ParkingSpotReservation(rs.getLong(1), rs.getTimestamp(2, utcCalendar()).toInstant()));
+    }
+
+    /**
+     * @param spotIds the ids of parking spots
+     * @return the free state of the parking spots which exist, by id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Boolean> findStates(Collection<Long> spotIds) {
+        Map<Long, Boolean> states = new HashMap<>();
+        if (spotIds.isEmpty()) {
+            return states;
+        }
+        String sql = spotIds.stream().map(spotId -> "?")
+            .collect(Collectors.joining(", ", "select id, is_free from parking_spot where id in (", ")"));
+        jdbcTemplate.query(sql, rs -> {
+            states.put(rs.getLong(1), rs.getBoolean(2));
+        }, spotIds.toArray());
+        return states;
+    }
+
+    /**
+     * Write the given state changes in a single transaction, as one JDBC batch. An observed change is not written if
+     * the parking spot has a newer observation.
+     *
+     * @param changes the state changes to write, at most one per parking spot
+     * @return the number of rows updated by each change, 0 for a parking spot which does not exist or has a newer
+     * observation
+     */
+    @Transactional
+    public int[] updateStates(List<ParkingSpotStateChange> changes) {
+        if (changes.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_STATE_SQL, changes, changes.size(), this::setStateParameters)[0];
+    }
+
+    private void setReservationParameters(PreparedStatement ps, Long spotId, Instant reservedUntil, String actor, Instant timestamp)
+        throws SQLException {
+        ps.setTimestamp(1, Timestamp.from(reservedUntil), utcCalendar());
+        ps.setString(2, actor);
+        ps.setTimestamp(3, Timestamp.from(timestamp), utcCalendar());
+        ps.setLong(4, spotId);
+    }
+
+    private void setStateParameters(PreparedStatement ps, ParkingSpotStateChange change) throws SQLException {
+        ps.setBoolean(1, change.isFree());
+        ps.setBoolean(2, change.isFree());
+        ps.setBoolean(3, change.isFree());
+        ps.setString(4, change.getAssignedTo());
+        ps.setString(5, change.getActor());
+        ps.setTimestamp(6, Timestamp.from(change.getTimestamp()), utcCalendar());
+        Timestamp observedAt = change.getObservedAt() != null ? Timestamp.from(change.getObservedAt()) : null;
+        ps.setTimestamp(7, observedAt, utcCalendar());
+        ps.setLong(8, change.getSpotId());
+        ps.setTimestamp(9, observedAt, utcCalendar());
+        ps.setTimestamp(10, observedAt, utcCalendar());
+    }
+
+    private static Calendar utcCalendar() {
+        // same zone as hibernate.jdbc.time_zone
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * JDBC repository for the tombstones of the deleted parking spots, which tell the clients syncing their changes which
+ * spots are gone.
+ */
+@Repository
+public class ParkingSpotTombstoneJdbcRepository {
+
+    private static final String INSERT_SQL = "insert into parking_spot_tombstone (spot_id, deleted_at) values (?, ?)";
+
+    private static final String FIND_DELETED_SQL =
+        "select spot_id from parking_spot_tombstone where deleted_at > ? and deleted_at <= ? order by deleted_at, spot_id";
+
+    private static final String FIND_DELETION_TIMES_SQL =
+        "select deleted_at from parking_spot_tombstone where deleted_at > ? and deleted_at <= ? order by deleted_at";
+
+    private static final String DELETE_OLDER_SQL = "delete from parking_spot_tombstone where deleted_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ParkingSpotTombstoneJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Record the deletion of a parking spot, in the transaction deleting it.
+     *
+     * @param spotId    the id of the deleted parking spot
+     * @param deletedAt the time of the deletion
+     */
+    @Transactional
+    public void insert(long spotId, Instant deletedAt) {
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setLong(1, spotId);
+            ps.setTimestamp(2, Timestamp.from(deletedAt), utcCalendar());
+        });
+    }
+
+    /**
+     * @param after the exclusive lower bound of the deletion times
+     * @param until the inclusive upper bound of the deletion times
+     * @return the ids of the parking spots deleted in between, in the order they were deleted
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findDeletedSpotIds(Instant after, Instant until) {
+        return jdbcTemplate.query(FIND_DELETED_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.from(after), utcCalendar());
+            ps.setTimestamp(2, Timestamp.from(until), utcCalendar());
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * @param after the exclusive lower bound of the deletion times
+     * @param until the inclusive upper bound of the deletion times
+     * @param limit the maximum number of deletion times
+     * @return the first deletion times in between, in ascending order
+     */
+    @Transactional(readOnly = true)
+    public List<Instant> findDeletionTimes(Instant after, Instant until, int limit) {
+        return jdbcTemplate.query(FIND_DELETION_TIMES_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.from(after), utcCalendar());
+            ps.setTimestamp(2, Timestamp.from(until), utcCalendar());
+            ps.setMaxRows(limit);
+        }, (rs, rowNum) -> rs.getTimestamp(1, utcCalendar()).toInstant());
+    }
+
+    /**
+     * @param horizon the time before which the tombstones are deleted
+     * @return the number of deleted tombstones
+     */
+    @Transactional
+    public int deleteOlderThan(Instant horizon) {
+        return jdbcTemplate.update(DELETE_OLDER_SQL, ps -> ps.setTimestamp(1, Timestamp.from(horizon), utcCalendar()));
+    }
+
+    private static Calendar utcCalendar() {
+        // same zone as hibernate.jdbc.time_zone
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
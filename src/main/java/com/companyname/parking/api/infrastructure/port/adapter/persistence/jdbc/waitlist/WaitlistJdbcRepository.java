@@ -0,0 +1,81 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.waitlist;
+
+import com.companyname.parking.api.domain.waitlist.WaitlistEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * JDBC repository for the {@link WaitlistEntry}s, written as batch updates.
+ */
+@Repository
+public class WaitlistJdbcRepository {
+
+    private static final String DELETE_SQL = "delete from waitlist_entry where login = ?";
+
+    private static final String INSERT_SQL = "insert into waitlist_entry (login, joined_at) values (?, ?)";
+
+    private static final String CLAIM_SQL = "delete from waitlist_entry where login = ? and joined_at = ?";
+
+    private static final String FIND_ALL_SQL = "select login, joined_at from waitlist_entry order by joined_at, login";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WaitlistJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Delete the entries of the given users, then insert the given entries, in a single transaction, as two JDBC
+     * batches. An entry of a user may thus be replaced by listing the user in both.
+     *
+     * @param logins  the logins of the users whose entry is deleted
+     * @param entries the entries to insert
+     */
+    @Transactional
+    public void replace(List<String> logins, List<WaitlistEntry> entries) {
+        if (!logins.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, logins, logins.size(), (ps, login) -> ps.setString(1, login));
+        }
+        if (!entries.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setString(1, entry.getLogin());
+                ps.setTimestamp(2, Timestamp.from(entry.getJoinedAt()), utcCalendar());
+            });
+        }
+    }
+
+    /**
+     * Delete an entry, only if it is still the one of its user, so a user waiting on several nodes is only served by
+     * one of them.
+     *
+     * @param entry the entry
+     * @return false if the entry was already deleted, or replaced by a newer one
+     */
+    @Transactional
+    public boolean claim(WaitlistEntry entry) {
+        return jdbcTemplate.update(CLAIM_SQL, ps -> {
+            ps.setString(1, entry.getLogin());
+            ps.setTimestamp(2, Timestamp.from(entry.getJoinedAt()), utcCalendar());
+        }) > 0;
+    }
+
+    /**
+     * @return every entry, in the order the users joined
+     */
+    @Transactional(readOnly = true)
+    public List<WaitlistEntry> findAll() {
+        return jdbcTemplate.query(FIND_ALL_SQL, (rs, rowNum) ->
+            new WaitlistEntry(rs.getString(1), rs.getTimestamp(2, utcCalendar()).toInstant()));
+    }
+
+    private static Calendar utcCalendar() {
+        // same zone as hibernate.jdbc.time_zone
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+}
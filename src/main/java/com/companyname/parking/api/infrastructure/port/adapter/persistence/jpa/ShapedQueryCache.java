@@ -0,0 +1,121 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa;
+
+import com.companyname.parking.api.application.base.ShapedSpecification;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the JPQL of criteria queries by the shape of their {@link ShapedSpecification}. A query of a cached shape
+ * is created from its JPQL, whose SQL translation Hibernate caches in turn, so neither the criteria query is built
+ * nor its JPQL translated again, and only the values of the specification are bound.
+ * <p>
+ * This relies on {@code hibernate.criteria.literal_handling_mode} being {@code bind}, so Hibernate renders each literal
+ * of a criteria query as a parameter, named {@code param0}, {@code param1}... in the order it renders them, which is
+ * not the order of the values of the specification. The first query of a shape tells which value each parameter is
+ * bound to; a shape is only cached if each of its parameters is bound to exactly one of them, otherwise its queries
+ * are built every time.
+ */
+public class ShapedQueryCache {
+
+    private static final String PARAMETER_PREFIX = "param";
+
+    private final Map<String, CachedQuery> queries = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+
+    public ShapedQueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param em            the entity manager creating the query
+     * @param key           the key of the query, made of its shape and of everything else it renders, like its order
+     * @param resultClass   the type of the results
+     * @param criteriaQuery the criteria query, only built if the key is not cached yet
+     * @param values        the values of the specification of the query, in the same order for every query of the key
+     * @param <R>           the type of the results
+     * @return the query with its parameters bound
+     */
+    public <R> TypedQuery<R> createQuery(EntityManager em, String key, Class<R> resultClass,
+                                         Supplier<CriteriaQuery<R>> criteriaQuery, List<Object> values) {
+        CachedQuery cached = queries.get(key);
+        if (cached != null) {
+            TypedQuery<R> query = em.createQuery(cached.jpql, resultClass);
+            for (int i = 0; i < cached.valueIndexes.length; i++) {
+                query.setParameter(PARAMETER_PREFIX + i, values.get(cached.valueIndexes[i]));
+            }
+            return query;
+        }
+        TypedQuery<R> query = em.createQuery(criteriaQuery.get());
+        Query<?> compiled = query.unwrap(Query.class);
+        int[] valueIndexes = findValueIndexes(compiled, values);
+        if (valueIndexes != null) {
+            // shapes only grow with the filters, operators, in sizes and orders asked for, start over past the bound
+            if (queries.size() >= maxEntries) {
+                queries.clear();
+            }
+            queries.put(key, new CachedQuery(compiled.getQueryString(), valueIndexes));
+        }
+        return query;
+    }
+
+    /**
+     * @return the number of cached queries
+     */
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * @return for each parameter of the query, the index of the value it is bound to, or {@code null} if a parameter
+     * is not bound to exactly one of the values, as when two values are equal
+     */
+    private static int[] findValueIndexes(Query<?> query, List<Object> values) {
+        Set<String> names = query.getParameterMetadata().getNamedParameterNames();
+        if (names.size() != values.size()) {
+            return null;
+        }
+        int[] valueIndexes = new int[values.size()];
+        for (int i = 0; i < valueIndexes.length; i++) {
+            String name = PARAMETER_PREFIX + i;
+            if (!names.contains(name)) {
+                return null;
+            }
+            valueIndexes[i] = -1;
+            Object value = query.getParameterValue(name);
+            for (int j = 0; j < values.size(); j++) {
+                if (Objects.equals(value, values.get(j))) {
+                    if (valueIndexes[i] != -1) {
+                        return null;
+                    }
+                    valueIndexes[i] = j;
+                }
+            }
+            if (valueIndexes[i] == -1) {
+                return null;
+            }
+        }
+        return valueIndexes;
+    }
+
+    private static final class CachedQuery {
+
+        private final String jpql;
+
+        private final int[] valueIndexes;
+
+        private CachedQuery(String jpql, int[] valueIndexes) {
+            this.jpql = jpql;
+            this.valueIndexes = valueIndexes;
+        }
+    }
+}
@@ -1,11 +1,78 @@
 package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot;
 
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long>,
-        JpaSpecificationExecutor<ParkingSpot> {
+        JpaSpecificationExecutor<ParkingSpot>, ParkingSpotViewRepository {
+
+    /**
+     * @return the id, isFree and zone id of every parking spot
+     */
+    @Query("select p.id, p.isFree, z.id from ParkingSpot p left join p.zone z")
+    List<Object[]> findAllOccupancies();
+
+    /**
+     * @return the id, isFree, x and y of every parking spot with coordinates
+     */
+    @Query("select p.id, p.isFree, p.x, p.y from ParkingSpot p where p.x is not null and p.y is not null")
+    List<Object[]> findAllPositions();
+
+    /**
+     * @param login the login of the owner
+     * @return the id, version and isFree of the parking spot owned by the user, without loading the user
+     */
+    @Query("select p.id, p.version, p.isFree from ParkingSpot p where p.ownedAccount.login = :login")
+    List<Object[]> findOwnedStateByLogin(@Param("login") String login);
+
+    /**
+     * @param login the login of the owner
+     * @return the id of the parking spot owned by the user, without loading the user
+     */
+    @Query("select p.id from ParkingSpot p where p.ownedAccount.login = :login")
+    Optional<Long> findOwnedIdByLogin(@Param("login") String login);
+
+    /**
+     * @param login the login of the driver
+     * @return the ids of the parking spots assigned to the driver
+     */
+    @Query("select p.id from ParkingSpot p where p.assignedTo = :login")
+    List<Long> findAssignedIdsByLogin(@Param("login") String login);
+
+    /**
+     * @param id the id of the parking spot
+     * @return the version of the parking spot and the login of its owner, without loading either
+     */
+    @Query("select new com.companyname.parking.api.domain.parkingspot.ParkingSpotVersion(p.version, o.login) " +
+        "from ParkingSpot p join p.ownedAccount o where p.id = :id")
+    Optional<ParkingSpotVersion> findVersionById(@Param("id") Long id);
+
+    /**
+     * Lock free parking spots to claim them, skipping the rows already locked by other transactions, so concurrent
+     * claims, from any node, each get a different spot instead of queueing on the same row. The lock timeout of -2
+     * is Hibernate's {@code LockOptions.SKIP_LOCKED}, rendered as {@code FOR UPDATE SKIP LOCKED} where the database
+     * supports it, and as a plain {@code FOR UPDATE} otherwise, e.g. on H2, where claims queue on the same row and
+     * the version check of the update still prevents a double claim.
+     *
+     * @param pageable the number of parking spots to lock
+     * @return the locked free parking spots, by id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select p from ParkingSpot p where p.isFree = true order by p.id")
+    List<ParkingSpot> findFreeForClaim(Pageable pageable);
 }
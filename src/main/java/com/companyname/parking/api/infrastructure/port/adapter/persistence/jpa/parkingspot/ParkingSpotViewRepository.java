@@ -0,0 +1,66 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot;
+
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads {@link ParkingSpotView}s matching a {@link Specification}, selecting only their columns in a single query,
+ * without loading the parking spots nor their eagerly fetched owned accounts.
+ */
+public interface ParkingSpotViewRepository {
+
+    /**
+     * @param specification the specification the parking spots must match
+     * @param sort          the order of the views
+     * @return the views of the matching parking spots
+     */
+    List<ParkingSpotView> findAllViews(Specification<ParkingSpot> specification, Sort sort);
+
+    /**
+     * @param specification the specification the parking spots must match
+     * @param pageable      the page of the views
+     * @return the page of views of the matching parking spots, counted by a second query if needed
+     */
+    Page<ParkingSpotView> findAllViews(Specification<ParkingSpot> specification, Pageable pageable);
+
+    /**
+     * @param specification the specification the parking spots must match
+     * @param pageable      the page of the views
+     * @return the page of views of the matching parking spots, reading one more row to know if there is a next
+     * page instead of counting them
+     */
+    Slice<ParkingSpotView> findViewSlice(Specification<ParkingSpot> specification, Pageable pageable);
+
+    /**
+     * @param specification the specification the parking spots must match
+     * @param limit         the maximum number of dates
+     * @return the last modified dates of the first matching parking spots, in ascending order
+     */
+    List<Instant> findLastModifiedDates(Specification<ParkingSpot> specification, int limit);
+
+    /**
+     * Stream the views from a database cursor, fetching a few rows at a time, so the memory used does not grow with
+     * the number of parking spots. The stream must be consumed in a transaction and closed.
+     *
+     * @param specification the specification the parking spots must match
+     * @param sort          the order of the views
+     * @param fetchSize     the number of rows fetched per round trip
+     * @return the stream of views of the matching parking spots
+     */
+    Stream<ParkingSpotView> streamAllViews(Specification<ParkingSpot> specification, Sort sort, int fetchSize);
+
+    /**
+     * @param specification the specification the parking spots must match
+     * @return the number of matching parking spots
+     */
+    long countViews(Specification<ParkingSpot> specification);
+}
@@ -0,0 +1,191 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot;
+
+import com.companyname.parking.api.application.base.ShapedSpecification;
+import com.companyname.parking.api.domain.audit.AbstractAuditingEntity_;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotView;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot_;
+import com.companyname.parking.api.domain.user.User;
+import com.companyname.parking.api.domain.user.User_;
+import com.companyname.parking.api.domain.zone.Zone_;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.ShapedQueryCache;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link ParkingSpotViewRepository}, selecting the view columns as tuples. The owned account is
+ * inner joined for its login, and the zone id is read from the foreign key, so neither is joined for the select.
+ * The queries of a {@link ShapedSpecification} are rendered once per shape and order by a {@link ShapedQueryCache},
+ * and then only bound.
+ */
+public class ParkingSpotViewRepositoryImpl implements ParkingSpotViewRepository {
+
+    private static final int MAX_SHAPES = 512;
+
+    private final ShapedQueryCache queryCache = new ShapedQueryCache(MAX_SHAPES);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ParkingSpotView> findAllViews(Specification<ParkingSpot> specification, Sort sort) {
+        return createQuery(specification, sort).getResultList().stream()
+            .map(ParkingSpotViewRepositoryImpl::toView)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Page<ParkingSpotView> findAllViews(Specification<ParkingSpot> specification, Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(specification, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<ParkingSpotView> content = query.getResultList().stream()
+            .map(ParkingSpotViewRepositoryImpl::toView)
+            .collect(Collectors.toList());
+        return PageableExecutionUtils.getPage(content, pageable, () -> countViews(specification));
+    }
+
+    @Override
+    public Slice<ParkingSpotView> findViewSlice(Specification<ParkingSpot> specification, Pageable pageable) {
+        TypedQuery<Tuple> query = createQuery(specification, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<ParkingSpotView> content = query.getResultList().stream()
+            .map(ParkingSpotViewRepositoryImpl::toView)
+            .collect(Collectors.toList());
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public List<Instant> findLastModifiedDates(Specification<ParkingSpot> specification, int limit) {
+        TypedQuery<Instant> query;
+        if (specification instanceof ShapedSpecification) {
+            ShapedSpecification<ParkingSpot> shaped = (ShapedSpecification<ParkingSpot>) specification;
+            query = queryCache.createQuery(em, "modified:" + shaped.getShape(), Instant.class,
+                () -> buildLastModifiedDateQuery(specification), shaped.getValues());
+        } else {
+            query = em.createQuery(buildLastModifiedDateQuery(specification));
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<ParkingSpotView> streamAllViews(Specification<ParkingSpot> specification, Sort sort, int fetchSize) {
+        // scalar rows, so nothing is added to the persistence context as the cursor moves on
+        return createQuery(specification, sort)
+            .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+            .setHint(QueryHints.HINT_READONLY, true)
+            .getResultStream()
+            .map(ParkingSpotViewRepositoryImpl::toView);
+    }
+
+    @Override
+    public long countViews(Specification<ParkingSpot> specification) {
+        if (specification instanceof ShapedSpecification) {
+            ShapedSpecification<ParkingSpot> shaped = (ShapedSpecification<ParkingSpot>) specification;
+            return queryCache.createQuery(em, "count:" + shaped.getShape(), Long.class,
+                () -> buildCountQuery(specification), shaped.getValues()).getSingleResult();
+        }
+        return em.createQuery(buildCountQuery(specification)).getSingleResult();
+    }
+
+    private TypedQuery<Tuple> createQuery(Specification<ParkingSpot> specification, Sort sort) {
+        if (specification instanceof ShapedSpecification) {
+            ShapedSpecification<ParkingSpot> shaped = (ShapedSpecification<ParkingSpot>) specification;
+            return queryCache.createQuery(em, "views:" + shaped.getShape() + "order:" + sort, Tuple.class,
+                () -> buildQuery(specification, sort), shaped.getValues());
+        }
+        return em.createQuery(buildQuery(specification, sort));
+    }
+
+    private CriteriaQuery<Tuple> buildQuery(Specification<ParkingSpot> specification, Sort sort) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ParkingSpot> root = query.from(ParkingSpot.class);
+        Join<ParkingSpot, User> ownedAccount = root.join(ParkingSpot_.ownedAccount);
+        query.multiselect(
+            root.get(ParkingSpot_.id),
+            root.get(ParkingSpot_.name),
+            root.get(ParkingSpot_.isFree),
+            root.get(ParkingSpot_.version),
+            ownedAccount.get(User_.id),
+            ownedAccount.get(User_.login),
+            root.get(ParkingSpot_.zone).get(Zone_.id),
+            root.get(ParkingSpot_.reservedUntil),
+            root.get(ParkingSpot_.x),
+            root.get(ParkingSpot_.y),
+            root.get(ParkingSpot_.assignedTo));
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return query;
+    }
+
+    private CriteriaQuery<Instant> buildLastModifiedDateQuery(Specification<ParkingSpot> specification) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Instant> query = cb.createQuery(Instant.class);
+        Root<ParkingSpot> root = query.from(ParkingSpot.class);
+        query.select(root.get(AbstractAuditingEntity_.lastModifiedDate));
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get(AbstractAuditingEntity_.lastModifiedDate)));
+        return query;
+    }
+
+    private CriteriaQuery<Long> buildCountQuery(Specification<ParkingSpot> specification) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ParkingSpot> root = query.from(ParkingSpot.class);
+        query.select(cb.count(root));
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return query;
+    }
+
+    private static ParkingSpotView toView(Tuple tuple) {
+        return new ParkingSpotView(
+            tuple.get(0, Long.class),
+            tuple.get(1, String.class),
+            tuple.get(2, Boolean.class),
+            tuple.get(3, Long.class),
+            tuple.get(4, Long.class),
+            tuple.get(5, String.class),
+            tuple.get(6, Long.class),
+            tuple.get(7, Instant.class),
+            tuple.get(8, Double.class),
+            tuple.get(9, Double.class),
+            tuple.get(10, String.class));
+    }
+}
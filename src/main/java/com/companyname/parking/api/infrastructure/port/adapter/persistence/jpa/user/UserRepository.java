@@ -3,6 +3,7 @@ package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.
 import com.companyname.parking.api.domain.user.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
@@ -37,4 +38,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesByEmail(String email);
 
     Page<User> findAllByLoginNot(Pageable pageable, String login);
+
+    Slice<User> findSliceByLoginNot(String login, Pageable pageable);
+
+    Slice<User> findAllByIdGreaterThanAndLoginNot(Long id, String login, Pageable pageable);
+
+    long countByLoginNot(String login);
 }
@@ -0,0 +1,15 @@
+package com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.zone;
+
+import com.companyname.parking.api.domain.zone.Zone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ZoneRepository extends JpaRepository<Zone, Long> {
+
+    @Query("select z.id from Zone z")
+    List<Long> findAllIds();
+}
@@ -1,5 +1,6 @@
 package com.companyname.parking.api.infrastructure.port.adapter.rest.errors;
 
+import com.companyname.parking.api.application.occupancy.OccupancyNotReadyException;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.HeaderUtil;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.ResponseEntity;
@@ -108,4 +109,13 @@ public class ExceptionTranslator implements ProblemHandling {
             .build();
         return create(ex, problem, request);
     }
+
+    @ExceptionHandler
+    public ResponseEntity<Problem> handleOccupancyNotReady(OccupancyNotReadyException ex, NativeWebRequest request) {
+        Problem problem = Problem.builder()
+            .withStatus(Status.SERVICE_UNAVAILABLE)
+            .withDetail(ex.getMessage())
+            .build();
+        return create(ex, problem, request);
+    }
 }
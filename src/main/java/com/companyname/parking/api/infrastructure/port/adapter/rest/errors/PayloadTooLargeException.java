@@ -0,0 +1,16 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * Simple exception with a message, that returns a Payload Too Large code.
+ */
+public class PayloadTooLargeException extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    public PayloadTooLargeException(String message) {
+        super(ErrorConstants.DEFAULT_TYPE, message, Status.REQUEST_ENTITY_TOO_LARGE);
+    }
+}
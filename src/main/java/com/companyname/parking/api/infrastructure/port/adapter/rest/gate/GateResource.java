@@ -0,0 +1,56 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.gate;
+
+import com.companyname.parking.api.application.gate.GateAdmissionService;
+import com.companyname.parking.api.application.gate.GateDecisionDTO;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for the admission of vehicles at the gates.
+ */
+@RestController
+@RequestMapping
+public class GateResource {
+
+    private final Logger log = LoggerFactory.getLogger(GateResource.class);
+
+    private final GateAdmissionService gateAdmissionService;
+
+    public GateResource(GateAdmissionService gateAdmissionService) {
+        this.gateAdmissionService = gateAdmissionService;
+    }
+
+    /**
+     * POST  /gates/:gateId/entries : Admit a vehicle at the "gateId" gate if the facility is not full.
+     *
+     * @param gateId the id of the gate
+     * @return the ResponseEntity with status 200 (OK) and with body the decision, admitted or denied
+     */
+    @PostMapping(path = "/gates/{gateId}/entries", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.GATE + "\")")
+    public ResponseEntity<GateDecisionDTO> enter(@PathVariable String gateId) {
+        log.debug("REST request to admit a vehicle at Gate : {}", gateId);
+        return ResponseEntity.ok().body(gateAdmissionService.enter(gateId));
+    }
+
+    /**
+     * POST  /gates/:gateId/exits : Release the space of a vehicle leaving at the "gateId" gate.
+     *
+     * @param gateId the id of the gate
+     * @return the ResponseEntity with status 200 (OK) and with body the decision
+     */
+    @PostMapping(path = "/gates/{gateId}/exits", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.GATE + "\")")
+    public ResponseEntity<GateDecisionDTO> exit(@PathVariable String gateId) {
+        log.debug("REST request to release a vehicle space at Gate : {}", gateId);
+        return ResponseEntity.ok().body(gateAdmissionService.exit(gateId));
+    }
+}
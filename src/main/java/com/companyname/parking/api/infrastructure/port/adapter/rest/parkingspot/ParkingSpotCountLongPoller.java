@@ -0,0 +1,150 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parks count requests until the occupancy version moves past the one the client already knows.
+ * <p>
+ * Waiting requests are {@link DeferredResult}s, so they hold no thread. On every committed change the waiting
+ * requests are answered from the async task executor, never from the thread which made the change.
+ * <p>
+ * The occupancy version is only meaningful on the node which counted it, so the version token handed to the client
+ * is {@code <node>.<version>.<count>}. A token counted by another node, e.g. behind a load balancer, is waited on
+ * like a local one as long as this node counts the same, and answered right away otherwise.
+ */
+@Component
+public class ParkingSpotCountLongPoller implements OccupancyListener {
+
+    public static final String VERSION_HEADER = "X-Occupancy-Version";
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ParkingSpotQueryService parkingSpotQueryService;
+
+    private final TaskExecutor taskExecutor;
+
+    private final long timeoutMs;
+
+    // tells the tokens of this node from the ones of the other nodes, or of a previous run
+    private final String nodeId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    public ParkingSpotCountLongPoller(OccupancyEngine occupancyEngine, ParkingSpotQueryService parkingSpotQueryService,
+                                      @Qualifier("taskExecutor") TaskExecutor taskExecutor, ApplicationProperties applicationProperties) {
+        this.occupancyEngine = occupancyEngine;
+        this.parkingSpotQueryService = parkingSpotQueryService;
+        this.taskExecutor = taskExecutor;
+        this.timeoutMs = applicationProperties.getParkingSpots().getLongPoll().getTimeoutMs();
+    }
+
+    @PostConstruct
+    public void start() {
+        occupancyEngine.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        occupancyEngine.removeListener(this);
+    }
+
+    /**
+     * Count the parkingSpots matching the criteria once the occupancy version differs from the given one,
+     * or after the long-poll timeout.
+     *
+     * @param criteria     the criteria which the counted entities should match
+     * @param versionToken the version token of the last count the client received
+     * @return the deferred count, with the version token it reflects in the {@value #VERSION_HEADER} header
+     */
+    public DeferredResult<ResponseEntity<Long>> countAfter(ParkingSpotCriteria criteria, String versionToken) {
+        DeferredResult<ResponseEntity<Long>> result = new DeferredResult<>(timeoutMs);
+        long sinceVersion = toLocalVersion(criteria, versionToken);
+        Waiter waiter = new Waiter(criteria, sinceVersion, result);
+        result.onTimeout(() -> complete(waiter));
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+        // checked after registering, so a change made in between is not missed
+        if (occupancyEngine.getVersion() != sinceVersion && waiters.remove(waiter)) {
+            complete(waiter);
+        }
+        return result;
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long version = occupancyEngine.getVersion();
+        List<Waiter> woken = new ArrayList<>();
+        for (Waiter waiter : waiters) {
+            if (waiter.sinceVersion != version && waiters.remove(waiter)) {
+                woken.add(waiter);
+            }
+        }
+        if (!woken.isEmpty()) {
+            taskExecutor.execute(() -> woken.forEach(this::complete));
+        }
+    }
+
+    private void complete(Waiter waiter) {
+        long version = occupancyEngine.getVersion();
+        long count = parkingSpotQueryService.countByCriteria(waiter.criteria);
+        String versionToken = nodeId + "." + version + "." + count;
+        waiter.result.setResult(ResponseEntity.ok().header(VERSION_HEADER, versionToken).body(count));
+    }
+
+    /**
+     * The local occupancy version equivalent to the given token: its version if counted by this node, the current
+     * version if counted by another node with the count this node has now, and -1, never current, otherwise.
+     */
+    private long toLocalVersion(ParkingSpotCriteria criteria, String versionToken) {
+        String[] parts = versionToken.split("\\.");
+        if (parts.length != 3) {
+            return -1;
+        }
+        try {
+            if (parts[0].equals(nodeId)) {
+                return Long.parseLong(parts[1]);
+            }
+            long knownCount = Long.parseLong(parts[2]);
+            // read before counting, a change made in between is then a version change
+            long version = occupancyEngine.getVersion();
+            return parkingSpotQueryService.countByCriteria(criteria) == knownCount ? version : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Waiter {
+
+        private final ParkingSpotCriteria criteria;
+
+        private final long sinceVersion;
+
+        private final DeferredResult<ResponseEntity<Long>> result;
+
+        private Waiter(ParkingSpotCriteria criteria, long sinceVersion, DeferredResult<ResponseEntity<Long>> result) {
+            this.criteria = criteria;
+            this.sinceVersion = sinceVersion;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.OccupancyListener;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the committed occupancy changes to the subscribers of the parking spot event stream.
+ * <p>
+ * Subscribers hold no thread while idle. Changes are coalesced per subscriber into a buffer holding the latest state
+ * of each changed spot and the latest free count, and written by a small pool of sender threads, with at most one
+ * write in flight per subscriber. A subscriber falling behind thus keeps receiving the latest states instead of a
+ * growing backlog. If more than {@code application.parking-spots.events.buffer-size} spots are pending for it, they
+ * are dropped and it is sent a {@code resync} event instead.
+ * <p>
+ * Writing to a subscriber blocks while its connection does not drain. Such a write only holds its own sender thread:
+ * the pool starts more threads, up to {@code max-sender-threads}, for the other subscribers, and the pending changes
+ * of a subscriber which finds no thread stay in its buffer until the next change or heartbeat. A subscriber whose
+ * write is blocked for more than {@code send-timeout-ms}, or whose stream fails, is dropped.
+ */
+@Component
+public class ParkingSpotEventBroadcaster implements OccupancyListener {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotEventBroadcaster.class);
+
+    private final OccupancyEngine occupancyEngine;
+
+    private final ApplicationProperties.ParkingSpots.Events properties;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolTaskExecutor senders;
+
+    public ParkingSpotEventBroadcaster(OccupancyEngine occupancyEngine, ApplicationProperties applicationProperties) {
+        this.occupancyEngine = occupancyEngine;
+        this.properties = applicationProperties.getParkingSpots().getEvents();
+    }
+
+    @PostConstruct
+    public void start() {
+        int senderThreads = Math.max(1, properties.getSenderThreads());
+        senders = new ThreadPoolTaskExecutor();
+        senders.setCorePoolSize(senderThreads);
+        senders.setMaxPoolSize(Math.max(senderThreads, properties.getMaxSenderThreads()));
+        // handed over to a new thread rather than queued behind a blocked write
+        senders.setQueueCapacity(0);
+        senders.setThreadNamePrefix("parking-spot-events-");
+        senders.setDaemon(true);
+        senders.initialize();
+        occupancyEngine.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        occupancyEngine.removeListener(this);
+        senders.shutdown();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Subscribe to the event stream. The free count is sent right away, then every change.
+     *
+     * @return the emitter of the new subscriber
+     */
+    public SseEmitter subscribe() {
+        // no timeout, dead subscribers are detected by the heartbeats
+        return subscribe(new SseEmitter(0L));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.offerFreeCount(occupancyEngine.countFree());
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void stateChanged(long spotId, int state, long freeSpots) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(spotId, state, freeSpots);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.parking-spots.events.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        subscribers.forEach(Subscriber::offerHeartbeat);
+    }
+
+    /**
+     * Drop the subscribers whose write has been blocked for longer than the send timeout. Completing their stream
+     * makes the container release the blocked write.
+     */
+    @Scheduled(fixedDelayString = "${application.parking-spots.events.send-timeout-ms:5000}")
+    public void dropStalledSubscribers() {
+        long stalledSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(properties.getSendTimeoutMs());
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isSendingSince(stalledSince)) {
+                log.debug("Parking spot event subscriber is stalled, dropping it");
+                drop(subscriber, new IOException("Parking spot event subscriber stalled"));
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Throwable e) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    @Value
+    public static class SpotStateEvent {
+        Long spotId;
+        boolean isFree;
+        boolean removed;
+    }
+
+    @Value
+    public static class FreeCountEvent {
+        long free;
+        long delta;
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        // guarded by this
+        private Map<Long, Integer> pendingSpots = new LinkedHashMap<>();
+
+        private long pendingFree = -1;
+
+        private long sentFree = -1;
+
+        private boolean resync = false;
+
+        private boolean heartbeat = false;
+
+        private boolean scheduled = false;
+
+        // System.nanoTime() when the write in flight started, or 0
+        private volatile long sendingSince = 0;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private boolean isSendingSince(long time) {
+            long since = sendingSince;
+            return since != 0 && since - time < 0;
+        }
+
+        private synchronized void offer(long spotId, int state, long freeSpots) {
+            if (!resync) {
+                pendingSpots.put(spotId, state);
+                if (pendingSpots.size() > properties.getBufferSize()) {
+                    pendingSpots.clear();
+                    resync = true;
+                }
+            }
+            pendingFree = freeSpots;
+            schedule();
+        }
+
+        private synchronized void offerFreeCount(long freeSpots) {
+            pendingFree = freeSpots;
+            schedule();
+        }
+
+        private synchronized void offerHeartbeat() {
+            heartbeat = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            try {
+                senders.execute(this::send);
+            } catch (TaskRejectedException e) {
+                // kept pending until the next change or heartbeat
+                scheduled = false;
+            }
+        }
+
+        private void send() {
+            while (true) {
+                Map<Long, Integer> spots;
+                long free;
+                boolean sendResync;
+                boolean sendHeartbeat;
+                long previousFree;
+                synchronized (this) {
+                    if (pendingSpots.isEmpty() && pendingFree == sentFree && !resync && !heartbeat) {
+                        scheduled = false;
+                        return;
+                    }
+                    spots = pendingSpots;
+                    pendingSpots = new LinkedHashMap<>();
+                    free = pendingFree;
+                    previousFree = sentFree;
+                    sentFree = pendingFree;
+                    sendResync = resync;
+                    sendHeartbeat = heartbeat;
+                    resync = false;
+                    heartbeat = false;
+                }
+                sendingSince = System.nanoTime() | 1;
+                try {
+                    if (sendResync) {
+                        long delta = previousFree < 0 ? 0 : free - previousFree;
+                        emitter.send(SseEmitter.event().name("resync").data(new FreeCountEvent(free, delta), MediaType.APPLICATION_JSON));
+                        previousFree = free;
+                    }
+                    for (Map.Entry<Long, Integer> spot : spots.entrySet()) {
+                        SpotStateEvent event = new SpotStateEvent(spot.getKey(), spot.getValue() == OccupancyEngine.FREE,
+                            spot.getValue() == OccupancyEngine.ABSENT);
+                        emitter.send(SseEmitter.event().name("spot").data(event, MediaType.APPLICATION_JSON));
+                    }
+                    if (free != previousFree) {
+                        long delta = previousFree < 0 ? 0 : free - previousFree;
+                        emitter.send(SseEmitter.event().name("count").data(new FreeCountEvent(free, delta), MediaType.APPLICATION_JSON));
+                    }
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Parking spot event subscriber is gone: {}", e.getMessage());
+                    drop(this, e);
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+}
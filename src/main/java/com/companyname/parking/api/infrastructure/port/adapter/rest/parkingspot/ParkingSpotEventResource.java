@@ -0,0 +1,69 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller notifying clients of ParkingSpot occupancy changes.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotEventResource {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotEventResource.class);
+
+    private final ParkingSpotEventBroadcaster parkingSpotEventBroadcaster;
+
+    private final ParkingSpotCountLongPoller parkingSpotCountLongPoller;
+
+    public ParkingSpotEventResource(ParkingSpotEventBroadcaster parkingSpotEventBroadcaster, ParkingSpotCountLongPoller parkingSpotCountLongPoller) {
+        this.parkingSpotEventBroadcaster = parkingSpotEventBroadcaster;
+        this.parkingSpotCountLongPoller = parkingSpotCountLongPoller;
+    }
+
+    /**
+     * GET  /parking-spots/events : stream the occupancy changes as Server-Sent Events.
+     * <p>
+     * A {@code count} event with the free count and its delta is sent on subscription and after every change,
+     * a {@code spot} event with the new state of every changed parkingSpot, and a {@code resync} event if the
+     * subscriber fell too far behind for the changed parkingSpots to be sent one by one.
+     *
+     * @return the event stream
+     */
+    @GetMapping(path = "/parking-spots/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole(\"" + AuthoritiesConstants.USER + "\", \"" + AuthoritiesConstants.GATE + "\")")
+    public SseEmitter streamParkingSpotEvents() {
+        log.debug("REST request to stream ParkingSpot events");
+        return parkingSpotEventBroadcaster.subscribe();
+    }
+
+    /**
+     * GET  /parking-spots/count?sinceVersion=N : long-poll the count of the parkingSpots.
+     * <p>
+     * The answer is held until the occupancy changes after the version token {@code sinceVersion} was counted, or the
+     * long-poll timeout elapses. The token is opaque to the client, any value it did not receive, e.g. -1, is
+     * answered right away.
+     *
+     * @param criteria     the criterias which the requested entities should match
+     * @param sinceVersion the version token of the last count received
+     * @return the ResponseEntity with status 200 (OK), the count in body and the new version token in the
+     * {@value ParkingSpotCountLongPoller#VERSION_HEADER} header
+     */
+    @GetMapping(path = "/parking-spots/count", params = "sinceVersion", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasAnyRole(\"" + AuthoritiesConstants.USER + "\", \"" + AuthoritiesConstants.GATE + "\")")
+    public DeferredResult<ResponseEntity<Long>> longPollParkingSpotCount(ParkingSpotCriteria criteria, @RequestParam String sinceVersion) {
+        log.debug("REST request to count ParkingSpots by criteria: {} since version {}", criteria, sinceVersion);
+        return parkingSpotCountLongPoller.countAfter(criteria, sinceVersion);
+    }
+}
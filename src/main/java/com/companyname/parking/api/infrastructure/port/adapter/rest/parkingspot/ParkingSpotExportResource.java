@@ -0,0 +1,146 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * REST controller for exporting ParkingSpots, streamed as they are read.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotExportResource {
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    private static final MediaType TEXT_CSV = MediaType.valueOf(TEXT_CSV_VALUE);
+
+    // the first characters of the text values which spreadsheets evaluate as a formula
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private static final String CSV_HEADER = "id,name,isFree,version,ownedAccountId,ownedAccountLogin,zoneId,reservedUntil,x,y,assignedTo";
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotExportResource.class);
+
+    private final ParkingSpotQueryService parkingSpotQueryService;
+
+    private final ObjectMapper objectMapper;
+
+    public ParkingSpotExportResource(ParkingSpotQueryService parkingSpotQueryService, ObjectMapper objectMapper) {
+        this.parkingSpotQueryService = parkingSpotQueryService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * GET  /parking-spots/export : export all the parkingSpots, ordered by id, as newline delimited JSON or as CSV,
+     * as negotiated by the Accept header, newline delimited JSON by default. The parkingSpots are written to the
+     * response as they are read from a database cursor, neither paged nor counted.
+     *
+     * @param criteria the criterias which the exported entities should match
+     * @param accept   the Accept header
+     * @param response the response the parkingSpots are written to, with status 200 (OK)
+     * @throws IOException if the response couldn't be written
+     */
+    @GetMapping(path = "/parking-spots/export", produces = {APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public void exportParkingSpots(ParkingSpotCriteria criteria, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                   HttpServletResponse response) throws IOException {
+        log.debug("REST request to export ParkingSpots by criteria: {}", criteria);
+        boolean csv = isCsvAccepted(accept);
+        response.setContentType(new MediaType(csv ? TEXT_CSV : APPLICATION_NDJSON, StandardCharsets.UTF_8).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"parking-spots." + (csv ? "csv" : "ndjson") + "\"");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        try {
+            if (csv) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            parkingSpotQueryService.exportByCriteria(criteria, parkingSpotDTO -> {
+                try {
+                    writer.write(csv ? toCsv(parkingSpotDTO) : objectMapper.writeValueAsString(parkingSpotDTO));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return true if CSV comes before newline delimited JSON in the Accept header
+     */
+    private static boolean isCsvAccepted(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.isCompatibleWith(APPLICATION_NDJSON)) {
+                return false;
+            }
+            if (mediaType.isCompatibleWith(TEXT_CSV)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String toCsv(ParkingSpotDTO parkingSpotDTO) {
+        return String.join(",",
+            toCsv(parkingSpotDTO.getId()),
+            toCsv(parkingSpotDTO.getName()),
+            toCsv(parkingSpotDTO.isFree()),
+            toCsv(parkingSpotDTO.getVersion()),
+            toCsv(parkingSpotDTO.getOwnedAccountId()),
+            toCsv(parkingSpotDTO.getOwnedAccountLogin()),
+            toCsv(parkingSpotDTO.getZoneId()),
+            toCsv(parkingSpotDTO.getReservedUntil()),
+            toCsv(parkingSpotDTO.getX()),
+            toCsv(parkingSpotDTO.getY()),
+            toCsv(parkingSpotDTO.getAssignedTo()));
+    }
+
+    private static String toCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            // read as a formula by spreadsheets, which the quote turns back into text
+            return "\"'" + text.replace("\"", "\"\"") + '"';
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
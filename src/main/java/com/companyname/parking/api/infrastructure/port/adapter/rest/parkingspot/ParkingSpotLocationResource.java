@@ -0,0 +1,62 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.FreeParkingSpotIndex;
+import com.companyname.parking.api.application.parkingspot.NearestParkingSpotDTO;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller for finding free ParkingSpots by location.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotLocationResource {
+
+    private static final String ENTITY_NAME = "parkingSpot";
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotLocationResource.class);
+
+    private final FreeParkingSpotIndex freeParkingSpotIndex;
+
+    private final int maxResults;
+
+    public ParkingSpotLocationResource(FreeParkingSpotIndex freeParkingSpotIndex, ApplicationProperties applicationProperties) {
+        this.freeParkingSpotIndex = freeParkingSpotIndex;
+        this.maxResults = applicationProperties.getParkingSpots().getNearest().getMaxResults();
+    }
+
+    /**
+     * GET  /parking-spots/nearest : get the free parkingSpots nearest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the number of parkingSpots to get, one by default
+     * @return the ResponseEntity with status 200 (OK) and with body at most k free parkingSpots, nearest first,
+     * or with status 400 (Bad Request) if the point is not finite or out of range, or k is not valid
+     */
+    @GetMapping(path = "/parking-spots/nearest", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<List<NearestParkingSpotDTO>> getNearestParkingSpots(@RequestParam double x, @RequestParam double y,
+                                                                              @RequestParam(defaultValue = "1") int k) {
+        log.debug("REST request to get the {} free ParkingSpots nearest to ({}, {})", k, x, y);
+        if (!freeParkingSpotIndex.isInRange(x, y)) {
+            throw new BadRequestAlertException("Invalid point", ENTITY_NAME, "pointinvalid");
+        }
+        if (k < 1 || k > maxResults) {
+            throw new BadRequestAlertException("k must be between 1 and " + maxResults, ENTITY_NAME, "kinvalid");
+        }
+        return ResponseEntity.ok().body(freeParkingSpotIndex.findNearest(x, y, k));
+    }
+}
@@ -0,0 +1,72 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.occupancy.OccupancyRollupAggregator;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.domain.occupancy.OccupancyRollup;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * REST controller for the ParkingSpot occupancy over time.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotOccupancyResource {
+
+    private static final String ENTITY_NAME = "occupancyRollup";
+
+    private static final long MAX_STEPS = 50_000;
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotOccupancyResource.class);
+
+    private final OccupancyRollupAggregator occupancyRollupAggregator;
+
+    public ParkingSpotOccupancyResource(OccupancyRollupAggregator occupancyRollupAggregator) {
+        this.occupancyRollupAggregator = occupancyRollupAggregator;
+    }
+
+    /**
+     * GET  /parking-spots/occupancy : get the free and occupied counts over time.
+     *
+     * @param from the start of the range, ISO-8601
+     * @param to   the end of the range, exclusive, ISO-8601
+     * @param step the length of each step, an ISO-8601 duration of whole minutes, one minute by default
+     * @return the ResponseEntity with status 200 (OK) and with body the min/avg/max counts of each step,
+     * or with status 400 (Bad Request) if the range or the step is not valid
+     */
+    @GetMapping(path = "/parking-spots/occupancy", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<List<OccupancyRollup>> getOccupancy(@RequestParam Instant from, @RequestParam Instant to,
+                                                              @RequestParam(defaultValue = "PT1M") String step) {
+        log.debug("REST request to get the occupancy from {} to {} by {}", from, to, step);
+        Duration stepDuration;
+        try {
+            stepDuration = Duration.parse(step);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestAlertException("Invalid step", ENTITY_NAME, "stepinvalid");
+        }
+        if (stepDuration.isNegative() || stepDuration.isZero() || stepDuration.toMillis() % Duration.ofMinutes(1).toMillis() != 0) {
+            throw new BadRequestAlertException("The step must be a whole number of minutes", ENTITY_NAME, "stepinvalid");
+        }
+        if (!from.isBefore(to)) {
+            throw new BadRequestAlertException("from must be before to", ENTITY_NAME, "rangeinvalid");
+        }
+        if (Duration.between(from, to).toMillis() / stepDuration.toMillis() > MAX_STEPS) {
+            throw new BadRequestAlertException("Too many steps, use a larger step", ENTITY_NAME, "rangetoolarge");
+        }
+        return ResponseEntity.ok().body(occupancyRollupAggregator.findRollups(from, to, stepDuration));
+    }
+}
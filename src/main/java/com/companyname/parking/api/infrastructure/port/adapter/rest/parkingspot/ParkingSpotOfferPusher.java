@@ -0,0 +1,256 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotOfferDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotOfferListener;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWaitlistService;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the waitlist offers to the users they are made to, as Server-Sent Events, so waiting users do not poll.
+ * A user may hold several subscriptions, e.g. one per device, each receiving every offer event of the user.
+ * <p>
+ * The offers are made and withdrawn by the waitlist and timing wheel threads, which only queue the events: they are
+ * written by a pool of sender threads, sized like the one of the parking spot event stream, with at most one write in
+ * flight per subscriber. A subscriber with more than {@code application.parking-spots.waitlist.push-queue-size}
+ * pending events, whose write is blocked for more than {@code application.parking-spots.events.send-timeout-ms}, or
+ * whose stream fails, is dropped. It gets its pending offer again when it subscribes again.
+ */
+@Component
+public class ParkingSpotOfferPusher implements ParkingSpotOfferListener {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotOfferPusher.class);
+
+    private final ParkingSpotWaitlistService parkingSpotWaitlistService;
+
+    private final ApplicationProperties.ParkingSpots.Events properties;
+
+    private final int queueSize;
+
+    private final ConcurrentMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private ThreadPoolTaskExecutor senders;
+
+    public ParkingSpotOfferPusher(ParkingSpotWaitlistService parkingSpotWaitlistService, ApplicationProperties applicationProperties) {
+        this.parkingSpotWaitlistService = parkingSpotWaitlistService;
+        this.properties = applicationProperties.getParkingSpots().getEvents();
+        this.queueSize = Math.max(1, applicationProperties.getParkingSpots().getWaitlist().getPushQueueSize());
+    }
+
+    @PostConstruct
+    public void start() {
+        int senderThreads = Math.max(1, properties.getSenderThreads());
+        senders = new ThreadPoolTaskExecutor();
+        senders.setCorePoolSize(senderThreads);
+        senders.setMaxPoolSize(Math.max(senderThreads, properties.getMaxSenderThreads()));
+        // handed over to a new thread rather than queued behind a blocked write
+        senders.setQueueCapacity(0);
+        senders.setThreadNamePrefix("parking-spot-offers-");
+        senders.setDaemon(true);
+        senders.initialize();
+        parkingSpotWaitlistService.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        parkingSpotWaitlistService.removeListener(this);
+        senders.shutdown();
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    /**
+     * Subscribe to the offers made to a user. The pending offer, if any, is sent right away.
+     *
+     * @param login the login of the user
+     * @return the emitter of the new subscriber
+     */
+    public SseEmitter subscribe(String login) {
+        // no timeout, dead subscribers are detected by the heartbeats
+        return subscribe(login, new SseEmitter(0L));
+    }
+
+    SseEmitter subscribe(String login, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(login, emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.computeIfAbsent(login, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        parkingSpotWaitlistService.getOffer(login).ifPresent(offer -> subscriber.enqueue(new OfferEvent("offer", offer)));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void offered(ParkingSpotOfferDTO offer) {
+        push(offer.getLogin(), new OfferEvent("offer", offer));
+    }
+
+    @Override
+    public void withdrawn(ParkingSpotOfferDTO offer) {
+        push(offer.getLogin(), new OfferEvent("withdrawn", offer));
+    }
+
+    @Scheduled(fixedDelayString = "${application.parking-spots.events.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(Subscriber::enqueueHeartbeat));
+    }
+
+    /**
+     * Drop the subscribers whose write has been blocked for longer than the send timeout. Completing their stream
+     * makes the container release the blocked write.
+     */
+    @Scheduled(fixedDelayString = "${application.parking-spots.events.send-timeout-ms:5000}")
+    public void dropStalledSubscribers() {
+        long stalledSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(properties.getSendTimeoutMs());
+        subscribers.values().forEach(userSubscribers -> userSubscribers.stream()
+            .filter(subscriber -> subscriber.isSendingSince(stalledSince))
+            .forEach(subscriber -> {
+                log.debug("Parking spot offer subscriber is stalled, dropping it");
+                drop(subscriber, new IOException("Parking spot offer subscriber stalled"));
+            }));
+    }
+
+    private void push(String login, OfferEvent event) {
+        Set<Subscriber> userSubscribers = subscribers.get(login);
+        if (userSubscribers != null) {
+            userSubscribers.forEach(subscriber -> subscriber.enqueue(event));
+        }
+    }
+
+    private void drop(Subscriber subscriber, Throwable e) {
+        if (unsubscribe(subscriber)) {
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private boolean unsubscribe(Subscriber subscriber) {
+        boolean[] removed = new boolean[1];
+        subscribers.computeIfPresent(subscriber.login, (key, userSubscribers) -> {
+            removed[0] = userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+        return removed[0];
+    }
+
+    /**
+     * An offer event, or a heartbeat if it has no name.
+     */
+    private static final class OfferEvent {
+
+        private static final OfferEvent HEARTBEAT = new OfferEvent(null, null);
+
+        private final String name;
+
+        private final ParkingSpotOfferDTO offer;
+
+        private OfferEvent(String name, ParkingSpotOfferDTO offer) {
+            this.name = name;
+            this.offer = offer;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final String login;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<OfferEvent> pending = new ArrayBlockingQueue<>(queueSize);
+
+        // guarded by this
+        private boolean scheduled = false;
+
+        // System.nanoTime() when the write in flight started, or 0
+        private volatile long sendingSince = 0;
+
+        private Subscriber(String login, SseEmitter emitter) {
+            this.login = login;
+            this.emitter = emitter;
+        }
+
+        private boolean isSendingSince(long time) {
+            long since = sendingSince;
+            return since != 0 && since - time < 0;
+        }
+
+        private void enqueue(OfferEvent event) {
+            if (!pending.offer(event)) {
+                log.debug("Parking spot offer subscriber fell behind, dropping it");
+                drop(this, new IOException("Parking spot offer subscriber fell behind"));
+                return;
+            }
+            schedule();
+        }
+
+        private void enqueueHeartbeat() {
+            // any pending event keeps the connection alive as well
+            if (pending.isEmpty()) {
+                enqueue(OfferEvent.HEARTBEAT);
+            }
+        }
+
+        private synchronized void schedule() {
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            try {
+                senders.execute(this::send);
+            } catch (TaskRejectedException e) {
+                // kept pending until the next event or heartbeat
+                scheduled = false;
+            }
+        }
+
+        private void send() {
+            while (true) {
+                OfferEvent event;
+                synchronized (this) {
+                    event = pending.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                sendingSince = System.nanoTime() | 1;
+                try {
+                    if (event.name == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().name(event.name).data(event.offer, MediaType.APPLICATION_JSON));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Parking spot offer subscriber is gone: {}", e.getMessage());
+                    drop(this, e);
+                    synchronized (this) {
+                        scheduled = false;
+                    }
+                    return;
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+    }
+}
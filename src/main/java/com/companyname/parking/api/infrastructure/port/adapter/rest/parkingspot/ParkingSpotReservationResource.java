@@ -0,0 +1,66 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotReservationDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotReservationService;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ResponseUtil;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * REST controller for the time-limited reservations of ParkingSpots.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotReservationResource {
+
+    private static final String ENTITY_NAME = "parkingSpotReservation";
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotReservationResource.class);
+
+    private final ParkingSpotReservationService parkingSpotReservationService;
+
+    private final Duration maxTtl;
+
+    public ParkingSpotReservationResource(ParkingSpotReservationService parkingSpotReservationService,
+                                          ApplicationProperties applicationProperties) {
+        this.parkingSpotReservationService = parkingSpotReservationService;
+        this.maxTtl = Duration.ofMinutes(applicationProperties.getParkingSpots().getReservations().getMaxTtlMinutes());
+    }
+
+    /**
+     * POST  /parking-spots/reservations : Hold own parkingSpot for a limited time, after which it is freed on its own.
+     *
+     * @param ttl how long the parkingSpot is held, an ISO-8601 duration, 30 minutes by default
+     * @return the ResponseEntity with status 200 (OK) and with body the reservation,
+     * or with status 400 (Bad Request) if the ttl is not valid,
+     * or with status 404 (Not Found) if the current user owns no parkingSpot
+     */
+    @PostMapping(path = "/parking-spots/reservations", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.PARKING_SPOT + "\")")
+    public ResponseEntity<ParkingSpotReservationDTO> reserveOwnParkingSpot(@RequestParam(defaultValue = "PT30M") String ttl) {
+        log.debug("REST request to reserve own ParkingSpot for {}", ttl);
+        Duration ttlDuration;
+        try {
+            ttlDuration = Duration.parse(ttl);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestAlertException("Invalid ttl", ENTITY_NAME, "ttlinvalid");
+        }
+        if (ttlDuration.isNegative() || ttlDuration.isZero() || ttlDuration.compareTo(maxTtl) > 0) {
+            throw new BadRequestAlertException("The ttl must be positive and at most " + maxTtl, ENTITY_NAME, "ttlinvalid");
+        }
+        return ResponseUtil.wrapOrNotFound(parkingSpotReservationService.reserveOwnParkingSpot(ttlDuration));
+    }
+}
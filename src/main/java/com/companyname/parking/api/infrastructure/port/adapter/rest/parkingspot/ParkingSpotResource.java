@@ -1,29 +1,54 @@
 package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
 
 import com.companyname.parking.api.application.parkingspot.ParkingSpotApplicationService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotAssignmentDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotChangesDTO;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotDTO;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotStateResultDTO;
 import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotVersion;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.PayloadTooLargeException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.PreconditionFailedException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.CountMode;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ETagUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.HeaderUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.PaginationUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ResponseUtil;
+import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for managing ParkingSpot.
@@ -36,13 +61,19 @@ public class ParkingSpotResource {
 
     private static final String ENTITY_NAME = "parkingSpot";
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final ParkingSpotApplicationService parkingSpotApplicationService;
 
     private final ParkingSpotQueryService parkingSpotQueryService;
 
-    public ParkingSpotResource(ParkingSpotApplicationService parkingSpotApplicationService, ParkingSpotQueryService parkingSpotQueryService) {
+    private final int maxStates;
+
+    public ParkingSpotResource(ParkingSpotApplicationService parkingSpotApplicationService, ParkingSpotQueryService parkingSpotQueryService,
+                               ApplicationProperties applicationProperties) {
         this.parkingSpotApplicationService = parkingSpotApplicationService;
         this.parkingSpotQueryService = parkingSpotQueryService;
+        this.maxStates = applicationProperties.getParkingSpots().getIngestion().getMaxStates();
     }
 
     /**
@@ -62,6 +93,7 @@ public class ParkingSpotResource {
         ParkingSpotDTO result = parkingSpotApplicationService.save(parkingSpotDTO);
         return ResponseEntity.created(new URI("/api/parking-spots/" + result.getId()))
                 .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+                .eTag(eTag(result))
                 .body(result);
     }
 
@@ -69,37 +101,96 @@ public class ParkingSpotResource {
      * PUT  /parking-spots : Updates an existing parkingSpot.
      *
      * @param parkingSpotDTO the parkingSpotDTO to update
+     * @param ifMatch        the entity tags of which the parkingSpot must be, instead of the version of the parkingSpotDTO
      * @return the ResponseEntity with status 200 (OK) and with body the updated parkingSpotDTO,
      * or with status 400 (Bad Request) if the parkingSpotDTO is not valid,
+     * or with status 409 (Conflict) if the parkingSpot was changed since the given version was read,
+     * or with status 412 (Precondition Failed) if the parkingSpot does not match the If-Match entity tags,
      * or with status 500 (Internal Server Error) if the parkingSpotDTO couldn't be updated
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @PutMapping(path = "/parking-spots", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
-    public ResponseEntity<ParkingSpotDTO> updateParkingSpot(@Valid @RequestBody ParkingSpotDTO parkingSpotDTO) throws URISyntaxException {
+    public ResponseEntity<ParkingSpotDTO> updateParkingSpot(@Valid @RequestBody ParkingSpotDTO parkingSpotDTO,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update ParkingSpot : {}", parkingSpotDTO);
         if (parkingSpotDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
-        ParkingSpotDTO result = parkingSpotApplicationService.save(parkingSpotDTO);
+        ParkingSpotDTO result;
+        if (ifMatch != null) {
+            result = saveIfMatch(parkingSpotDTO, ifMatch);
+        } else if (parkingSpotDTO.getVersion() == null) {
+            throw new BadRequestAlertException("Invalid version", ENTITY_NAME, "versionnull");
+        } else {
+            result = parkingSpotApplicationService.save(parkingSpotDTO);
+        }
         return ResponseEntity.ok()
+                .eTag(eTag(result))
                 .body(result);
     }
 
+    /**
+     * Save the parkingSpotDTO at the current version of the parkingSpot, if it matches the entity tags. The version
+     * check of the update catches a change made after the match.
+     */
+    private ParkingSpotDTO saveIfMatch(ParkingSpotDTO parkingSpotDTO, String ifMatch) {
+        ParkingSpotVersion version = parkingSpotApplicationService.findVersion(parkingSpotDTO.getId())
+            .filter(currentVersion -> ETagUtil.strongMatch(ifMatch, eTag(currentVersion)))
+            .orElseThrow(() -> new PreconditionFailedException("The parkingSpot does not match " + ifMatch));
+        parkingSpotDTO.setVersion(version.getVersion());
+        try {
+            return parkingSpotApplicationService.save(parkingSpotDTO);
+        } catch (ConcurrencyFailureException e) {
+            throw new PreconditionFailedException("The parkingSpot does not match " + ifMatch);
+        }
+    }
+
     /**
      * GET  /parking-spots : get all the parkingSpots.
+     * <p>
+     * With an {@code after} cursor, even empty for the first page, the parkingSpots are paged by id instead of by
+     * offset, and not counted unless asked. Pages by offset are counted exactly unless asked otherwise.
      *
-     * @param pageable the pagination information
-     * @param criteria the criterias which the requested entities should match
-     * @return the ResponseEntity with status 200 (OK) and the list of parkingSpots in body
+     * @param pageable    the pagination information
+     * @param criteria    the criterias which the requested entities should match
+     * @param after       the cursor of the page, from the next link of the previous page, for keyset pagination
+     * @param count       how the parkingSpots are counted: exact, estimate or none
+     * @param ifNoneMatch the entity tags of the page already held by the client
+     * @return the ResponseEntity with status 200 (OK) and the list of parkingSpots in body,
+     * or with status 304 (Not Modified) if the page matches the If-None-Match entity tags,
+     * or with status 400 (Bad Request) if the cursor or the count is not valid
      */
     @GetMapping(path = "/parking-spots", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
-    public ResponseEntity<List<ParkingSpotDTO>> getAllParkingSpots(ParkingSpotCriteria criteria, Pageable pageable) {
+    public ResponseEntity<List<ParkingSpotDTO>> getAllParkingSpots(ParkingSpotCriteria criteria, Pageable pageable,
+                                                                   @RequestParam(required = false) String after,
+                                                                   @RequestParam(required = false) String count,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get ParkingSpots by criteria: {}", criteria);
-        Page<ParkingSpotDTO> page = parkingSpotQueryService.findByCriteria(criteria, pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/parking-spots");
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        CountMode countMode = PaginationUtil.countMode(count, after != null ? CountMode.NONE : CountMode.EXACT, ENTITY_NAME);
+        Slice<ParkingSpotDTO> page;
+        HttpHeaders headers;
+        if (after != null) {
+            page = parkingSpotQueryService.findByCriteriaAfter(criteria, PaginationUtil.decodeCursor(after, ENTITY_NAME),
+                pageable.getPageSize());
+            headers = PaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page,
+                nextCursor(page), countMode, countParkingSpots(criteria, countMode));
+        } else if (countMode == CountMode.EXACT) {
+            Page<ParkingSpotDTO> offsetPage = parkingSpotQueryService.findByCriteria(criteria, pageable);
+            headers = PaginationUtil.generatePaginationHttpHeaders(offsetPage, "/api/parking-spots");
+            page = offsetPage;
+        } else {
+            page = parkingSpotQueryService.findSliceByCriteria(criteria, pageable);
+            headers = PaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page,
+                countMode, countParkingSpots(criteria, countMode));
+        }
+        String eTag = ETagUtil.fromVersions(page, ParkingSpotDTO::getId, ParkingSpotDTO::getVersion,
+            ParkingSpotDTO::getOwnedAccountLogin);
+        if (ETagUtil.weakMatch(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(page.getContent());
     }
 
     /**
@@ -115,18 +206,51 @@ public class ParkingSpotResource {
         return ResponseEntity.ok().body(parkingSpotQueryService.countByCriteria(criteria));
     }
 
+    /**
+     * GET  /parking-spots/changes : get the parkingSpots changed and deleted since a watermark.
+     *
+     * @param since    the watermark returned by the previous call
+     * @param limit    the maximum number of changes and deletions, at most the configured max-page-size
+     * @param criteria the criterias which the changed entities should match
+     * @return the ResponseEntity with status 200 (OK) and with body the changes, the next watermark and whether more
+     * changes are to be asked from it right away,
+     * or with status 400 (Bad Request) if the watermark is too old, then all the parkingSpots have to be reloaded
+     */
+    @GetMapping(path = "/parking-spots/changes", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ParkingSpotChangesDTO> getParkingSpotChanges(@RequestParam Instant since,
+                                                                       @RequestParam(required = false) Integer limit,
+                                                                       ParkingSpotCriteria criteria) {
+        log.debug("REST request to get ParkingSpot changes since {}, limit {} by criteria: {}", since, limit, criteria);
+        ParkingSpotChangesDTO changes = parkingSpotQueryService.findChanges(criteria, since, limit)
+            .orElseThrow(() -> new BadRequestAlertException("Watermark expired, reload all parkingSpots", ENTITY_NAME, "watermarkexpired"));
+        return ResponseEntity.ok().body(changes);
+    }
+
     /**
      * GET  /parking-spots/:id : get the "id" parkingSpot.
      *
-     * @param id the id of the parkingSpotDTO to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the parkingSpotDTO, or with status 404 (Not Found)
+     * @param id          the id of the parkingSpotDTO to retrieve
+     * @param ifNoneMatch the entity tags of the parkingSpot already held by the client
+     * @return the ResponseEntity with status 200 (OK) and with body the parkingSpotDTO,
+     * or with status 304 (Not Modified) if the parkingSpot matches the If-None-Match entity tags,
+     * or with status 404 (Not Found)
      */
     @GetMapping(value = "/parking-spots/{id}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
-    public ResponseEntity<ParkingSpotDTO> getParkingSpot(@PathVariable Long id) {
+    public ResponseEntity<ParkingSpotDTO> getParkingSpot(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("REST request to get ParkingSpot : {}", id);
+        if (ifNoneMatch != null) {
+            // only the version and the owner login are read, the parkingSpot is neither loaded nor mapped
+            Optional<String> eTag = parkingSpotApplicationService.findVersion(id).map(ParkingSpotResource::eTag);
+            if (eTag.isPresent() && ETagUtil.weakMatch(ifNoneMatch, eTag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+        }
         Optional<ParkingSpotDTO> parkingSpotDTO = parkingSpotApplicationService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(parkingSpotDTO);
+        return parkingSpotDTO.map(result -> ResponseEntity.ok().eTag(eTag(result)).body(result))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     /**
@@ -146,29 +270,165 @@ public class ParkingSpotResource {
     /**
      * POST  /parking-spots/freeUp : Free own parkingSpot.
      *
-     * @return the ResponseEntity with status 200 (OK)
+     * @return the ResponseEntity with status 200 (OK), sent once the new state is acknowledged
      */
     @PostMapping("/parking-spots/freeUp")
     @PreAuthorize("hasRole(\"" + AuthoritiesConstants.PARKING_SPOT + "\")")
-    public ResponseEntity<Void> freeUpOwnParkingSpot() {
+    public CompletableFuture<ResponseEntity<Void>> freeUpOwnParkingSpot() {
         log.debug("REST request to free up own ParkingSpot.");
 
-        parkingSpotApplicationService.freeUpOwnParkingSpot();
-        return ResponseEntity.ok().build();
+        return parkingSpotApplicationService.freeUpOwnParkingSpot()
+            .thenApply(acknowledged -> ResponseEntity.ok().build());
     }
 
     /**
      * POST  /parking-spots/hold : Hold own parkingSpot.
      *
-     * @return the ResponseEntity with status 200 (OK)
+     * @return the ResponseEntity with status 200 (OK), sent once the new state is acknowledged
      */
     @PostMapping("/parking-spots/hold")
     @PreAuthorize("hasRole(\"" + AuthoritiesConstants.PARKING_SPOT + "\")")
-    public ResponseEntity<Void> holdOwnParkingSpot() {
+    public CompletableFuture<ResponseEntity<Void>> holdOwnParkingSpot() {
         log.debug("REST request to hold own ParkingSpot.");
 
-        parkingSpotApplicationService.holdOwnParkingSpot();
-        return ResponseEntity.ok().build();
+        return parkingSpotApplicationService.holdOwnParkingSpot()
+            .thenApply(acknowledged -> ResponseEntity.ok().build());
+    }
+
+    /**
+     * POST  /parking-spots/assign : Assign a free parkingSpot to the current user, and hold it.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the assignment, sent once the new state is
+     * acknowledged, or with status 404 (Not Found) if no parkingSpot is free, or with status 503 (Service Unavailable)
+     * if the free parkingSpots are not loaded yet
+     */
+    @PostMapping(path = "/parking-spots/assign", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public CompletableFuture<ResponseEntity<ParkingSpotAssignmentDTO>> assignFreeParkingSpot() {
+        log.debug("REST request to assign a free ParkingSpot.");
+
+        return parkingSpotApplicationService.assignFreeParkingSpot()
+            .thenApply(ResponseUtil::wrapOrNotFound);
+    }
+
+    /**
+     * POST  /parking-spots/assign/:id/release : Release a parkingSpot assigned to the current user, and free it.
+     *
+     * @param id the id of the assigned parkingSpot
+     * @return the ResponseEntity with status 200 (OK), sent once the new state is acknowledged, or with status 404
+     * (Not Found) if the parkingSpot is not assigned to the current user
+     */
+    @PostMapping("/parking-spots/assign/{id}/release")
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public CompletableFuture<ResponseEntity<Void>> releaseAssignedParkingSpot(@PathVariable Long id) {
+        log.debug("REST request to release assigned ParkingSpot : {}", id);
+
+        return parkingSpotApplicationService.releaseAssignedParkingSpot(id)
+            .thenApply(released -> released
+                ? ResponseEntity.ok().<Void>build()
+                : ResponseEntity.notFound().build());
+    }
+
+    /**
+     * POST  /parking-spots/states : Change the state of many parkingSpots at once.
+     * <p>
+     * The body is a JSON array of {@code {"spotId": 1, "isFree": true, "observedAt": "2020-04-01T10:00:00Z"}} entries,
+     * read as a stream without binding it to a tree. {@code observedAt} is either an ISO-8601 instant or epoch
+     * milliseconds, and defaults to the time the request is received, which also bounds it. A change observed before
+     * the last change applied to the same parkingSpot is rejected as stale, and the entries of the same parkingSpot are
+     * coalesced to the last observed one. The time of the change is the time the request is received.
+     *
+     * @param body the request body
+     * @return the ResponseEntity with status 200 (OK) and with body the result of each entry, in the same order,
+     * or with status 400 (Bad Request) if the body is not a valid array of entries, or with status 413 (Payload Too
+     * Large) if it has more than {@code application.parking-spots.ingestion.max-states} entries
+     * @throws IOException if the body couldn't be read
+     */
+    @PostMapping(path = "/parking-spots/states", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.SENSOR_GATEWAY + "\")")
+    public CompletableFuture<ResponseEntity<List<ParkingSpotStateResultDTO>>> changeParkingSpotStates(InputStream body) throws IOException {
+        log.debug("REST request to change the state of ParkingSpots");
+        String actor = SecurityUtils.getCurrentUserLogin().orElse(null);
+        List<ParkingSpotStateChange> changes = readStateChanges(body, actor, Instant.now());
+        return parkingSpotApplicationService.changeStates(changes)
+            .thenApply(results -> ResponseEntity.ok().body(results));
+    }
+
+    /**
+     * The entity tag of a parkingSpot also stands for the login of its owner, which changes without its version, like
+     * the entity tags of the pages.
+     */
+    private static String eTag(ParkingSpotDTO parkingSpotDTO) {
+        return ETagUtil.fromVersion(parkingSpotDTO.getVersion(), parkingSpotDTO.getOwnedAccountLogin());
+    }
+
+    private static String eTag(ParkingSpotVersion version) {
+        return ETagUtil.fromVersion(version.getVersion(), version.getOwnedAccountLogin());
+    }
+
+    private static String nextCursor(Slice<ParkingSpotDTO> page) {
+        return page.hasContent() ? PaginationUtil.encodeCursor(page.getContent().get(page.getNumberOfElements() - 1).getId()) : null;
+    }
+
+    private Long countParkingSpots(ParkingSpotCriteria criteria, CountMode countMode) {
+        switch (countMode) {
+            case EXACT:
+                return parkingSpotQueryService.countByCriteria(criteria);
+            case ESTIMATE:
+                return parkingSpotQueryService.estimateCountByCriteria(criteria);
+            default:
+                return null;
+        }
+    }
+
+    private List<ParkingSpotStateChange> readStateChanges(InputStream body, String actor, Instant receivedAt) throws IOException {
+        List<ParkingSpotStateChange> changes = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestAlertException("Parking spot states must be an array", ENTITY_NAME, "statesnotarray");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (changes.size() == maxStates) {
+                    throw new PayloadTooLargeException("At most " + maxStates + " parking spot states can be changed at once");
+                }
+                changes.add(readStateChange(parser, actor, receivedAt));
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new BadRequestAlertException("Parking spot states must only contain objects", ENTITY_NAME, "statesinvalid");
+            }
+        } catch (JsonProcessingException | DateTimeParseException e) {
+            throw new BadRequestAlertException("Invalid parking spot states: " + e.getMessage(), ENTITY_NAME, "statesinvalid");
+        }
+        return changes;
+    }
+
+    private ParkingSpotStateChange readStateChange(JsonParser parser, String actor, Instant receivedAt) throws IOException {
+        Long spotId = null;
+        Boolean isFree = null;
+        Instant observedAt = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("spotId".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                spotId = parser.getLongValue();
+            } else if ("isFree".equals(field) && value.isBoolean()) {
+                isFree = parser.getBooleanValue();
+            } else if ("observedAt".equals(field) && value == JsonToken.VALUE_STRING) {
+                observedAt = Instant.parse(parser.getText());
+            } else if ("observedAt".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                observedAt = Instant.ofEpochMilli(parser.getLongValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (spotId == null || isFree == null) {
+            throw new BadRequestAlertException("Every parking spot state needs a spotId and isFree", ENTITY_NAME, "statesinvalid");
+        }
+        // a sensor clock running ahead must not make the later observations stale
+        if (observedAt == null || observedAt.isAfter(receivedAt)) {
+            observedAt = receivedAt;
+        }
+        return new ParkingSpotStateChange(spotId, isFree, actor, receivedAt, observedAt);
     }
 
 }
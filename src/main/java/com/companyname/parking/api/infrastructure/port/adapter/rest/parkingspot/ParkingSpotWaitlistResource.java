@@ -0,0 +1,128 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotOfferDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWaitlistPositionDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWaitlistService;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.InternalServerErrorException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ResponseUtil;
+import com.companyname.parking.api.infrastructure.security.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller for the waitlist of the users waiting for a ParkingSpot.
+ */
+@RestController
+@RequestMapping
+public class ParkingSpotWaitlistResource {
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotWaitlistResource.class);
+
+    private final ParkingSpotWaitlistService parkingSpotWaitlistService;
+
+    private final ParkingSpotOfferPusher parkingSpotOfferPusher;
+
+    public ParkingSpotWaitlistResource(ParkingSpotWaitlistService parkingSpotWaitlistService, ParkingSpotOfferPusher parkingSpotOfferPusher) {
+        this.parkingSpotWaitlistService = parkingSpotWaitlistService;
+        this.parkingSpotOfferPusher = parkingSpotOfferPusher;
+    }
+
+    /**
+     * POST  /parking-spots/waitlist : Join the waitlist, unless already in it.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the position of the current user
+     */
+    @PostMapping(path = "/parking-spots/waitlist", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ParkingSpotWaitlistPositionDTO> joinWaitlist() {
+        log.debug("REST request to join the waitlist");
+        return ResponseEntity.ok().body(parkingSpotWaitlistService.join(currentUserLogin()));
+    }
+
+    /**
+     * GET  /parking-spots/waitlist : get the position of the current user in the waitlist.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the position,
+     * or with status 404 (Not Found) if the current user is not in the waitlist
+     */
+    @GetMapping(path = "/parking-spots/waitlist", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ParkingSpotWaitlistPositionDTO> getWaitlistPosition() {
+        log.debug("REST request to get the waitlist position");
+        return ResponseUtil.wrapOrNotFound(parkingSpotWaitlistService.getPosition(currentUserLogin()));
+    }
+
+    /**
+     * DELETE  /parking-spots/waitlist : Leave the waitlist.
+     *
+     * @return the ResponseEntity with status 200 (OK), or with status 404 (Not Found) if the current user is not in
+     * the waitlist
+     */
+    @DeleteMapping("/parking-spots/waitlist")
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<Void> leaveWaitlist() {
+        log.debug("REST request to leave the waitlist");
+        if (!parkingSpotWaitlistService.leave(currentUserLogin())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * GET  /parking-spots/waitlist/offers : stream the offers made to the current user as Server-Sent Events.
+     * <p>
+     * An {@code offer} event is sent with the pending offer on subscription and with every new offer, and a
+     * {@code withdrawn} event when an offer ends without being accepted.
+     *
+     * @return the event stream
+     */
+    @GetMapping(path = "/parking-spots/waitlist/offers", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public SseEmitter streamOffers() {
+        log.debug("REST request to stream the waitlist offers");
+        return parkingSpotOfferPusher.subscribe(currentUserLogin());
+    }
+
+    /**
+     * POST  /parking-spots/waitlist/offers/{spotId}/accept : Accept an offer, the parkingSpot stays held.
+     *
+     * @param spotId the id of the offered parkingSpot
+     * @return the ResponseEntity with status 200 (OK) and with body the accepted offer,
+     * or with status 404 (Not Found) if there is no pending offer of that parkingSpot to the current user
+     */
+    @PostMapping(path = "/parking-spots/waitlist/offers/{spotId}/accept", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ParkingSpotOfferDTO> acceptOffer(@PathVariable Long spotId) {
+        log.debug("REST request to accept the offer of ParkingSpot : {}", spotId);
+        return ResponseUtil.wrapOrNotFound(parkingSpotWaitlistService.accept(currentUserLogin(), spotId));
+    }
+
+    /**
+     * POST  /parking-spots/waitlist/offers/{spotId}/decline : Decline an offer, the parkingSpot goes to the next user.
+     *
+     * @param spotId the id of the offered parkingSpot
+     * @return the ResponseEntity with status 200 (OK) and with body the declined offer,
+     * or with status 404 (Not Found) if there is no pending offer of that parkingSpot to the current user
+     */
+    @PostMapping(path = "/parking-spots/waitlist/offers/{spotId}/decline", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ParkingSpotOfferDTO> declineOffer(@PathVariable Long spotId) {
+        log.debug("REST request to decline the offer of ParkingSpot : {}", spotId);
+        return ResponseUtil.wrapOrNotFound(parkingSpotWaitlistService.decline(currentUserLogin(), spotId));
+    }
+
+    private static String currentUserLogin() {
+        return SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new InternalServerErrorException("Current user login not found"));
+    }
+}
@@ -10,6 +10,7 @@ import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.u
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.EmailAlreadyUsedException;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.LoginAlreadyUsedException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.CountMode;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.HeaderUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.PaginationUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ResponseUtil;
@@ -17,11 +18,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.net.URI;
@@ -133,17 +136,51 @@ public class UserResource {
 
     /**
      * GET /users : get all users.
+     * <p>
+     * With an {@code after} cursor, even empty for the first page, the users are paged by id instead of by offset,
+     * and not counted unless asked. Pages by offset are counted exactly unless asked otherwise.
      *
      * @param pageable the pagination information
-     * @return the ResponseEntity with status 200 (OK) and with body all users
+     * @param after    the cursor of the page, from the next link of the previous page, for keyset pagination
+     * @param count    how the users are counted: exact, estimate or none
+     * @return the ResponseEntity with status 200 (OK) and with body all users,
+     * or with status 400 (Bad Request) if the cursor or the count is not valid
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserDTO>> getAllUsers(Pageable pageable) {
+    public ResponseEntity<List<UserDTO>> getAllUsers(Pageable pageable, @RequestParam(required = false) String after,
+                                                     @RequestParam(required = false) String count) {
+        CountMode countMode = PaginationUtil.countMode(count, after != null ? CountMode.NONE : CountMode.EXACT, "userManagement");
+        if (after != null) {
+            final Slice<UserDTO> slice = userService.getAllManagedUsersAfter(PaginationUtil.decodeCursor(after, "userManagement"),
+                pageable.getPageSize());
+            String nextCursor = slice.hasContent()
+                ? PaginationUtil.encodeCursor(slice.getContent().get(slice.getNumberOfElements() - 1).getId()) : null;
+            HttpHeaders headers = PaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(),
+                slice, nextCursor, countMode, countUsers(countMode));
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        if (countMode != CountMode.EXACT) {
+            final Slice<UserDTO> slice = userService.getAllManagedUsersSlice(pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(),
+                slice, countMode, countUsers(countMode));
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         final Page<UserDTO> page = userService.getAllManagedUsers(pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/users");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    private Long countUsers(CountMode countMode) {
+        switch (countMode) {
+            case EXACT:
+                return userService.countManagedUsers();
+            case ESTIMATE:
+                return userService.estimateCountManagedUsers();
+            default:
+                return null;
+        }
+    }
+
     /**
      * @return a string list of the all of the roles
      */
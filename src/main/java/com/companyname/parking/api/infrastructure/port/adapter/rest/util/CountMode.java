@@ -0,0 +1,38 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.util;
+
+import java.util.Locale;
+
+/**
+ * How the total number of elements of a paginated list is counted, chosen by the {@code count} request parameter.
+ */
+public enum CountMode {
+
+    /**
+     * Counted exactly, by a {@code COUNT(*)} of the matching rows.
+     */
+    EXACT,
+
+    /**
+     * Estimated cheaply, from the occupancy in memory or a recently cached count, the page itself being read as a
+     * slice.
+     */
+    ESTIMATE,
+
+    /**
+     * Not counted at all, the page being read as a slice, with one more row telling if there is a next page.
+     */
+    NONE;
+
+    /**
+     * @param value       the value of the {@code count} request parameter, case insensitive, may be null
+     * @param defaultMode the mode if no value is given
+     * @return the count mode
+     * @throws IllegalArgumentException if the value is not a count mode
+     */
+    public static CountMode of(String value, CountMode defaultMode) {
+        if (value == null || value.isEmpty()) {
+            return defaultMode;
+        }
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
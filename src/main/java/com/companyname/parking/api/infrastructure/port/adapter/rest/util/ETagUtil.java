@@ -0,0 +1,108 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.util;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Utility class for entity tags, derived from the version column of the entities, which every update increments.
+ *
+ * <p>
+ * Conditional requests follow <a href="https://tools.ietf.org/html/rfc7232">RFC 7232</a>: {@code If-None-Match}
+ * uses the weak comparison, {@code If-Match} the strong one.
+ */
+public final class ETagUtil {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETagUtil() {
+    }
+
+    /**
+     * @param version     the version of an entity
+     * @param unversioned a value of the entity read from an associated entity, so its version does not change with
+     *                    it, may be null
+     * @return the strong entity tag of the entity, which changes when it or its unversioned value is updated
+     */
+    public static String fromVersion(long version, String unversioned) {
+        return "\"" + Long.toHexString(mix(mix(FNV_OFFSET_BASIS, version), unversioned)) + "\"";
+    }
+
+    /**
+     * @param page        a page of entities, with its total if it is a {@link Page}
+     * @param id          the id of an entity
+     * @param version     the version of an entity
+     * @param unversioned a value of an entity read from an associated entity, so its version does not change with it,
+     *                    may be null
+     * @return the strong entity tag of the page, which changes when an entity of the page or its unversioned value is
+     * updated, or when the page holds other entities
+     */
+    public static <T> String fromVersions(Slice<T> page, ToLongFunction<T> id, ToLongFunction<T> version,
+                                          Function<T, String> unversioned) {
+        long total = page instanceof Page ? ((Page<T>) page).getTotalElements() : -1;
+        long hash = mix(mix(mix(mix(FNV_OFFSET_BASIS, total), page.getNumber()), page.getSize()), page.hasNext() ? 1 : 0);
+        for (T entity : page.getContent()) {
+            hash = mix(mix(mix(hash, id.applyAsLong(entity)), version.applyAsLong(entity)), unversioned.apply(entity));
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * @param ifNoneMatch the value of an {@code If-None-Match} header, may be null
+     * @param eTag        the current entity tag
+     * @return true if the header matches the entity tag, weak tags included, so the response is not modified
+     */
+    public static boolean weakMatch(String ifNoneMatch, String eTag) {
+        return matches(ifNoneMatch, eTag, true);
+    }
+
+    /**
+     * @param ifMatch the value of an {@code If-Match} header, may be null
+     * @param eTag    the current entity tag
+     * @return true if the header matches the entity tag, weak tags excluded, so the request may proceed
+     */
+    public static boolean strongMatch(String ifMatch, String eTag) {
+        return matches(ifMatch, eTag, false);
+    }
+
+    private static boolean matches(String header, String eTag, boolean weak) {
+        if (header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (weak && tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        // prefixed with its length, so consecutive values cannot be split another way
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++, value >>>= 8) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -1,18 +1,37 @@
 package com.companyname.parking.api.infrastructure.port.adapter.rest.util;
 
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
 /**
  * Utility class for handling pagination.
  *
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">GitHub API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ *
+ * <p>
+ * Keyset pagination pages by an opaque cursor, {@code ?after=<cursor>&size=}, which encodes the id of the last element
+ * of the previous page, the first page being asked with an empty cursor. The next page is then read from the index of
+ * the ids, so a deep page costs as much as the first one, and the total is only counted on demand.
+ *
+ * <p>
+ * Offset pages may also skip the count, by the {@link CountMode} of the request: exact pages get all the links and
+ * the {@code X-Total-Count} header, estimated pages the {@code X-Total-Count-Estimate} header instead, and neither
+ * links to the last page, which is unknown.
  */
 public final class PaginationUtil {
 
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
     private PaginationUtil() {
     }
 
@@ -39,6 +58,123 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the headers of a page read as a slice, without an exact count: the {@code Link} header with the next,
+     * previous and first pages, and the total as counted by the count mode.
+     *
+     * @param uriBuilder the builder of the URI of the current request, with its other query parameters
+     * @param slice      the page
+     * @param countMode  how the total was counted
+     * @param total      the total number of elements, or null if it was not counted
+     * @return the headers
+     */
+    public static <T> HttpHeaders generateSliceHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice, CountMode countMode,
+                                                           Long total) {
+        HttpHeaders headers = new HttpHeaders();
+        addTotalCount(headers, countMode, total);
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateSliceUri(uriBuilder, slice.getNumber() + 1, slice.getSize()) + ">; rel=\"next\",";
+        }
+        if (slice.getNumber() > 0) {
+            link += "<" + generateSliceUri(uriBuilder, slice.getNumber() - 1, slice.getSize()) + ">; rel=\"prev\",";
+        }
+        link += "<" + generateSliceUri(uriBuilder, 0, slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Generate the headers of a page of keyset pagination: the {@code Link} header with the next and first pages,
+     * and the total as counted by the count mode.
+     *
+     * @param uriBuilder the builder of the URI of the current request, with its other query parameters
+     * @param slice      the page
+     * @param nextCursor the cursor of the next page, after the last element of the page
+     * @param countMode  how the total was counted
+     * @param total      the total number of elements, or null if it was not counted
+     * @return the headers
+     */
+    public static <T> HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice, String nextCursor,
+                                                            CountMode countMode, Long total) {
+        HttpHeaders headers = new HttpHeaders();
+        addTotalCount(headers, countMode, total);
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateKeysetUri(uriBuilder, nextCursor, slice.getSize()) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(uriBuilder, "", slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * @param id the id of the last element of a page
+     * @return the opaque cursor of the next page
+     */
+    public static String encodeCursor(long id) {
+        return CURSOR_ENCODER.encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+    }
+
+    /**
+     * @param cursor     the cursor of a page, empty for the first page
+     * @param entityName the name of the listed entity, for the error
+     * @return the id after which the page starts, or null for the first page
+     * @throws BadRequestAlertException if the cursor is not valid
+     */
+    public static Long decodeCursor(String cursor, String entityName) {
+        if (cursor.isEmpty()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = CURSOR_DECODER.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = new byte[0];
+        }
+        if (bytes.length != Long.BYTES) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+
+    /**
+     * @param count       the {@code count} parameter of the request, may be null
+     * @param defaultMode the count mode if the parameter is missing
+     * @param entityName  the name of the listed entity, for the error
+     * @return the count mode of the request
+     * @throws BadRequestAlertException if the count mode is not valid
+     */
+    public static CountMode countMode(String count, CountMode defaultMode, String entityName) {
+        try {
+            return CountMode.of(count, defaultMode);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid count: " + count, entityName, "countinvalid");
+        }
+    }
+
+    private static void addTotalCount(HttpHeaders headers, CountMode countMode, Long total) {
+        if (total == null) {
+            return;
+        }
+        if (countMode == CountMode.EXACT) {
+            headers.add("X-Total-Count", Long.toString(total));
+        } else if (countMode == CountMode.ESTIMATE) {
+            headers.add("X-Total-Count-Estimate", Long.toString(total));
+        }
+    }
+
+    private static String generateKeysetUri(UriComponentsBuilder uriBuilder, String cursor, int size) {
+        // keyset pages are ordered by id, whatever the page and sort parameters
+        return uriBuilder.cloneBuilder().replaceQueryParam("page").replaceQueryParam("sort")
+            .replaceQueryParam("after", cursor).replaceQueryParam("size", size).toUriString();
+    }
+
+    private static String generateSliceUri(UriComponentsBuilder uriBuilder, int page, int size) {
+        // the count mode and the criteria are kept
+        return uriBuilder.cloneBuilder().replaceQueryParam("page", page).replaceQueryParam("size", size).toUriString();
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
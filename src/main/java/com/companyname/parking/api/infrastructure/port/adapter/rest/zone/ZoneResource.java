@@ -0,0 +1,145 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.zone;
+
+import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.application.user.AuthoritiesConstants;
+import com.companyname.parking.api.application.zone.ZoneApplicationService;
+import com.companyname.parking.api.application.zone.ZoneDTO;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.BadRequestAlertException;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.HeaderUtil;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.PaginationUtil;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ResponseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import javax.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * REST controller for managing Zone.
+ */
+@RestController
+@RequestMapping
+public class ZoneResource {
+
+    private final Logger log = LoggerFactory.getLogger(ZoneResource.class);
+
+    private static final String ENTITY_NAME = "zone";
+
+    private final ZoneApplicationService zoneApplicationService;
+
+    public ZoneResource(ZoneApplicationService zoneApplicationService) {
+        this.zoneApplicationService = zoneApplicationService;
+    }
+
+    /**
+     * POST  /zones : Create a new zone.
+     *
+     * @param zoneDTO the zoneDTO to create
+     * @return the ResponseEntity with status 201 (Created) and with body the new zoneDTO, or with status 400 (Bad Request) if the zone has already an ID
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @PostMapping(path = "/zones", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ZoneDTO> createZone(@Valid @RequestBody ZoneDTO zoneDTO) throws URISyntaxException {
+        log.debug("REST request to save Zone : {}", zoneDTO);
+        if (zoneDTO.getId() != null) {
+            throw new BadRequestAlertException("A new zone cannot already have an ID", ENTITY_NAME, "idexists");
+        }
+        ZoneDTO result = zoneApplicationService.save(zoneDTO);
+        return ResponseEntity.created(new URI("/api/zones/" + result.getId()))
+                .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+                .body(result);
+    }
+
+    /**
+     * PUT  /zones : Updates an existing zone.
+     *
+     * @param zoneDTO the zoneDTO to update
+     * @return the ResponseEntity with status 200 (OK) and with body the updated zoneDTO,
+     * or with status 400 (Bad Request) if the zoneDTO is not valid
+     */
+    @PutMapping(path = "/zones", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ZoneDTO> updateZone(@Valid @RequestBody ZoneDTO zoneDTO) {
+        log.debug("REST request to update Zone : {}", zoneDTO);
+        if (zoneDTO.getId() == null) {
+            throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
+        }
+        ZoneDTO result = zoneApplicationService.save(zoneDTO);
+        return ResponseEntity.ok()
+                .headers(HeaderUtil.createEntityUpdateAlert(ENTITY_NAME, zoneDTO.getId().toString()))
+                .body(result);
+    }
+
+    /**
+     * GET  /zones : get all the zones.
+     *
+     * @param pageable the pagination information
+     * @return the ResponseEntity with status 200 (OK) and the list of zones in body
+     */
+    @GetMapping(path = "/zones", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<List<ZoneDTO>> getAllZones(Pageable pageable) {
+        log.debug("REST request to get a page of Zones");
+        Page<ZoneDTO> page = zoneApplicationService.findAll(pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/zones");
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * GET  /zones/:id : get the "id" zone.
+     *
+     * @param id the id of the zoneDTO to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the zoneDTO, or with status 404 (Not Found)
+     */
+    @GetMapping(path = "/zones/{id}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.USER + "\")")
+    public ResponseEntity<ZoneDTO> getZone(@PathVariable Long id) {
+        log.debug("REST request to get Zone : {}", id);
+        Optional<ZoneDTO> zoneDTO = zoneApplicationService.findOne(id);
+        return ResponseUtil.wrapOrNotFound(zoneDTO);
+    }
+
+    /**
+     * GET  /zones/:id/count : count the parkingSpots of the "id" zone, from in-memory counters.
+     *
+     * @param id     the id of the zone
+     * @param isFree count only the free, or only the held, parkingSpots
+     * @return the ResponseEntity with status 200 (OK) and the count in body, or with status 404 (Not Found)
+     */
+    @GetMapping(path = "/zones/{id}/count", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @PreAuthorize("hasAnyRole(\"" + AuthoritiesConstants.USER + "\", \"" + AuthoritiesConstants.GATE + "\")")
+    public ResponseEntity<Long> countZoneParkingSpots(@PathVariable Long id,
+                                                      @RequestParam(name = "isFree.equals", required = false) Boolean isFree) {
+        log.debug("REST request to count the ParkingSpots of Zone : {}", id);
+        BooleanFilter isFreeFilter = null;
+        if (isFree != null) {
+            isFreeFilter = new BooleanFilter();
+            isFreeFilter.setEquals(isFree);
+        }
+        return ResponseUtil.wrapOrNotFound(zoneApplicationService.countParkingSpots(id, isFreeFilter));
+    }
+
+    /**
+     * DELETE  /zones/:id : delete the "id" zone.
+     *
+     * @param id the id of the zoneDTO to delete
+     * @return the ResponseEntity with status 200 (OK)
+     */
+    @DeleteMapping("/zones/{id}")
+    @PreAuthorize("hasRole(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> deleteZone(@PathVariable Long id) {
+        log.debug("REST request to delete Zone : {}", id);
+        zoneApplicationService.delete(id);
+        return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id.toString())).build();
+    }
+}
@@ -0,0 +1,240 @@
+package com.companyname.parking.api.infrastructure.port.adapter.udp.parkingspot;
+
+import com.companyname.parking.api.application.parkingspot.ParkingSpotApplicationService;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.user.UserConstants;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import io.jsonwebtoken.io.Decoders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UDP listener for the state reported by parking spot sensors.
+ * <p>
+ * Every datagram is a fixed-width, big-endian frame of {@value #FRAME_SIZE} bytes:
+ * <pre>
+ *  0  spot id           8 bytes
+ *  8  observed at       6 bytes, epoch milliseconds
+ * 14  state             1 byte, 1 for free and 0 for held
+ * 15  reserved          1 byte
+ * 16  HMAC-SHA256 of bytes 0-15 with the key of the spot, truncated to 16 bytes
+ * </pre>
+ * The key of a spot is derived from the master secret, see {@link #deriveSpotKey(byte[], long)}, so a sensor can only
+ * report the state of its own spot. Frames are received by a single thread into one reused buffer. Frames with a
+ * wrong size or signature, or observed more than {@code max-age-ms} away from now, are dropped. The others are queued,
+ * and applied every {@code flush-interval-ms} through {@link ParkingSpotApplicationService#changeStates} in one
+ * transaction, like the states posted by sensor gateways. The observation time is recorded with the state, so a
+ * replayed or reordered frame, observed before the last state applied to the spot, is rejected as stale by the
+ * database, on any node and across restarts.
+ */
+@Component
+public class ParkingSpotStateDatagramListener {
+
+    public static final int FRAME_SIZE = 32;
+
+    private static final int PAYLOAD_SIZE = 16;
+
+    private static final int SPOT_ID_SIZE = 8;
+
+    private static final int OBSERVED_AT_OFFSET = 8;
+
+    private static final int STATE_OFFSET = 14;
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Logger log = LoggerFactory.getLogger(ParkingSpotStateDatagramListener.class);
+
+    private final ParkingSpotApplicationService parkingSpotApplicationService;
+
+    private final ApplicationProperties.ParkingSpots.Ingestion.Udp properties;
+
+    private final int batchSize;
+
+    private final BlockingQueue<ParkingSpotStateChange> decoded;
+
+    // one byte larger than a frame, so that oversized datagrams are not silently truncated to a valid size
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_SIZE + 1);
+
+    private final byte[] payload = new byte[PAYLOAD_SIZE];
+
+    private final byte[] spotKey = new byte[32];
+
+    private final byte[] signature = new byte[32];
+
+    private Mac masterMac;
+
+    private Mac spotMac;
+
+    private DatagramChannel channel;
+
+    private Thread receiver;
+
+    private volatile boolean running = false;
+
+    public ParkingSpotStateDatagramListener(ParkingSpotApplicationService parkingSpotApplicationService,
+                                            ApplicationProperties applicationProperties) {
+        this.parkingSpotApplicationService = parkingSpotApplicationService;
+        this.properties = applicationProperties.getParkingSpots().getIngestion().getUdp();
+        this.batchSize = Math.max(1, applicationProperties.getParkingSpots().getIngestion().getBatchSize());
+        this.decoded = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+    }
+
+    /**
+     * Derive the key a sensor signs its frames with.
+     *
+     * @param masterKey the master secret
+     * @param spotId    the id of the parking spot of the sensor
+     * @return HMAC-SHA256 of the big-endian spot id with the master secret
+     */
+    public static byte[] deriveSpotKey(byte[] masterKey, long spotId) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(masterKey, HMAC_ALGORITHM));
+        return mac.doFinal(ByteBuffer.allocate(SPOT_ID_SIZE).putLong(spotId).array());
+    }
+
+    /**
+     * Start listening once the application is up, alongside the servlet container.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException, GeneralSecurityException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (StringUtils.isEmpty(properties.getBase64Secret())) {
+            throw new IllegalStateException("application.parking-spots.ingestion.udp.base64-secret is required when UDP ingestion is enabled");
+        }
+        masterMac = Mac.getInstance(HMAC_ALGORITHM);
+        masterMac.init(new SecretKeySpec(Decoders.BASE64.decode(properties.getBase64Secret()), HMAC_ALGORITHM));
+        spotMac = Mac.getInstance(HMAC_ALGORITHM);
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(properties.getHost(), properties.getPort()));
+        running = true;
+        receiver = new Thread(this::run, "parking-spot-udp");
+        receiver.setDaemon(true);
+        receiver.start();
+        log.info("Listening for parking spot states on UDP {}", channel.getLocalAddress());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (receiver == null) {
+            return;
+        }
+        running = false;
+        // closing the channel releases the blocked receive
+        channel.close();
+        receiver.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    /**
+     * Apply the queued states, in transactions of at most {@code application.parking-spots.ingestion.batch-size}
+     * states.
+     */
+    @Scheduled(fixedDelayString = "${application.parking-spots.ingestion.udp.flush-interval-ms:50}")
+    public void flush() {
+        List<ParkingSpotStateChange> changes = new ArrayList<>(Math.min(batchSize, decoded.size()));
+        while (decoded.drainTo(changes, batchSize) > 0) {
+            int count = changes.size();
+            try {
+                parkingSpotApplicationService.changeStates(changes)
+                    .whenComplete((results, e) -> {
+                        if (e != null) {
+                            log.warn("Could not apply {} parking spot states reported over UDP", count, e);
+                        }
+                    });
+            } catch (RuntimeException e) {
+                log.warn("Could not apply {} parking spot states reported over UDP", count, e);
+            }
+            changes = new ArrayList<>(Math.min(batchSize, decoded.size()));
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                handle(buffer, Instant.now());
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not handle parking spot state datagram", e);
+            }
+        }
+    }
+
+    /**
+     * Verify and decode a frame, and queue its state.
+     *
+     * @param frame      the received datagram
+     * @param receivedAt the time it was received
+     * @return true if the frame was queued
+     */
+    boolean handle(ByteBuffer frame, Instant receivedAt) {
+        if (frame.remaining() != FRAME_SIZE) {
+            log.debug("Dropped parking spot state datagram of {} bytes", frame.remaining());
+            return false;
+        }
+        frame.get(payload);
+        try {
+            masterMac.update(payload, 0, SPOT_ID_SIZE);
+            masterMac.doFinal(spotKey, 0);
+            spotMac.init(new SecretKeySpec(spotKey, HMAC_ALGORITHM));
+            spotMac.update(payload);
+            spotMac.doFinal(signature, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        // constant time comparison
+        int difference = 0;
+        for (int i = 0; i < FRAME_SIZE - PAYLOAD_SIZE; i++) {
+            difference |= signature[i] ^ frame.get(PAYLOAD_SIZE + i);
+        }
+        if (difference != 0) {
+            log.debug("Dropped parking spot state datagram with an invalid signature");
+            return false;
+        }
+        long spotId = frame.getLong(0);
+        long observedAt = frame.getLong(OBSERVED_AT_OFFSET) >>> 16;
+        byte state = frame.get(STATE_OFFSET);
+        if (state != 0 && state != 1) {
+            log.debug("Dropped parking spot state datagram with an invalid state {}", state);
+            return false;
+        }
+        if (Math.abs(receivedAt.toEpochMilli() - observedAt) > properties.getMaxAgeMs()) {
+            log.debug("Dropped parking spot state datagram for ParkingSpot {} observed at {}", spotId, observedAt);
+            return false;
+        }
+        // a sensor clock running ahead must not make the later observations stale
+        Instant observed = Instant.ofEpochMilli(Math.min(observedAt, receivedAt.toEpochMilli()));
+        ParkingSpotStateChange change = new ParkingSpotStateChange(spotId, state == 1, UserConstants.SYSTEM_ACCOUNT, receivedAt, observed);
+        if (!decoded.offer(change)) {
+            log.warn("Dropped parking spot state datagram for ParkingSpot {}, too many states are waiting to be applied", spotId);
+            return false;
+        }
+        return true;
+    }
+}
@@ -17,6 +17,10 @@ public class ApplicationProperties {
 
     private final CorsConfiguration cors = new CorsConfiguration();
 
+    private final ParkingSpots parkingSpots = new ParkingSpots();
+
+    private final Pagination pagination = new Pagination();
+
     public Async getAsync() {
         return async;
     }
@@ -37,6 +41,37 @@ public class ApplicationProperties {
         return cors;
     }
 
+    public ParkingSpots getParkingSpots() {
+        return parkingSpots;
+    }
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public static class Pagination {
+
+        private long countEstimateTtlMs = 30000;
+
+        private int countEstimateMaxEntries = 1000;
+
+        public long getCountEstimateTtlMs() {
+            return countEstimateTtlMs;
+        }
+
+        public void setCountEstimateTtlMs(long countEstimateTtlMs) {
+            this.countEstimateTtlMs = countEstimateTtlMs;
+        }
+
+        public int getCountEstimateMaxEntries() {
+            return countEstimateMaxEntries;
+        }
+
+        public void setCountEstimateMaxEntries(int countEstimateMaxEntries) {
+            this.countEstimateMaxEntries = countEstimateMaxEntries;
+        }
+    }
+
     public static class Mail {
 
         private boolean enabled = false;
@@ -316,4 +351,621 @@ public class ApplicationProperties {
             this.useDefaultResponseMessages = useDefaultResponseMessages;
         }
     }
+
+    public static class ParkingSpots {
+
+        private final WriteBehind writeBehind = new WriteBehind();
+
+        private final GroupCommit groupCommit = new GroupCommit();
+
+        private final Ingestion ingestion = new Ingestion();
+
+        private final Events events = new Events();
+
+        private final LongPoll longPoll = new LongPoll();
+
+        private final EventLog eventLog = new EventLog();
+
+        private final Rollups rollups = new Rollups();
+
+        private final Reservations reservations = new Reservations();
+
+        private final Nearest nearest = new Nearest();
+
+        private final Assignment assignment = new Assignment();
+
+        private final Waitlist waitlist = new Waitlist();
+
+        private final Changes changes = new Changes();
+
+        private final Export export = new Export();
+
+        private final Occupancy occupancy = new Occupancy();
+
+        private final Gates gates = new Gates();
+
+        public WriteBehind getWriteBehind() {
+            return writeBehind;
+        }
+
+        public GroupCommit getGroupCommit() {
+            return groupCommit;
+        }
+
+        public Ingestion getIngestion() {
+            return ingestion;
+        }
+
+        public Events getEvents() {
+            return events;
+        }
+
+        public LongPoll getLongPoll() {
+            return longPoll;
+        }
+
+        public EventLog getEventLog() {
+            return eventLog;
+        }
+
+        public Rollups getRollups() {
+            return rollups;
+        }
+
+        public Reservations getReservations() {
+            return reservations;
+        }
+
+        public Nearest getNearest() {
+            return nearest;
+        }
+
+        public Assignment getAssignment() {
+            return assignment;
+        }
+
+        public Waitlist getWaitlist() {
+            return waitlist;
+        }
+
+        public Changes getChanges() {
+            return changes;
+        }
+
+        public Export getExport() {
+            return export;
+        }
+
+        public Occupancy getOccupancy() {
+            return occupancy;
+        }
+
+        public Gates getGates() {
+            return gates;
+        }
+
+        public static class WriteBehind {
+
+            private boolean enabled = false;
+
+            private long flushIntervalMs = 100;
+
+            private int batchSize = 500;
+
+            private int maxRetries = 5;
+
+            private long maxBackoffMs = 5000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getFlushIntervalMs() {
+                return flushIntervalMs;
+            }
+
+            public void setFlushIntervalMs(long flushIntervalMs) {
+                this.flushIntervalMs = flushIntervalMs;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public int getMaxRetries() {
+                return maxRetries;
+            }
+
+            public void setMaxRetries(int maxRetries) {
+                this.maxRetries = maxRetries;
+            }
+
+            public long getMaxBackoffMs() {
+                return maxBackoffMs;
+            }
+
+            public void setMaxBackoffMs(long maxBackoffMs) {
+                this.maxBackoffMs = maxBackoffMs;
+            }
+        }
+
+        public static class GroupCommit {
+
+            private boolean enabled = false;
+
+            private long windowMs = 2;
+
+            private int maxBatchSize = 500;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getWindowMs() {
+                return windowMs;
+            }
+
+            public void setWindowMs(long windowMs) {
+                this.windowMs = windowMs;
+            }
+
+            public int getMaxBatchSize() {
+                return maxBatchSize;
+            }
+
+            public void setMaxBatchSize(int maxBatchSize) {
+                this.maxBatchSize = maxBatchSize;
+            }
+        }
+
+        public static class Ingestion {
+
+            private int batchSize = 500;
+
+            private int maxStates = 10000;
+
+            private final Udp udp = new Udp();
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public int getMaxStates() {
+                return maxStates;
+            }
+
+            public void setMaxStates(int maxStates) {
+                this.maxStates = maxStates;
+            }
+
+            public Udp getUdp() {
+                return udp;
+            }
+
+            public static class Udp {
+
+                private boolean enabled = false;
+
+                private String host = "0.0.0.0";
+
+                private int port = 9876;
+
+                private String base64Secret = null;
+
+                private long maxAgeMs = 60000;
+
+                private int queueCapacity = 10000;
+
+                private long flushIntervalMs = 50;
+
+                public boolean isEnabled() {
+                    return enabled;
+                }
+
+                public void setEnabled(boolean enabled) {
+                    this.enabled = enabled;
+                }
+
+                public String getHost() {
+                    return host;
+                }
+
+                public void setHost(String host) {
+                    this.host = host;
+                }
+
+                public int getPort() {
+                    return port;
+                }
+
+                public void setPort(int port) {
+                    this.port = port;
+                }
+
+                public String getBase64Secret() {
+                    return base64Secret;
+                }
+
+                public void setBase64Secret(String base64Secret) {
+                    this.base64Secret = base64Secret;
+                }
+
+                public long getMaxAgeMs() {
+                    return maxAgeMs;
+                }
+
+                public void setMaxAgeMs(long maxAgeMs) {
+                    this.maxAgeMs = maxAgeMs;
+                }
+
+                public int getQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                public void setQueueCapacity(int queueCapacity) {
+                    this.queueCapacity = queueCapacity;
+                }
+
+                public long getFlushIntervalMs() {
+                    return flushIntervalMs;
+                }
+
+                public void setFlushIntervalMs(long flushIntervalMs) {
+                    this.flushIntervalMs = flushIntervalMs;
+                }
+            }
+        }
+
+        public static class Events {
+
+            private int bufferSize = 256;
+
+            private int senderThreads = 2;
+
+            private int maxSenderThreads = 32;
+
+            private long sendTimeoutMs = 5000;
+
+            private long heartbeatIntervalMs = 15000;
+
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                this.bufferSize = bufferSize;
+            }
+
+            public int getSenderThreads() {
+                return senderThreads;
+            }
+
+            public void setSenderThreads(int senderThreads) {
+                this.senderThreads = senderThreads;
+            }
+
+            public int getMaxSenderThreads() {
+                return maxSenderThreads;
+            }
+
+            public void setMaxSenderThreads(int maxSenderThreads) {
+                this.maxSenderThreads = maxSenderThreads;
+            }
+
+            public long getSendTimeoutMs() {
+                return sendTimeoutMs;
+            }
+
+            public void setSendTimeoutMs(long sendTimeoutMs) {
+                this.sendTimeoutMs = sendTimeoutMs;
+            }
+
+            public long getHeartbeatIntervalMs() {
+                return heartbeatIntervalMs;
+            }
+
+            public void setHeartbeatIntervalMs(long heartbeatIntervalMs) {
+                this.heartbeatIntervalMs = heartbeatIntervalMs;
+            }
+        }
+
+        public static class LongPoll {
+
+            private long timeoutMs = 30000;
+
+            public long getTimeoutMs() {
+                return timeoutMs;
+            }
+
+            public void setTimeoutMs(long timeoutMs) {
+                this.timeoutMs = timeoutMs;
+            }
+        }
+
+        public static class EventLog {
+
+            private boolean enabled = false;
+
+            private String directory = "./target/occupancy-log";
+
+            private int segmentSizeBytes = 64 * 1024 * 1024;
+
+            private int maxSegments = 16;
+
+            private int queueCapacity = 65536;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public int getSegmentSizeBytes() {
+                return segmentSizeBytes;
+            }
+
+            public void setSegmentSizeBytes(int segmentSizeBytes) {
+                this.segmentSizeBytes = segmentSizeBytes;
+            }
+
+            public int getMaxSegments() {
+                return maxSegments;
+            }
+
+            public void setMaxSegments(int maxSegments) {
+                this.maxSegments = maxSegments;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+        }
+
+        public static class Rollups {
+
+            private int ringSize = 1440;
+
+            public int getRingSize() {
+                return ringSize;
+            }
+
+            public void setRingSize(int ringSize) {
+                this.ringSize = ringSize;
+            }
+        }
+
+        public static class Reservations {
+
+            private long tickMs = 1000;
+
+            private long maxTtlMinutes = 1440;
+
+            public long getTickMs() {
+                return tickMs;
+            }
+
+            public void setTickMs(long tickMs) {
+                this.tickMs = tickMs;
+            }
+
+            public long getMaxTtlMinutes() {
+                return maxTtlMinutes;
+            }
+
+            public void setMaxTtlMinutes(long maxTtlMinutes) {
+                this.maxTtlMinutes = maxTtlMinutes;
+            }
+        }
+
+        public static class Nearest {
+
+            private double cellSize = 10;
+
+            private int maxResults = 100;
+
+            private double maxCoordinate = 1e9;
+
+            public double getCellSize() {
+                return cellSize;
+            }
+
+            public void setCellSize(double cellSize) {
+                this.cellSize = cellSize;
+            }
+
+            public int getMaxResults() {
+                return maxResults;
+            }
+
+            public void setMaxResults(int maxResults) {
+                this.maxResults = maxResults;
+            }
+
+            public double getMaxCoordinate() {
+                return maxCoordinate;
+            }
+
+            public void setMaxCoordinate(double maxCoordinate) {
+                this.maxCoordinate = maxCoordinate;
+            }
+        }
+
+        public static class Assignment {
+
+            private boolean crossNode = false;
+
+            public boolean isCrossNode() {
+                return crossNode;
+            }
+
+            public void setCrossNode(boolean crossNode) {
+                this.crossNode = crossNode;
+            }
+        }
+
+        public static class Waitlist {
+
+            private long offerTtlSeconds = 120;
+
+            private long tickMs = 1000;
+
+            private long flushIntervalMs = 1000;
+
+            private int batchSize = 500;
+
+            private int pushQueueSize = 16;
+
+            public long getOfferTtlSeconds() {
+                return offerTtlSeconds;
+            }
+
+            public void setOfferTtlSeconds(long offerTtlSeconds) {
+                this.offerTtlSeconds = offerTtlSeconds;
+            }
+
+            public long getTickMs() {
+                return tickMs;
+            }
+
+            public void setTickMs(long tickMs) {
+                this.tickMs = tickMs;
+            }
+
+            public long getFlushIntervalMs() {
+                return flushIntervalMs;
+            }
+
+            public void setFlushIntervalMs(long flushIntervalMs) {
+                this.flushIntervalMs = flushIntervalMs;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public int getPushQueueSize() {
+                return pushQueueSize;
+            }
+
+            public void setPushQueueSize(int pushQueueSize) {
+                this.pushQueueSize = pushQueueSize;
+            }
+        }
+
+        public static class Changes {
+
+            private long settleMs = 2000;
+
+            private int tombstoneRetentionDays = 30;
+
+            private int maxPageSize = 1000;
+
+            public long getSettleMs() {
+                return settleMs;
+            }
+
+            public void setSettleMs(long settleMs) {
+                this.settleMs = settleMs;
+            }
+
+            public int getTombstoneRetentionDays() {
+                return tombstoneRetentionDays;
+            }
+
+            public void setTombstoneRetentionDays(int tombstoneRetentionDays) {
+                this.tombstoneRetentionDays = tombstoneRetentionDays;
+            }
+
+            public int getMaxPageSize() {
+                return maxPageSize;
+            }
+
+            public void setMaxPageSize(int maxPageSize) {
+                this.maxPageSize = maxPageSize;
+            }
+        }
+
+        public static class Export {
+
+            private int fetchSize = 500;
+
+            public int getFetchSize() {
+                return fetchSize;
+            }
+
+            public void setFetchSize(int fetchSize) {
+                this.fetchSize = fetchSize;
+            }
+        }
+
+        public static class Occupancy {
+
+            private long refreshIntervalMs = 60000;
+
+            public long getRefreshIntervalMs() {
+                return refreshIntervalMs;
+            }
+
+            public void setRefreshIntervalMs(long refreshIntervalMs) {
+                this.refreshIntervalMs = refreshIntervalMs;
+            }
+        }
+
+        public static class Gates {
+
+            private int leaseSize = 16;
+
+            private long leaseTtlMs = 1000;
+
+            public int getLeaseSize() {
+                return leaseSize;
+            }
+
+            public void setLeaseSize(int leaseSize) {
+                this.leaseSize = leaseSize;
+            }
+
+            public long getLeaseTtlMs() {
+                return leaseTtlMs;
+            }
+
+            public void setLeaseTtlMs(long leaseTtlMs) {
+                this.leaseTtlMs = leaseTtlMs;
+            }
+        }
+    }
 }
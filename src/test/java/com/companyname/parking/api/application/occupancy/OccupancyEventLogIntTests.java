@@ -0,0 +1,126 @@
+package com.companyname.parking.api.application.occupancy;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the OccupancyEventLog.
+ *
+ * @see OccupancyEventLog
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class OccupancyEventLogIntTests {
+
+    // length, spot id, state, epoch second, nano adjustment, actor length and a 4 bytes actor
+    private static final int ENTRY_SIZE = 4 + 8 + 1 + 8 + 4 + 2 + 4;
+
+    private static final Instant TIMESTAMP = Instant.parse("2020-04-01T10:00:00.123456789Z");
+
+    @Rule
+    public TemporaryFolder directory = new TemporaryFolder();
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    private ApplicationProperties applicationProperties;
+
+    private OccupancyEventLog eventLog;
+
+    @Before
+    public void initTest() throws Exception {
+        applicationProperties = new ApplicationProperties();
+        ApplicationProperties.ParkingSpots.EventLog properties = applicationProperties.getParkingSpots().getEventLog();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.getRoot().getPath());
+        // three entries per segment
+        properties.setSegmentSizeBytes(3 * ENTRY_SIZE);
+        properties.setMaxSegments(2);
+        eventLog = startEventLog();
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        eventLog.stop();
+    }
+
+    @Test
+    public void appendAndReadEntries() throws Exception {
+        assertThat(append(42L, OccupancyEngine.FREE, TIMESTAMP, "gate")).isEqualTo(0);
+        assertThat(append(43L, OccupancyEngine.HELD, TIMESTAMP.plusSeconds(1), "user")).isEqualTo(1);
+
+        List<OccupancyLogEntry> entries = eventLog.read(0).collect(Collectors.toList());
+        assertThat(entries).extracting(OccupancyLogEntry::getOffset).containsExactly(0L, 1L);
+        assertThat(entries).extracting(OccupancyLogEntry::getSpotId).containsExactly(42L, 43L);
+        assertThat(entries).extracting(OccupancyLogEntry::getState).containsExactly(OccupancyEngine.FREE, OccupancyEngine.HELD);
+        assertThat(entries).extracting(OccupancyLogEntry::getTimestamp).containsExactly(TIMESTAMP, TIMESTAMP.plusSeconds(1));
+        assertThat(entries).extracting(OccupancyLogEntry::getActor).containsExactly("gate", "user");
+        assertThat(eventLog.read(1).map(OccupancyLogEntry::getSpotId)).containsExactly(43L);
+    }
+
+    @Test
+    public void recordTheTimeOfTheChange() throws Exception {
+        eventLog.stateChanged(42L, OccupancyEngine.FREE, 1, TIMESTAMP);
+        eventLog.stop();
+        eventLog = startEventLog();
+
+        assertThat(eventLog.read(0).map(OccupancyLogEntry::getTimestamp)).containsExactly(TIMESTAMP);
+    }
+
+    @Test
+    public void rollToNewSegments() throws Exception {
+        for (long spotId = 0; spotId < 4; spotId++) {
+            append(spotId, OccupancyEngine.FREE, TIMESTAMP, "gate");
+        }
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(eventLog.read(0).map(OccupancyLogEntry::getSpotId)).containsExactly(0L, 1L, 2L, 3L);
+
+        eventLog.stop();
+        eventLog = startEventLog();
+        assertThat(eventLog.getNextOffset()).isEqualTo(4);
+        assertThat(append(4L, OccupancyEngine.FREE, TIMESTAMP, "gate")).isEqualTo(4);
+        assertThat(eventLog.read(2).map(OccupancyLogEntry::getSpotId)).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    public void deleteTheOldestSegmentsBeyondTheRetention() throws Exception {
+        for (long spotId = 0; spotId < 7; spotId++) {
+            append(spotId, OccupancyEngine.FREE, TIMESTAMP, "gate");
+        }
+
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(eventLog.getFirstOffset()).isEqualTo(3);
+        assertThat(eventLog.read(0).map(OccupancyLogEntry::getOffset)).containsExactly(3L, 4L, 5L, 6L);
+    }
+
+    private long append(long spotId, int state, Instant timestamp, String actor) throws Exception {
+        return eventLog.append(spotId, state, timestamp, actor).get(10, TimeUnit.SECONDS);
+    }
+
+    private File[] segmentFiles() {
+        return directory.getRoot().listFiles((dir, name) -> name.endsWith(".log"));
+    }
+
+    private OccupancyEventLog startEventLog() throws Exception {
+        OccupancyEventLog eventLog = new OccupancyEventLog(occupancyEngine, applicationProperties);
+        eventLog.start();
+        return eventLog;
+    }
+}
@@ -0,0 +1,121 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot.ParkingSpotResourceIntTests;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ParkingSpotGroupCommitter.
+ *
+ * @see ParkingSpotGroupCommitter
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotGroupCommitterIntTests {
+
+    private static final long WINDOW_MS = 300;
+
+    @Autowired
+    private ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    private ThreadPoolTaskExecutor groupCommitExecutor;
+
+    private ParkingSpotGroupCommitter parkingSpotGroupCommitter;
+
+    private ParkingSpot firstParkingSpot;
+
+    private ParkingSpot secondParkingSpot;
+
+    @Before
+    public void initTest() {
+        // committed, as the changes are committed by the group commit thread
+        firstParkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(false));
+        secondParkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(false));
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getParkingSpots().getGroupCommit().setEnabled(true);
+        applicationProperties.getParkingSpots().getGroupCommit().setWindowMs(WINDOW_MS);
+        groupCommitExecutor = new ThreadPoolTaskExecutor();
+        groupCommitExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        groupCommitExecutor.initialize();
+        parkingSpotGroupCommitter = new ParkingSpotGroupCommitter(parkingSpotStateJdbcRepository, occupancyEngine,
+            groupCommitExecutor, applicationProperties);
+        parkingSpotGroupCommitter.start();
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        parkingSpotGroupCommitter.stop();
+        groupCommitExecutor.shutdown();
+        parkingSpotRepository.deleteById(firstParkingSpot.getId());
+        parkingSpotRepository.deleteById(secondParkingSpot.getId());
+    }
+
+    @Test
+    public void completeOnlyAfterTheSharedCommit() throws Exception {
+        CompletableFuture<Void> first = parkingSpotGroupCommitter.submit(freeUp(firstParkingSpot));
+        CompletableFuture<Void> second = parkingSpotGroupCommitter.submit(freeUp(secondParkingSpot));
+
+        // both wait for the end of the window
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+
+        first.get(5, TimeUnit.SECONDS);
+        // the second change was committed with the first one
+        assertThat(second).isDone();
+        assertThat(isFree(firstParkingSpot)).isTrue();
+        assertThat(isFree(secondParkingSpot)).isTrue();
+    }
+
+    @Test
+    public void updateOccupancyOnlyAfterTheSharedCommit() throws Exception {
+        CompletableFuture<Void> first = parkingSpotGroupCommitter.submit(freeUp(firstParkingSpot));
+        assertThat(occupancyEngine.getState(firstParkingSpot.getId())).isEqualTo(OccupancyEngine.HELD);
+
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(occupancyEngine.getState(firstParkingSpot.getId())).isEqualTo(OccupancyEngine.FREE);
+    }
+
+    @Test
+    public void commitPendingChangesOnStop() throws Exception {
+        CompletableFuture<Void> first = parkingSpotGroupCommitter.submit(freeUp(firstParkingSpot));
+
+        parkingSpotGroupCommitter.stop();
+        assertThat(first).isCompleted();
+        assertThat(isFree(firstParkingSpot)).isTrue();
+        assertThat(parkingSpotGroupCommitter.submit(freeUp(secondParkingSpot))).isCompletedExceptionally();
+    }
+
+    private static ParkingSpotStateChange freeUp(ParkingSpot parkingSpot) {
+        return new ParkingSpotStateChange(parkingSpot.getId(), true, "test", Instant.now());
+    }
+
+    private boolean isFree(ParkingSpot parkingSpot) {
+        return parkingSpotRepository.findById(parkingSpot.getId()).get().isFree();
+    }
+}
@@ -0,0 +1,178 @@
+package com.companyname.parking.api.application.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot.ParkingSpotResourceIntTests;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ParkingSpotWriteBehindQueue.
+ *
+ * @see ParkingSpotWriteBehindQueue
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotWriteBehindQueueIntTests {
+
+    private static final int MAX_RETRIES = 2;
+
+    @Autowired
+    private ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue;
+
+    @Autowired
+    private ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<ParkingSpot> parkingSpots = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        // committed, as the queue writes outside of the test transaction
+        for (int i = 0; i < 3; i++) {
+            parkingSpots.add(parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(false)));
+        }
+    }
+
+    @After
+    public void cleanUp() {
+        parkingSpots.forEach(spot -> parkingSpotRepository.findById(spot.getId()).ifPresent(parkingSpotRepository::delete));
+    }
+
+    @Test
+    public void flushAtBatchSize() {
+        ParkingSpotWriteBehindQueue queue = createQueue(2);
+
+        queue.enqueue(freeUp(parkingSpots.get(0)));
+        assertThat(isFree(parkingSpots.get(0))).isFalse();
+
+        queue.enqueue(freeUp(parkingSpots.get(1)));
+        assertThat(isFree(parkingSpots.get(0))).isTrue();
+        assertThat(isFree(parkingSpots.get(1))).isTrue();
+        assertThat(isFree(parkingSpots.get(2))).isFalse();
+    }
+
+    @Test
+    public void flushAtInterval() throws Exception {
+        parkingSpotWriteBehindQueue.enqueue(freeUp(parkingSpots.get(0)));
+
+        // flushed every 100 ms by default
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!isFree(parkingSpots.get(0)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(isFree(parkingSpots.get(0))).isTrue();
+    }
+
+    @Test
+    public void drainOnShutdown() {
+        ParkingSpotWriteBehindQueue queue = createQueue(500);
+        parkingSpots.forEach(spot -> queue.enqueue(freeUp(spot)));
+        parkingSpots.forEach(spot -> assertThat(isFree(spot)).isFalse());
+
+        queue.drain();
+        parkingSpots.forEach(spot -> assertThat(isFree(spot)).isTrue());
+    }
+
+    @Test
+    public void readBackTheStateOfSpotsNotWritten() {
+        ParkingSpotWriteBehindQueue queue = createQueue(500);
+        occupancyEngine.update(parkingSpots.get(0).getId(), true);
+        jdbcTemplate.update("delete from parking_spot where id = ?", parkingSpots.get(0).getId());
+
+        queue.enqueue(freeUp(parkingSpots.get(0)));
+        queue.flush();
+
+        assertThat(occupancyEngine.getState(parkingSpots.get(0).getId())).isEqualTo(OccupancyEngine.ABSENT);
+    }
+
+    @Test
+    public void dropChangesFailingTooManyTimes() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        ParkingSpotStateJdbcRepository failingRepository = new ParkingSpotStateJdbcRepository(jdbcTemplate) {
+            @Override
+            public int[] updateStates(List<ParkingSpotStateChange> changes) {
+                attempts.incrementAndGet();
+                throw new QueryTimeoutException("database unavailable");
+            }
+        };
+        ParkingSpotWriteBehindQueue queue = createQueue(failingRepository, 500);
+        occupancyEngine.update(parkingSpots.get(0).getId(), true);
+
+        queue.enqueue(freeUp(parkingSpots.get(0)));
+        queue.flush();
+        // backing off
+        queue.flush();
+        assertThat(attempts.get()).isEqualTo(1);
+
+        for (int i = 0; i < MAX_RETRIES; i++) {
+            // past the backoff of the flush interval
+            Thread.sleep(100);
+            queue.flush();
+        }
+        assertThat(attempts.get()).isEqualTo(MAX_RETRIES + 1);
+        queue.drain();
+        assertThat(attempts.get()).isEqualTo(MAX_RETRIES + 1);
+        // the state of the database, where the change was not written
+        assertThat(occupancyEngine.getState(parkingSpots.get(0).getId())).isEqualTo(OccupancyEngine.HELD);
+    }
+
+    @Test
+    public void writeNothingForAnEmptyBatch() {
+        assertThat(parkingSpotStateJdbcRepository.updateStates(Collections.emptyList())).isEmpty();
+        assertThat(parkingSpotStateJdbcRepository.expireReservations(Collections.emptyList(), "test", Instant.now())).isEmpty();
+    }
+
+    private ParkingSpotWriteBehindQueue createQueue(int batchSize) {
+        return createQueue(parkingSpotStateJdbcRepository, batchSize);
+    }
+
+    /**
+     * Create a queue which is not scheduled, and flushes full batches on the calling thread.
+     */
+    private ParkingSpotWriteBehindQueue createQueue(ParkingSpotStateJdbcRepository repository, int batchSize) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getParkingSpots().getWriteBehind().setEnabled(true);
+        applicationProperties.getParkingSpots().getWriteBehind().setBatchSize(batchSize);
+        applicationProperties.getParkingSpots().getWriteBehind().setFlushIntervalMs(50);
+        applicationProperties.getParkingSpots().getWriteBehind().setMaxBackoffMs(50);
+        applicationProperties.getParkingSpots().getWriteBehind().setMaxRetries(MAX_RETRIES);
+        return new ParkingSpotWriteBehindQueue(repository, occupancyEngine, Runnable::run, applicationProperties);
+    }
+
+    private static ParkingSpotStateChange freeUp(ParkingSpot parkingSpot) {
+        return new ParkingSpotStateChange(parkingSpot.getId(), true, "test", Instant.now());
+    }
+
+    private boolean isFree(ParkingSpot parkingSpot) {
+        return parkingSpotRepository.findById(parkingSpot.getId()).get().isFree();
+    }
+}
@@ -0,0 +1,167 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.gate;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.gate.GateAdmissionService;
+import com.companyname.parking.api.application.gate.GateDecisionDTO;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.gate.GateOccupancyJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot.ParkingSpotResourceIntTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the GateResource REST controller.
+ *
+ * @see GateResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class GateResourceIntTests {
+
+    private static final String GATE_ID = "north-1";
+
+    @Autowired
+    private GateAdmissionService gateAdmissionService;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restGateMockMvc;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GateOccupancyJdbcRepository gateOccupancyJdbcRepository;
+
+    private long initialVehiclesInside;
+
+    @Before
+    public void setup() {
+        GateResource gateResource = new GateResource(gateAdmissionService);
+        this.restGateMockMvc = MockMvcBuilders.standaloneSetup(gateResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+        initialVehiclesInside = gateAdmissionService.getVehiclesInside();
+    }
+
+    @After
+    public void restoreVehiclesInside() {
+        while (gateAdmissionService.getVehiclesInside() > initialVehiclesInside) {
+            gateAdmissionService.exit(GATE_ID);
+        }
+        gateAdmissionService.reconcile();
+    }
+
+    @Test
+    @Transactional
+    public void denyEntryWhenFull() throws Exception {
+        saveParkingSpots(2);
+        long freeCapacity = gateAdmissionService.getFreeCapacity();
+        assertThat(freeCapacity).isGreaterThanOrEqualTo(2);
+        for (long i = 0; i < freeCapacity; i++) {
+            assertThat(gateAdmissionService.enter(GATE_ID).getDecision()).isEqualTo(GateDecisionDTO.Decision.ADMITTED);
+        }
+
+        restGateMockMvc.perform(post("/gates/{gateId}/entries", GATE_ID))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.gateId").value(GATE_ID))
+            .andExpect(jsonPath("$.decision").value("DENIED"))
+            .andExpect(jsonPath("$.freeCapacity").value(0));
+
+        restGateMockMvc.perform(post("/gates/{gateId}/exits", GATE_ID))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.decision").value("RELEASED"))
+            .andExpect(jsonPath("$.freeCapacity").value(1));
+
+        restGateMockMvc.perform(post("/gates/{gateId}/entries", GATE_ID))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.decision").value("ADMITTED"))
+            .andExpect(jsonPath("$.freeCapacity").value(0));
+    }
+
+    @Test
+    @Transactional
+    public void concurrentEntriesNeverExceedCapacity() throws Exception {
+        saveParkingSpots(50);
+        long freeCapacity = gateAdmissionService.getFreeCapacity();
+        ExecutorService lanes = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<GateDecisionDTO.Decision>> entries = new ArrayList<>();
+            for (long i = 0; i < freeCapacity + 100; i++) {
+                entries.add(() -> gateAdmissionService.enter(GATE_ID).getDecision());
+            }
+            long admitted = 0;
+            for (Future<GateDecisionDTO.Decision> decision : lanes.invokeAll(entries)) {
+                if (decision.get() == GateDecisionDTO.Decision.ADMITTED) {
+                    admitted++;
+                }
+            }
+            assertThat(admitted).isEqualTo(freeCapacity);
+            assertThat(gateAdmissionService.getFreeCapacity()).isZero();
+        } finally {
+            lanes.shutdown();
+        }
+    }
+
+    @Test
+    public void shareTheCounterWithTheOtherNodes() throws Exception {
+        // committed, as the counter is
+        ParkingSpot parkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(true));
+        try {
+            long freeCapacity = gateAdmissionService.getFreeCapacity();
+            assertThat(freeCapacity).isPositive();
+
+            // a vehicle admitted by another node
+            assertThat(gateOccupancyJdbcRepository.take(Long.MAX_VALUE, 1)).isEqualTo(1);
+            assertThat(gateAdmissionService.getFreeCapacity()).isEqualTo(freeCapacity - 1);
+
+            restGateMockMvc.perform(post("/gates/{gateId}/exits", GATE_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.decision").value("RELEASED"))
+                .andExpect(jsonPath("$.freeCapacity").value(freeCapacity));
+        } finally {
+            gateAdmissionService.reconcile();
+            parkingSpotRepository.deleteById(parkingSpot.getId());
+        }
+    }
+
+    private void saveParkingSpots(int count) {
+        for (int i = 0; i < count; i++) {
+            ParkingSpot parkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity().setFree(true);
+            parkingSpot.setOwnedAccount(userRepository.save(parkingSpot.getOwnedAccount()));
+            parkingSpotRepository.saveAndFlush(parkingSpot);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ParkingSpotEventBroadcaster.
+ *
+ * @see ParkingSpotEventBroadcaster
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotEventBroadcasterIntTests {
+
+    private static final long SEND_TIMEOUT_MS = 200;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private ParkingSpotEventBroadcaster broadcaster;
+
+    @Before
+    public void initTest() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.ParkingSpots.Events events = applicationProperties.getParkingSpots().getEvents();
+        events.setSenderThreads(2);
+        events.setMaxSenderThreads(4);
+        events.setSendTimeoutMs(SEND_TIMEOUT_MS);
+        broadcaster = new ParkingSpotEventBroadcaster(occupancyEngine, applicationProperties);
+        broadcaster.start();
+    }
+
+    @After
+    public void cleanUp() {
+        released.countDown();
+        broadcaster.stop();
+    }
+
+    @Test
+    public void stalledSubscribersDoNotDelayTheOthers() throws Exception {
+        StalledEmitter first = new StalledEmitter();
+        StalledEmitter second = new StalledEmitter();
+        broadcaster.subscribe(first);
+        broadcaster.subscribe(second);
+        assertThat(first.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RecordingEmitter recording = new RecordingEmitter();
+        broadcaster.subscribe(recording);
+        assertThat(recording.events.poll(5, TimeUnit.SECONDS)).isNotNull();
+
+        broadcaster.stateChanged(Long.MAX_VALUE, OccupancyEngine.FREE, 1);
+        assertThat(recording.events.poll(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    public void dropStalledSubscribers() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        broadcaster.subscribe(stalled);
+        broadcaster.subscribe(new RecordingEmitter());
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        broadcaster.dropStalledSubscribers();
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(2);
+
+        Thread.sleep(SEND_TIMEOUT_MS * 2);
+        broadcaster.dropStalledSubscribers();
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void dropFailedSubscribers() throws Exception {
+        FailingEmitter failing = new FailingEmitter();
+        broadcaster.subscribe(failing);
+        assertThat(failing.failed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (broadcaster.getSubscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+    }
+
+    private final class StalledEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<SseEventBuilder> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder);
+        }
+    }
+
+    private static final class FailingEmitter extends SseEmitter {
+
+        private final CountDownLatch failed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            failed.countDown();
+            throw new IOException("Broken pipe");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotEventResource REST controller.
+ *
+ * @see ParkingSpotEventResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotEventResourceIntTests {
+
+    private static final long UNTRACKED_ID = 900201L;
+
+    @Autowired
+    private ParkingSpotEventBroadcaster parkingSpotEventBroadcaster;
+
+    @Autowired
+    private ParkingSpotCountLongPoller parkingSpotCountLongPoller;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restParkingSpotEventMockMvc;
+
+    @Before
+    public void setup() {
+        ParkingSpotEventResource parkingSpotEventResource = new ParkingSpotEventResource(parkingSpotEventBroadcaster, parkingSpotCountLongPoller);
+        this.restParkingSpotEventMockMvc = MockMvcBuilders.standaloneSetup(parkingSpotEventResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @After
+    public void cleanUp() {
+        occupancyEngine.remove(UNTRACKED_ID);
+    }
+
+    @Test
+    public void answerUnknownVersionRightAway() throws Exception {
+        MvcResult result = longPoll("-1");
+
+        restParkingSpotEventMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string(ParkingSpotCountLongPoller.VERSION_HEADER, startsWith(currentVersionToken().split("\\.")[0])))
+            .andExpect(content().string(String.valueOf(occupancyEngine.countFree())));
+    }
+
+    @Test
+    public void wakeUpOnChange() throws Exception {
+        long free = occupancyEngine.countFree();
+        String versionToken = currentVersionToken();
+        MvcResult result = longPoll(versionToken);
+        assertWaiting(result);
+
+        occupancyEngine.update(UNTRACKED_ID, true);
+        restParkingSpotEventMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string(ParkingSpotCountLongPoller.VERSION_HEADER, not(versionToken)))
+            .andExpect(content().string(String.valueOf(free + 1)));
+    }
+
+    @Test
+    public void answerCurrentCountOnTimeout() throws Exception {
+        String versionToken = currentVersionToken();
+        MvcResult result = longPoll(versionToken);
+        assertWaiting(result);
+
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        restParkingSpotEventMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string(ParkingSpotCountLongPoller.VERSION_HEADER, versionToken))
+            .andExpect(content().string(String.valueOf(occupancyEngine.countFree())));
+    }
+
+    @Test
+    public void waitOnTheCountOfAnotherNode() throws Exception {
+        long free = occupancyEngine.countFree();
+        assertWaiting(longPoll("othernode.12." + free));
+
+        MvcResult result = longPoll("othernode.12." + (free + 1));
+        restParkingSpotEventMockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().string(String.valueOf(free)));
+    }
+
+    private MvcResult longPoll(String sinceVersion) throws Exception {
+        return restParkingSpotEventMockMvc.perform(get("/parking-spots/count?isFree.equals=true&sinceVersion={sinceVersion}", sinceVersion))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    }
+
+    private String currentVersionToken() throws Exception {
+        MvcResult result = longPoll("-1");
+        return restParkingSpotEventMockMvc.perform(asyncDispatch(result))
+            .andReturn().getResponse().getHeader(ParkingSpotCountLongPoller.VERSION_HEADER);
+    }
+
+    private void assertWaiting(MvcResult result) {
+        assertThatThrownBy(() -> result.getAsyncResult(200)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,157 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotExportResource REST controller.
+ *
+ * @see ParkingSpotExportResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotExportResourceIntTests {
+
+    private static final String NAME = "ps,\"export\"";
+
+    @Autowired
+    private ParkingSpotQueryService parkingSpotQueryService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc restExportMockMvc;
+
+    private ParkingSpot parkingSpot;
+
+    private ParkingSpot otherParkingSpot;
+
+    @Before
+    public void setup() {
+        ParkingSpotExportResource exportResource = new ParkingSpotExportResource(parkingSpotQueryService, objectMapper);
+        this.restExportMockMvc = MockMvcBuilders.standaloneSetup(exportResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService()).build();
+    }
+
+    @Before
+    @Transactional
+    public void initTest() {
+        parkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity().setName(NAME);
+        otherParkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity().setName(NAME).setFree(true);
+    }
+
+    @Test
+    @Transactional
+    public void exportParkingSpotsAsNdjson() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        parkingSpotRepository.saveAndFlush(otherParkingSpot);
+
+        String content = restExportMockMvc.perform(get("/parking-spots/export?name.equals={name}", NAME))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(ParkingSpotExportResource.APPLICATION_NDJSON_VALUE + ";charset=UTF-8"))
+            .andReturn().getResponse().getContentAsString();
+
+        String[] lines = content.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(parkingSpot.getId());
+        assertThat(first.get("name").asText()).isEqualTo(NAME);
+        assertThat(first.get("ownedAccountLogin").asText()).isEqualTo(parkingSpot.getOwnedAccount().getLogin());
+        assertThat(objectMapper.readTree(lines[1]).get("id").asLong()).isEqualTo(otherParkingSpot.getId());
+    }
+
+    @Test
+    @Transactional
+    public void exportParkingSpotsAsCsv() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        parkingSpotRepository.saveAndFlush(otherParkingSpot);
+
+        String content = restExportMockMvc.perform(get("/parking-spots/export?name.equals={name}&isFree.equals=true", NAME)
+            .accept(ParkingSpotExportResource.TEXT_CSV_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(ParkingSpotExportResource.TEXT_CSV_VALUE + ";charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, startsWith("attachment")))
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(content.split("\n")).containsExactly(
+            "id,name,isFree,version,ownedAccountId,ownedAccountLogin,zoneId,reservedUntil,x,y,assignedTo",
+            otherParkingSpot.getId() + ",\"ps,\"\"export\"\"\",true," + otherParkingSpot.getVersion() + ","
+                + otherParkingSpot.getOwnedAccount().getId() + "," + otherParkingSpot.getOwnedAccount().getLogin() + ",,,,,");
+    }
+
+    @Test
+    @Transactional
+    public void exportAssignment() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        jdbcTemplate.update("update parking_spot set assigned_to = ? where id = ?", "driver", parkingSpot.getId());
+
+        String content = restExportMockMvc.perform(get("/parking-spots/export?id.equals={id}", parkingSpot.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(content).get("assignedTo").asText()).isEqualTo("driver");
+
+        content = restExportMockMvc.perform(get("/parking-spots/export?id.equals={id}", parkingSpot.getId())
+            .accept(ParkingSpotExportResource.TEXT_CSV_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertThat(content.split("\n")[1]).endsWith(",driver");
+    }
+
+    @Test
+    @Transactional
+    public void escapeFormulasInCsv() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot.setName("=HYPERLINK(\"http://example.com\")"));
+
+        String content = restExportMockMvc.perform(get("/parking-spots/export?id.equals={id}", parkingSpot.getId())
+            .accept(ParkingSpotExportResource.TEXT_CSV_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(content.split("\n")[1]).startsWith(parkingSpot.getId() + ",\"'=HYPERLINK(\"\"http://example.com\"\")\",");
+    }
+
+    @Test
+    @Transactional
+    public void checkExportFormatIsNegotiated() throws Exception {
+        restExportMockMvc.perform(get("/parking-spots/export")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotAcceptable());
+    }
+}
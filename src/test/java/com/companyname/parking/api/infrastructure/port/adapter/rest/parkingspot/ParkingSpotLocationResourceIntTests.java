@@ -0,0 +1,171 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.parkingspot.FreeParkingSpotIndex;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotLocationResource REST controller.
+ * The parkingSpots are committed, as the index only follows committed changes, and are deleted after each test.
+ *
+ * @see ParkingSpotLocationResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotLocationResourceIntTests {
+
+    @Autowired
+    private FreeParkingSpotIndex freeParkingSpotIndex;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restLocationMockMvc;
+
+    private final List<ParkingSpot> parkingSpots = new ArrayList<>();
+
+    // far from any other parkingSpot
+    private double origin;
+
+    @Before
+    public void setup() {
+        ParkingSpotLocationResource locationResource = new ParkingSpotLocationResource(freeParkingSpotIndex, applicationProperties);
+        this.restLocationMockMvc = MockMvcBuilders.standaloneSetup(locationResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+        origin = ThreadLocalRandom.current().nextInt(1_000, 900_000) * 1_000d;
+    }
+
+    @After
+    public void deleteParkingSpots() {
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            // the owned account is saved and deleted along
+            parkingSpotRepository.deleteById(parkingSpot.getId());
+        }
+    }
+
+    @Test
+    public void getNearestFreeParkingSpots() throws Exception {
+        ParkingSpot far = saveParkingSpot(true, 35, 0);
+        ParkingSpot near = saveParkingSpot(true, 1, 1);
+        saveParkingSpot(false, 0, 2);
+        ParkingSpot middle = saveParkingSpot(true, -12, 3);
+
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}&k=2", origin, origin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].id").value(near.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(middle.getId().intValue()));
+
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}", origin + 40, origin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(far.getId().intValue()))
+            .andExpect(jsonPath("$.[0].distance").value(5.0));
+    }
+
+    @Test
+    public void getNearestFollowsStateChanges() throws Exception {
+        ParkingSpot near = saveParkingSpot(true, 1, 1);
+        ParkingSpot far = saveParkingSpot(true, 50, 50);
+
+        parkingSpotRepository.save(near.setFree(false));
+
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}", origin, origin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(far.getId().intValue()));
+    }
+
+    @Test
+    public void getNearestFollowsPositionChanges() throws Exception {
+        ParkingSpot moved = saveParkingSpot(true, 1, 1);
+        ParkingSpot stayed = saveParkingSpot(true, 20, 20);
+
+        moved.setX(origin + 60);
+        moved.setY(origin + 60);
+        parkingSpotRepository.save(moved);
+
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}&k=2", origin, origin))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[0].id").value(stayed.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(moved.getId().intValue()));
+    }
+
+    @Test(timeout = 10_000)
+    public void getNearestFarFromAllParkingSpots() throws Exception {
+        ParkingSpot parkingSpot = saveParkingSpot(true, 0, 0);
+        double maxCoordinate = applicationProperties.getParkingSpots().getNearest().getMaxCoordinate();
+
+        // a point a hundred million cells away from the parking spots
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}", -maxCoordinate, -maxCoordinate))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)));
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}", origin, maxCoordinate))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)));
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y={y}", origin, origin - 1))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(parkingSpot.getId().intValue()));
+    }
+
+    @Test
+    public void checkPointIsInRange() throws Exception {
+        double maxCoordinate = applicationProperties.getParkingSpots().getNearest().getMaxCoordinate();
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x={x}&y=0", maxCoordinate * 2))
+            .andExpect(status().isBadRequest());
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x=0&y=1e300"))
+            .andExpect(status().isBadRequest());
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x=NaN&y=0"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void checkKIsBounded() throws Exception {
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x=0&y=0&k=0"))
+            .andExpect(status().isBadRequest());
+        restLocationMockMvc.perform(get("/parking-spots/nearest?x=0&y=0&k={k}",
+            applicationProperties.getParkingSpots().getNearest().getMaxResults() + 1))
+            .andExpect(status().isBadRequest());
+    }
+
+    private ParkingSpot saveParkingSpot(boolean isFree, double dx, double dy) {
+        ParkingSpot parkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity().setFree(isFree);
+        parkingSpot.setX(origin + dx);
+        parkingSpot.setY(origin + dy);
+        parkingSpots.add(parkingSpotRepository.save(parkingSpot));
+        return parkingSpot;
+    }
+}
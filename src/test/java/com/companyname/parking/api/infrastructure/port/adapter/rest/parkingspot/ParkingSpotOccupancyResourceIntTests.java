@@ -0,0 +1,85 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyRollupAggregator;
+import com.companyname.parking.api.domain.occupancy.OccupancyRollup;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.occupancy.OccupancyRollupJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotOccupancyResource REST controller.
+ *
+ * @see ParkingSpotOccupancyResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotOccupancyResourceIntTests {
+
+    private static final Instant FIRST_MINUTE = Instant.parse("2020-04-01T10:00:00Z");
+
+    @Autowired
+    private OccupancyRollupAggregator occupancyRollupAggregator;
+
+    @Autowired
+    private OccupancyRollupJdbcRepository occupancyRollupJdbcRepository;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restOccupancyMockMvc;
+
+    @Before
+    public void setup() {
+        ParkingSpotOccupancyResource occupancyResource = new ParkingSpotOccupancyResource(occupancyRollupAggregator);
+        this.restOccupancyMockMvc = MockMvcBuilders.standaloneSetup(occupancyResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Test
+    @Transactional
+    public void getOccupancyByStep() throws Exception {
+        occupancyRollupJdbcRepository.save(new OccupancyRollup(FIRST_MINUTE, 2, 3.0, 4, 6, 7.0, 8));
+        occupancyRollupJdbcRepository.save(new OccupancyRollup(FIRST_MINUTE.plusSeconds(60), 1, 5.0, 6, 4, 5.0, 9));
+        occupancyRollupJdbcRepository.save(new OccupancyRollup(FIRST_MINUTE.plusSeconds(120), 5, 5.0, 5, 5, 5.0, 5));
+
+        restOccupancyMockMvc.perform(get("/parking-spots/occupancy?from={from}&to={to}&step=PT2M",
+            FIRST_MINUTE, FIRST_MINUTE.plusSeconds(180)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$.[*].bucketStart").value(contains("2020-04-01T10:00:00Z", "2020-04-01T10:02:00Z")))
+            .andExpect(jsonPath("$.[*].freeMin").value(contains(1, 5)))
+            .andExpect(jsonPath("$.[*].freeAvg").value(contains(4.0, 5.0)))
+            .andExpect(jsonPath("$.[*].occupiedMax").value(contains(9, 5)));
+    }
+
+    @Test
+    @Transactional
+    public void checkStepIsWholeMinutes() throws Exception {
+        restOccupancyMockMvc.perform(get("/parking-spots/occupancy?from={from}&to={to}&step=PT90S",
+            FIRST_MINUTE, FIRST_MINUTE.plusSeconds(180)))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,118 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotOfferDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWaitlistService;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ParkingSpotOfferPusher.
+ *
+ * @see ParkingSpotOfferPusher
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotOfferPusherIntTests {
+
+    private static final int QUEUE_SIZE = 2;
+
+    @Autowired
+    private ParkingSpotWaitlistService parkingSpotWaitlistService;
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private ParkingSpotOfferPusher pusher;
+
+    @Before
+    public void initTest() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getParkingSpots().getEvents().setSenderThreads(2);
+        applicationProperties.getParkingSpots().getWaitlist().setPushQueueSize(QUEUE_SIZE);
+        pusher = new ParkingSpotOfferPusher(parkingSpotWaitlistService, applicationProperties);
+        pusher.start();
+    }
+
+    @After
+    public void cleanUp() {
+        released.countDown();
+        pusher.stop();
+    }
+
+    @Test
+    public void stalledSubscribersDoNotDelayTheOffers() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter recording = new RecordingEmitter();
+        pusher.subscribe("stalled", stalled);
+        pusher.subscribe("recording", recording);
+
+        pusher.offered(offer("stalled"));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // returns although the write to the stalled subscriber is blocked
+        pusher.withdrawn(offer("stalled"));
+
+        pusher.offered(offer("recording"));
+        assertThat(recording.events.poll(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    public void dropSubscribersFallingBehind() throws Exception {
+        StalledEmitter stalled = new StalledEmitter();
+        pusher.subscribe("stalled", stalled);
+        pusher.offered(offer("stalled"));
+        assertThat(stalled.sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            pusher.withdrawn(offer("stalled"));
+        }
+        assertThat(pusher.getSubscriberCount()).isEqualTo(1);
+
+        pusher.offered(offer("stalled"));
+        assertThat(pusher.getSubscriberCount()).isZero();
+    }
+
+    private static ParkingSpotOfferDTO offer(String login) {
+        return new ParkingSpotOfferDTO(Long.MAX_VALUE, login, Instant.now());
+    }
+
+    private final class StalledEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<SseEventBuilder> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            events.add(builder);
+        }
+    }
+}
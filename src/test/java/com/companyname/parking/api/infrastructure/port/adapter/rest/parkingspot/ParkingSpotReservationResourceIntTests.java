@@ -0,0 +1,197 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotReservationService;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotReservationResource REST controller.
+ *
+ * @see ParkingSpotReservationResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotReservationResourceIntTests {
+
+    @Autowired
+    private ParkingSpotReservationService parkingSpotReservationService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    @Autowired
+    private EntityManager em;
+
+    private MockMvc restReservationMockMvc;
+
+    private ParkingSpot parkingSpot;
+
+    @Before
+    public void setup() {
+        ParkingSpotReservationResource reservationResource = new ParkingSpotReservationResource(parkingSpotReservationService, applicationProperties);
+        this.restReservationMockMvc = MockMvcBuilders.standaloneSetup(reservationResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Before
+    public void initTest() {
+        parkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity().setFree(true);
+        parkingSpot.setOwnedAccount(userRepository.save(parkingSpot.getOwnedAccount()));
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(parkingSpot.getOwnedAccount().getLogin(), parkingSpot.getOwnedAccount().getPassword()));
+    }
+
+    @After
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private ParkingSpot saveAndAuthenticateOwner() {
+        ParkingSpot savedParkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(true));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            savedParkingSpot.getOwnedAccount().getLogin(), savedParkingSpot.getOwnedAccount().getPassword()));
+        return savedParkingSpot;
+    }
+
+    private boolean isFree(ParkingSpot parkingSpot) {
+        return parkingSpotRepository.findById(parkingSpot.getId()).get().isFree();
+    }
+
+    /**
+     * @return whether the parking spot is freed within a few ticks of the timing wheel
+     */
+    private boolean awaitFree(ParkingSpot parkingSpot) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 3000 + 3 * applicationProperties.getParkingSpots().getReservations().getTickMs();
+        while (System.currentTimeMillis() < deadline) {
+            if (isFree(parkingSpot)) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    @Test
+    @Transactional
+    public void reserveOwnParkingSpot() throws Exception {
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        restReservationMockMvc.perform(post("/parking-spots/reservations?ttl=PT45M"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.spotId").value(parkingSpot.getId().intValue()))
+            .andExpect(jsonPath("$.reservedUntil").isNotEmpty());
+
+        em.clear();
+        ParkingSpot reservedParkingSpot = parkingSpotRepository.findById(parkingSpot.getId()).get();
+        assertThat(reservedParkingSpot.isFree()).isFalse();
+        assertThat(reservedParkingSpot.getReservedUntil()).isNotNull();
+    }
+
+    @Test
+    public void expireReservation() throws Exception {
+        // committed, as the reservation is expired in its own transaction
+        ParkingSpot reservedParkingSpot = saveAndAuthenticateOwner();
+        try {
+            assertThat(parkingSpotReservationService.reserveOwnParkingSpot(Duration.ofMillis(500))).isPresent();
+            assertThat(isFree(reservedParkingSpot)).isFalse();
+
+            assertThat(awaitFree(reservedParkingSpot)).isTrue();
+            assertThat(parkingSpotRepository.findById(reservedParkingSpot.getId()).get().getReservedUntil()).isNull();
+        } finally {
+            parkingSpotRepository.deleteById(reservedParkingSpot.getId());
+        }
+    }
+
+    @Test
+    public void keepReservationReservedAgain() throws Exception {
+        ParkingSpot reservedParkingSpot = saveAndAuthenticateOwner();
+        try {
+            assertThat(parkingSpotReservationService.reserveOwnParkingSpot(Duration.ofMillis(500))).isPresent();
+            assertThat(parkingSpotReservationService.reserveOwnParkingSpot(Duration.ofHours(1))).isPresent();
+
+            assertThat(awaitFree(reservedParkingSpot)).isFalse();
+        } finally {
+            parkingSpotRepository.deleteById(reservedParkingSpot.getId());
+        }
+    }
+
+    @Test
+    public void keepReservationReservedAgainByAnotherNode() throws Exception {
+        ParkingSpot reservedParkingSpot = saveAndAuthenticateOwner();
+        try {
+            assertThat(parkingSpotReservationService.reserveOwnParkingSpot(Duration.ofMillis(500))).isPresent();
+            // renewed behind the back of the timing wheel of this node
+            parkingSpotStateJdbcRepository.updateReservation(reservedParkingSpot.getId(), Instant.now().plus(Duration.ofHours(1)),
+                reservedParkingSpot.getOwnedAccount().getLogin(), Instant.now());
+
+            assertThat(awaitFree(reservedParkingSpot)).isFalse();
+            assertThat(parkingSpotRepository.findById(reservedParkingSpot.getId()).get().getReservedUntil()).isNotNull();
+        } finally {
+            parkingSpotRepository.deleteById(reservedParkingSpot.getId());
+        }
+    }
+
+    @Test
+    @Transactional
+    public void reserveWithoutOwnParkingSpot() throws Exception {
+        restReservationMockMvc.perform(post("/parking-spots/reservations"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void checkTtlIsPositiveAndBounded() throws Exception {
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        restReservationMockMvc.perform(post("/parking-spots/reservations?ttl=PT0S"))
+            .andExpect(status().isBadRequest());
+        restReservationMockMvc.perform(post("/parking-spots/reservations?ttl=P30D"))
+            .andExpect(status().isBadRequest());
+        restReservationMockMvc.perform(post("/parking-spots/reservations?ttl=soon"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -1,36 +1,78 @@
 package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
 
 import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.base.QueryService;
+import com.companyname.parking.api.application.base.ShapedSpecification;
+import com.companyname.parking.api.application.base.filter.BooleanFilter;
+import com.companyname.parking.api.application.base.filter.LongFilter;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.occupancy.ZoneOccupancy;
+import com.companyname.parking.api.application.parkingspot.FreeParkingSpotPool;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotApplicationService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotAssignmentDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotCriteria;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotGroupCommitter;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotMapper;
 import com.companyname.parking.api.application.parkingspot.ParkingSpotQueryService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWriteBehindQueue;
 import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot_;
 import com.companyname.parking.api.domain.user.User;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotTombstoneJdbcRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.ETagUtil;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.PaginationUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.user.UserResourceIntTests;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.hibernate.Session;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.Validator;
 
 import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -87,10 +129,40 @@ public class ParkingSpotResourceIntTests {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private ZoneOccupancy zoneOccupancy;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private ParkingSpotStateJdbcRepository parkingSpotStateJdbcRepository;
+
+    @Autowired
+    private ParkingSpotTombstoneJdbcRepository parkingSpotTombstoneJdbcRepository;
+
+    @Autowired
+    private ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue;
+
+    @Autowired
+    private ParkingSpotGroupCommitter parkingSpotGroupCommitter;
+
+    @Autowired
+    private FreeParkingSpotPool freeParkingSpotPool;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final ParkingSpotResource parkingSpotResource = new ParkingSpotResource(parkingSpotApplicationService, parkingSpotQueryService);
+        final ParkingSpotResource parkingSpotResource = new ParkingSpotResource(parkingSpotApplicationService, parkingSpotQueryService, applicationProperties);
         this.restParkingSpotMockMvc = MockMvcBuilders.standaloneSetup(parkingSpotResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -229,7 +301,19 @@ public class ParkingSpotResourceIntTests {
             .andExpect(jsonPath("$.[*].ownedAccountId").value(hasItem(parkingSpot.getOwnedAccount().getId().intValue())))
             .andExpect(jsonPath("$.[*].ownedAccountLogin").value(hasItem(parkingSpot.getOwnedAccount().getLogin())));
     }
-    
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsWithAssignment() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        jdbcTemplate.update("update parking_spot set assigned_to = ? where id = ?", "driver", parkingSpot.getId());
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?id.equals={id}", parkingSpot.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].assignedTo").value("driver"));
+    }
+
     @Test
     @Transactional
     public void getParkingSpot() throws Exception {
@@ -247,6 +331,104 @@ public class ParkingSpotResourceIntTests {
                 .andExpect(jsonPath("$.ownedAccountLogin").value(equalTo(parkingSpot.getOwnedAccount().getLogin())));
     }
 
+    @Test
+    @Transactional
+    public void getParkingSpotIfNoneMatch() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        String eTag = ETagUtil.fromVersion(parkingSpot.getVersion(), parkingSpot.getOwnedAccount().getLogin());
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/{id}", parkingSpot.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/{id}", parkingSpot.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Any update moves the parkingSpot to the next version
+        parkingSpotRepository.saveAndFlush(parkingSpot.setFree(UPDATED_IS_FREE));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/{id}", parkingSpot.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG,
+                ETagUtil.fromVersion(parkingSpot.getVersion(), parkingSpot.getOwnedAccount().getLogin())))
+            .andExpect(jsonPath("$.free").value(UPDATED_IS_FREE));
+    }
+
+    @Test
+    @Transactional
+    public void getParkingSpotIfNoneMatchAfterOwnerLoginChange() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        String eTag = restParkingSpotMockMvc.perform(get("/parking-spots/{id}", parkingSpot.getId()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // the version of the parkingSpot does not change with the login of its owner
+        User owner = parkingSpot.getOwnedAccount();
+        owner.setLogin("renamed-" + owner.getId());
+        userRepository.saveAndFlush(owner);
+        em.clear();
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/{id}", parkingSpot.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.ownedAccountLogin").value(owner.getLogin()));
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsIfNoneMatch() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        String eTag = restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(content().string(""));
+
+        parkingSpotRepository.saveAndFlush(parkingSpot.setName(UPDATED_NAME));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsIfNoneMatchAfterOwnerLoginChange() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        String eTag = restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // the version of the parkingSpot does not change with the login of its owner
+        User owner = parkingSpot.getOwnedAccount();
+        owner.setLogin("renamed-" + owner.getId());
+        userRepository.saveAndFlush(owner);
+        em.clear();
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+            .andExpect(jsonPath("$.[*].ownedAccountLogin").value(hasItem(owner.getLogin())));
+    }
+
     @Test
     @Transactional
     public void getAllParkingSpotsByNameIsEqualToSomething() throws Exception {
@@ -325,6 +507,144 @@ public class ParkingSpotResourceIntTests {
         defaultParkingSpotShouldNotBeFound("isFree.specified=false");
     }
 
+    @Test
+    @Transactional
+    public void getAllParkingSpotsByLastModifiedDateIsInRange() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        Instant lastModifiedDate = parkingSpot.getLastModifiedDate();
+
+        // Get all the parkingSpotList where lastModifiedDate is in range
+        defaultParkingSpotShouldBeFound("lastModifiedDate.greaterOrEqualThan=" + lastModifiedDate
+            + "&lastModifiedDate.lessThan=" + lastModifiedDate.plusSeconds(1));
+
+        // Get all the parkingSpotList where lastModifiedDate is after the range
+        defaultParkingSpotShouldNotBeFound("lastModifiedDate.greaterThan=" + lastModifiedDate);
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsWithCountModes() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        parkingSpotRepository.saveAndFlush(createRandomizedEntity());
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc&size=1&count=none"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").value(hasSize(1)))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().doesNotExist("X-Total-Count-Estimate"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("count=none&page=1&size=1>; rel=\"next\"")))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"last\""))));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc&name.equals={name}&count=estimate", DEFAULT_NAME))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(parkingSpot.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string("X-Total-Count-Estimate", "1"))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("name.equals=")))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("count=estimate&page=0&size=20>; rel=\"first\"")));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?sort=id,desc&count=exact"))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"last\"")));
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsAfterCursor() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        ParkingSpot nextParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity());
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?after={after}&size=1&name.equals={name}",
+            PaginationUtil.encodeCursor(parkingSpot.getId() - 1), DEFAULT_NAME))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(parkingSpot.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+
+        String link = restParkingSpotMockMvc.perform(get("/parking-spots?after={after}&size=1&count=exact",
+            PaginationUtil.encodeCursor(parkingSpot.getId() - 1)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(parkingSpot.getId().intValue())))
+            .andExpect(header().exists("X-Total-Count"))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+
+        // The next link carries the cursor after the parkingSpot
+        assertThat(link).contains("after=" + PaginationUtil.encodeCursor(parkingSpot.getId()) + "&size=1>; rel=\"next\"");
+        restParkingSpotMockMvc.perform(get("/parking-spots?after={after}&size=1", PaginationUtil.encodeCursor(parkingSpot.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(nextParkingSpot.getId().intValue())));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots?after=&count=approximately"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsWithoutLoadingEntities() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        em.clear();
+
+        Page<ParkingSpotDTO> page = parkingSpotQueryService.findByCriteria(new ParkingSpotCriteria(), PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).extracting(ParkingSpotDTO::getOwnedAccountLogin)
+            .contains(parkingSpot.getOwnedAccount().getLogin());
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @Transactional
+    public void getAllParkingSpotsBySameFiltersWithOtherValues() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        ParkingSpot otherParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity().setFree(true));
+
+        // The same filters are rendered once, and bound to each value
+        for (ParkingSpot expected : Arrays.asList(parkingSpot, otherParkingSpot, parkingSpot)) {
+            LongFilter id = new LongFilter();
+            id.setEquals(expected.getId());
+            BooleanFilter isFree = new BooleanFilter();
+            isFree.setEquals(expected.isFree());
+            ParkingSpotCriteria criteria = new ParkingSpotCriteria();
+            criteria.setId(id);
+            criteria.setIsFree(isFree);
+            assertThat(parkingSpotQueryService.findByCriteria(criteria, PageRequest.of(0, 20)).getContent())
+                .extracting(ParkingSpotDTO::getId).containsExactly(expected.getId());
+            assertThat(parkingSpotQueryService.countByCriteria(criteria)).isEqualTo(1);
+        }
+
+        // In lists of another size are another shape
+        defaultParkingSpotShouldBeFound("id.in=" + parkingSpot.getId() + "," + Long.MAX_VALUE);
+        defaultParkingSpotShouldNotBeFound("id.in=" + Long.MAX_VALUE);
+        defaultParkingSpotShouldBeFound("name.contains=" + DEFAULT_NAME.toUpperCase() + "&id.in=" + parkingSpot.getId());
+    }
+
+    @Test
+    @Transactional
+    public void runShapedSpecificationsLikeAnyOther() {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        LongFilter id = new LongFilter();
+        id.setIn(Arrays.asList(parkingSpot.getId(), Long.MAX_VALUE));
+
+        ShapedSpecification<ParkingSpot> specification = new QueryService<ParkingSpot>() {
+            ShapedSpecification<ParkingSpot> byId(LongFilter filter) {
+                return buildShapedSpecification(ShapedSpecification.empty(), "id", filter, root -> root.get(ParkingSpot_.id));
+            }
+        }.byId(id);
+
+        assertThat(specification.getShape()).isEqualTo("id.in(2);");
+        assertThat(specification.getValues()).containsExactly(parkingSpot.getId(), Long.MAX_VALUE);
+        // the values are literals, so no parameter is left to bind
+        assertThat(parkingSpotRepository.findAll(specification)).containsExactly(parkingSpot);
+    }
+
     /**
      * Executes the search, and checks that the default entity is returned
      */
@@ -420,6 +740,170 @@ public class ParkingSpotResourceIntTests {
         assertThat(parkingSpotList).hasSize(databaseSizeBeforeUpdate);
     }
 
+    @Test
+    @Transactional
+    public void updateParkingSpotWithStaleVersion() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        ParkingSpotDTO staleParkingSpotDTO = parkingSpotMapper.toDto(parkingSpot);
+
+        // A concurrent update moves the parkingSpot to the next version
+        parkingSpotRepository.saveAndFlush(parkingSpot.setFree(UPDATED_IS_FREE));
+
+        staleParkingSpotDTO.setName(UPDATED_NAME);
+        restParkingSpotMockMvc.perform(put("/parking-spots")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(staleParkingSpotDTO)))
+            .andExpect(status().isConflict());
+
+        // Validate the ParkingSpot in the database
+        ParkingSpot testParkingSpot = parkingSpotRepository.findById(parkingSpot.getId()).get();
+        assertThat(testParkingSpot.getName()).isEqualTo(DEFAULT_NAME);
+        assertThat(testParkingSpot.isFree()).isEqualTo(UPDATED_IS_FREE);
+    }
+
+    @Test
+    @Transactional
+    public void updateParkingSpotIfMatch() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        String eTag = ETagUtil.fromVersion(parkingSpot.getVersion(), parkingSpot.getOwnedAccount().getLogin());
+        ParkingSpotDTO parkingSpotDTO = parkingSpotMapper.toDto(parkingSpot);
+        // the entity tag stands for the version
+        parkingSpotDTO.setVersion(null);
+        parkingSpotDTO.setName(UPDATED_NAME);
+
+        restParkingSpotMockMvc.perform(put("/parking-spots")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(parkingSpotDTO)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+
+        // The entity tag is now stale
+        parkingSpotDTO.setName(DEFAULT_NAME);
+        restParkingSpotMockMvc.perform(put("/parking-spots")
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(parkingSpotDTO)))
+            .andExpect(status().isPreconditionFailed());
+
+        // Weak entity tags never match
+        restParkingSpotMockMvc.perform(put("/parking-spots")
+            .header(HttpHeaders.IF_MATCH, "W/" + ETagUtil.fromVersion(
+                parkingSpotRepository.findById(parkingSpot.getId()).get().getVersion(), parkingSpot.getOwnedAccount().getLogin()))
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(parkingSpotDTO)))
+            .andExpect(status().isPreconditionFailed());
+
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().getName()).isEqualTo(UPDATED_NAME);
+    }
+
+    @Test
+    @Transactional
+    public void checkVersionIsRequiredOnUpdate() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        ParkingSpotDTO parkingSpotDTO = parkingSpotMapper.toDto(parkingSpot);
+        parkingSpotDTO.setVersion(null);
+
+        restParkingSpotMockMvc.perform(put("/parking-spots")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(parkingSpotDTO)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void changeParkingSpotStates() throws Exception {
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        Instant receivedAfter = Instant.now();
+
+        String states = "[" +
+            "{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":true,\"observedAt\":\"2020-04-01T10:00:00Z\"}," +
+            "{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":true}," +
+            "{\"spotId\":" + Long.MAX_VALUE + ",\"isFree\":false}" +
+            "]";
+        MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/states")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(states))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        restParkingSpotMockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].spotId").value(contains(parkingSpot.getId().intValue(), parkingSpot.getId().intValue(), Long.MAX_VALUE)))
+            .andExpect(jsonPath("$.[*].status").value(contains("STALE", "APPLIED", "NOT_FOUND")));
+
+        // Validate the ParkingSpot in the database, changed at the time the states were received
+        em.clear();
+        ParkingSpot testParkingSpot = parkingSpotRepository.findById(parkingSpot.getId()).get();
+        assertThat(testParkingSpot.isFree()).isTrue();
+        assertThat(testParkingSpot.getLastModifiedDate()).isAfterOrEqualTo(receivedAfter.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    @Transactional
+    public void rejectParkingSpotStatesObservedBeforeTheLastOne() throws Exception {
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+
+        // coalesced to the last observed entry, whatever their order
+        changeStates("[" +
+            "{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":true,\"observedAt\":\"2020-04-01T10:00:00Z\"}," +
+            "{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":false,\"observedAt\":\"2020-04-01T09:00:00Z\"}" +
+            "]")
+            .andExpect(jsonPath("$.[*].status").value(contains("APPLIED", "STALE")));
+        assertThat(occupancyEngine.getState(parkingSpot.getId())).isEqualTo(OccupancyEngine.FREE);
+
+        // older than the last applied observation
+        changeStates("[{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":false,\"observedAt\":\"2020-04-01T09:30:00Z\"}]")
+            .andExpect(jsonPath("$.[*].status").value(contains("STALE")));
+        em.clear();
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().isFree()).isTrue();
+        assertThat(occupancyEngine.getState(parkingSpot.getId())).isEqualTo(OccupancyEngine.FREE);
+
+        changeStates("[{\"spotId\":" + parkingSpot.getId() + ",\"isFree\":false,\"observedAt\":\"2020-04-01T10:30:00Z\"}]")
+            .andExpect(jsonPath("$.[*].status").value(contains("APPLIED")));
+        em.clear();
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().isFree()).isFalse();
+    }
+
+    @Test
+    @Transactional
+    public void checkParkingSpotStatesAreBounded() throws Exception {
+        ApplicationProperties boundedProperties = new ApplicationProperties();
+        boundedProperties.getParkingSpots().getIngestion().setMaxStates(2);
+        MockMvc boundedMockMvc = MockMvcBuilders.standaloneSetup(
+            new ParkingSpotResource(parkingSpotApplicationService, parkingSpotQueryService, boundedProperties))
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+
+        boundedMockMvc.perform(post("/parking-spots/states")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content("[{\"spotId\":1,\"isFree\":true},{\"spotId\":2,\"isFree\":true},{\"spotId\":3,\"isFree\":true}]"))
+            .andExpect(status().isPayloadTooLarge());
+    }
+
+    private ResultActions changeStates(String states) throws Exception {
+        MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/states")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content(states))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return restParkingSpotMockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    public void checkParkingSpotStatesNeedSpotIdAndIsFree() throws Exception {
+        restParkingSpotMockMvc.perform(post("/parking-spots/states")
+            .contentType(TestsUtil.APPLICATION_JSON_UTF8)
+            .content("[{\"isFree\":true}]"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void deleteParkingSpot() throws Exception {
@@ -438,6 +922,75 @@ public class ParkingSpotResourceIntTests {
         assertThat(parkingSpotList).hasSize(databaseSizeBeforeDelete - 1);
     }
 
+    @Test
+    @Transactional
+    public void getParkingSpotChanges() throws Exception {
+        Instant since = Instant.now().minus(1, ChronoUnit.MINUTES);
+        // Initialize the database
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        ParkingSpot deletedParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity());
+        restParkingSpotMockMvc.perform(delete("/parking-spots/{id}", deletedParkingSpot.getId()))
+            .andExpect(status().isOk());
+
+        // Backdate both changes past the settle period of the watermark
+        Instant changedAt = since.plusSeconds(30);
+        em.createNativeQuery("update parking_spot set last_modified_date = ? where id = ?")
+            .setParameter(1, changedAt).setParameter(2, parkingSpot.getId()).executeUpdate();
+        em.createNativeQuery("update parking_spot_tombstone set deleted_at = ? where spot_id = ?")
+            .setParameter(1, changedAt).setParameter(2, deletedParkingSpot.getId()).executeUpdate();
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}", since))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+            .andExpect(jsonPath("$.changed.[*].id").value(hasItem(parkingSpot.getId().intValue())))
+            .andExpect(jsonPath("$.deleted").value(hasItem(deletedParkingSpot.getId().intValue())))
+            .andExpect(jsonPath("$.watermark").isNotEmpty());
+
+        // The tombstones are returned whatever the criteria
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}&name.equals={name}", since, UPDATED_NAME))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed").isEmpty())
+            .andExpect(jsonPath("$.deleted").value(hasItem(deletedParkingSpot.getId().intValue())));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}", changedAt))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(not(hasItem(parkingSpot.getId().intValue()))))
+            .andExpect(jsonPath("$.deleted").value(not(hasItem(deletedParkingSpot.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void getParkingSpotChangesPageByPage() throws Exception {
+        // a window nobody else changed parkingSpots in
+        Instant since = Instant.now().minus(20, ChronoUnit.DAYS);
+        List<ParkingSpot> changedParkingSpots = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ParkingSpot changedParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity());
+            em.createNativeQuery("update parking_spot set last_modified_date = ? where id = ?")
+                .setParameter(1, since.plusSeconds(i)).setParameter(2, changedParkingSpot.getId()).executeUpdate();
+            changedParkingSpots.add(changedParkingSpot);
+        }
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}&limit=2", since))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(contains(
+                changedParkingSpots.get(0).getId().intValue(), changedParkingSpots.get(1).getId().intValue())))
+            .andExpect(jsonPath("$.watermark").value(since.plusSeconds(2).toString()))
+            .andExpect(jsonPath("$.more").value(true));
+
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}&limit=2", since.plusSeconds(2)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.[*].id").value(hasItem(changedParkingSpots.get(2).getId().intValue())))
+            .andExpect(jsonPath("$.changed.[*].id").value(not(hasItem(changedParkingSpots.get(1).getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void checkChangesWatermarkIsRetained() throws Exception {
+        restParkingSpotMockMvc.perform(get("/parking-spots/changes?since={since}", Instant.now().minus(365, ChronoUnit.DAYS)))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void equalsVerifier() throws Exception {
@@ -494,4 +1047,291 @@ public class ParkingSpotResourceIntTests {
                 .andExpect(content().string(String.valueOf( targetParkingSpotCount / 2 )));
 
     }
+
+    @Test
+    @Transactional
+    public void holdOwnParkingSpot() throws Exception {
+        parkingSpotRepository.saveAndFlush(parkingSpot.setFree(true));
+        long version = parkingSpot.getVersion();
+
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(parkingSpot.getOwnedAccount().getLogin(), parkingSpot.getOwnedAccount().getPassword()));
+        try {
+            MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/hold"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restParkingSpotMockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        // written by a single update on the version, and recorded by the occupancy engine
+        em.clear();
+        ParkingSpot heldParkingSpot = parkingSpotRepository.findById(parkingSpot.getId()).get();
+        assertThat(heldParkingSpot.isFree()).isFalse();
+        assertThat(heldParkingSpot.getVersion()).isEqualTo(version + 1);
+        assertThat(heldParkingSpot.getLastModifiedBy()).isEqualTo(parkingSpot.getOwnedAccount().getLogin());
+        assertThat(occupancyEngine.getState(parkingSpot.getId())).isEqualTo(OccupancyEngine.HELD);
+    }
+
+    @Test
+    @Transactional
+    public void compareAndSetStateOnlyOnTheExpectedVersion() {
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        long version = parkingSpot.getVersion();
+        ParkingSpotStateChange change = new ParkingSpotStateChange(parkingSpot.getId(), true, "test", Instant.now());
+
+        assertThat(parkingSpotStateJdbcRepository.compareAndSetState(change, version + 1)).isFalse();
+        assertThat(parkingSpotStateJdbcRepository.compareAndSetState(change, version)).isTrue();
+        assertThat(parkingSpotStateJdbcRepository.compareAndSetState(change, version)).isFalse();
+
+        em.clear();
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @Transactional
+    public void countMatchesDatabaseAfterStateChanges() throws Exception {
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+        assertCountMatchesDatabase();
+
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(parkingSpot.getOwnedAccount().getLogin(), parkingSpot.getOwnedAccount().getPassword()));
+        try {
+            MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/freeUp"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restParkingSpotMockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+            assertCountMatchesDatabase();
+
+            mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/hold"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restParkingSpotMockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+            assertCountMatchesDatabase();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        em.clear();
+        parkingSpotRepository.saveAndFlush(parkingSpotRepository.findById(parkingSpot.getId()).get().setFree(true));
+        assertCountMatchesDatabase();
+
+        restParkingSpotMockMvc.perform(delete("/parking-spots/{id}", parkingSpot.getId()))
+            .andExpect(status().isOk());
+        em.flush();
+        assertCountMatchesDatabase();
+    }
+
+    @Test
+    public void countFollowsChangesOfOtherNodesOnRefresh() throws Exception {
+        // committed, as another node only changes the database
+        ParkingSpot otherParkingSpot = parkingSpotRepository.save(createRandomizedEntity());
+        try {
+            jdbcTemplate.update("update parking_spot set is_free = ? where id = ?", true, otherParkingSpot.getId());
+            // the spot was saved on this node since the last refresh, so it is only reloaded by the next one
+            occupancyEngine.refresh();
+            occupancyEngine.refresh();
+            assertCountMatchesDatabase();
+
+            jdbcTemplate.update("delete from parking_spot where id = ?", otherParkingSpot.getId());
+            occupancyEngine.refresh();
+            assertCountMatchesDatabase();
+        } finally {
+            deleteCommitted(Collections.singletonList(otherParkingSpot));
+        }
+    }
+
+    /**
+     * Delete committed parkingSpots, their owners and the owner saved by initTest, by id with JDBC, so the cleanup of
+     * a failed test cannot fail on a stale entity and leave rows which offset the counts of the next runs.
+     */
+    private void deleteCommitted(List<ParkingSpot> committed) {
+        Set<Long> ownerIds = new HashSet<>();
+        ownerIds.add(parkingSpot.getOwnedAccount().getId());
+        for (ParkingSpot spot : committed) {
+            ownerIds.addAll(jdbcTemplate.queryForList("select owned_account_id from parking_spot where id = ?",
+                Long.class, spot.getId()));
+            jdbcTemplate.update("delete from parking_spot where id = ?", spot.getId());
+            occupancyEngine.remove(spot.getId());
+        }
+        for (Long ownerId : ownerIds) {
+            jdbcTemplate.update("delete from user_authority where user_id = ?", ownerId);
+            jdbcTemplate.update("delete from user where id = ?", ownerId);
+        }
+    }
+
+    private void assertCountMatchesDatabase() throws Exception {
+        assertThat(occupancyEngine.isReady()).isTrue();
+        for (boolean isFree : new boolean[]{true, false}) {
+            long count = parkingSpotRepository.count((root, query, builder) -> builder.equal(root.get("isFree"), isFree));
+            restParkingSpotMockMvc.perform(get("/parking-spots/count?isFree.equals=" + isFree))
+                .andExpect(status().isOk())
+                .andExpect(content().string(String.valueOf(count)));
+        }
+    }
+
+    @Test
+    public void assignFreeParkingSpot() throws Exception {
+        // committed, as the free parkingSpot pool follows committed changes only
+        ParkingSpot freeParkingSpot = parkingSpotRepository.save(createRandomizedEntity().setFree(true));
+        try {
+            MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/assign"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restParkingSpotMockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.spotId").isNumber())
+                .andExpect(jsonPath("$.assignedAt").isNotEmpty());
+        } finally {
+            deleteCommitted(Collections.singletonList(freeParkingSpot));
+        }
+    }
+
+    @Test
+    public void assignFreeParkingSpotWhileLoading() throws Exception {
+        // never loaded
+        OccupancyEngine loadingEngine = new OccupancyEngine(parkingSpotRepository, zoneOccupancy);
+        ParkingSpotApplicationService loadingService = new ParkingSpotApplicationService(parkingSpotRepository,
+            parkingSpotStateJdbcRepository, parkingSpotTombstoneJdbcRepository, parkingSpotMapper, loadingEngine,
+            parkingSpotWriteBehindQueue, parkingSpotGroupCommitter, freeParkingSpotPool, applicationProperties);
+        MockMvc loadingMockMvc = MockMvcBuilders.standaloneSetup(
+            new ParkingSpotResource(loadingService, parkingSpotQueryService, applicationProperties))
+            .setControllerAdvice(exceptionTranslator)
+            .setMessageConverters(jacksonMessageConverter).build();
+
+        loadingMockMvc.perform(post("/parking-spots/assign"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(jsonPath("$.message").value("error.http.503"));
+    }
+
+    @Test
+    public void releaseAssignedParkingSpot() throws Exception {
+        ParkingSpot freeParkingSpot = parkingSpotRepository.save(createRandomizedEntity().setFree(true));
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("driver", "driver"));
+        try {
+            MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/assign"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            restParkingSpotMockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assignedTo").value("driver"));
+            Long id = ((ParkingSpotAssignmentDTO) ((ResponseEntity<?>) mvcResult.getAsyncResult()).getBody()).getSpotId();
+            // written with the state
+            ParkingSpot assigned = parkingSpotRepository.findById(id).get();
+            assertThat(assigned.getAssignedTo()).isEqualTo("driver");
+            assertThat(assigned.isFree()).isFalse();
+            assertThat(assigned.getVersion()).isGreaterThan(freeParkingSpot.getVersion());
+            assertThat(assigned.getLastModifiedBy()).isEqualTo("driver");
+
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("other-driver", "other-driver"));
+            releaseAssignment(id)
+                .andExpect(status().isNotFound());
+
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("driver", "driver"));
+            releaseAssignment(id)
+                .andExpect(status().isOk());
+            ParkingSpot released = parkingSpotRepository.findById(id).get();
+            assertThat(released.isFree()).isTrue();
+            assertThat(released.getAssignedTo()).isNull();
+            assertThat(occupancyEngine.getState(id)).isEqualTo(OccupancyEngine.FREE);
+            releaseAssignment(id)
+                .andExpect(status().isNotFound());
+        } finally {
+            SecurityContextHolder.clearContext();
+            deleteCommitted(Collections.singletonList(freeParkingSpot));
+        }
+    }
+
+    private ResultActions releaseAssignment(Long id) throws Exception {
+        MvcResult mvcResult = restParkingSpotMockMvc.perform(post("/parking-spots/assign/{id}/release", id))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return restParkingSpotMockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+    @Test
+    public void concurrentAssignmentsNeverShareAParkingSpot() throws Exception {
+        List<ParkingSpot> parkingSpotList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            parkingSpotList.add(createRandomizedEntity().setFree(true));
+        }
+        parkingSpotRepository.saveAll(parkingSpotList);
+        ExecutorService drivers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Optional<ParkingSpotAssignmentDTO>>> assignments = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                assignments.add(() -> parkingSpotApplicationService.assignFreeParkingSpot().get());
+            }
+            Set<Long> assignedIds = new HashSet<>();
+            int assigned = 0;
+            for (Future<Optional<ParkingSpotAssignmentDTO>> assignment : drivers.invokeAll(assignments)) {
+                if (assignment.get().isPresent()) {
+                    assignedIds.add(assignment.get().get().getSpotId());
+                    assigned++;
+                }
+            }
+            assertThat(assignedIds).hasSize(assigned);
+            for (ParkingSpot spot : parkingSpotList) {
+                assertThat(assignedIds).contains(spot.getId());
+                assertThat(parkingSpotRepository.findById(spot.getId()).get().isFree()).isFalse();
+            }
+        } finally {
+            drivers.shutdown();
+            deleteCommitted(parkingSpotList);
+        }
+    }
+
+    @Test
+    public void concurrentCrossNodeClaimsNeverShareAParkingSpot() throws Exception {
+        ApplicationProperties crossNodeProperties = new ApplicationProperties();
+        crossNodeProperties.getParkingSpots().getAssignment().setCrossNode(true);
+        // not a proxy, so every claim runs in its own transaction from the template
+        ParkingSpotApplicationService crossNodeService = new ParkingSpotApplicationService(parkingSpotRepository,
+            parkingSpotStateJdbcRepository, parkingSpotTombstoneJdbcRepository, parkingSpotMapper, occupancyEngine,
+            parkingSpotWriteBehindQueue, parkingSpotGroupCommitter, freeParkingSpotPool, crossNodeProperties);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<ParkingSpot> parkingSpotList = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            parkingSpotList.add(createRandomizedEntity().setFree(true));
+        }
+        parkingSpotRepository.saveAll(parkingSpotList);
+        ExecutorService drivers = Executors.newFixedThreadPool(2);
+        CyclicBarrier start = new CyclicBarrier(2);
+        try {
+            List<Callable<Optional<ParkingSpotAssignmentDTO>>> claims = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                claims.add(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> crossNodeService.assignFreeParkingSpot().join());
+                });
+            }
+            Set<Long> claimedIds = new HashSet<>();
+            for (Future<Optional<ParkingSpotAssignmentDTO>> claim : drivers.invokeAll(claims)) {
+                assertThat(claim.get()).isPresent();
+                claimedIds.add(claim.get().get().getSpotId());
+            }
+            assertThat(claimedIds).hasSize(2);
+            for (Long id : claimedIds) {
+                assertThat(parkingSpotRepository.findById(id).get().isFree()).isFalse();
+            }
+        } finally {
+            drivers.shutdown();
+            deleteCommitted(parkingSpotList);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void claimFreeParkingSpots() {
+        ParkingSpot freeParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity().setFree(true));
+        ParkingSpot heldParkingSpot = parkingSpotRepository.saveAndFlush(createRandomizedEntity().setFree(false));
+
+        List<ParkingSpot> claimed = parkingSpotRepository.findFreeForClaim(PageRequest.of(0, 10));
+        assertThat(claimed).contains(freeParkingSpot).doesNotContain(heldParkingSpot);
+
+        parkingSpotRepository.saveAndFlush(freeParkingSpot.hold());
+        assertThat(parkingSpotRepository.findFreeForClaim(PageRequest.of(0, 10))).doesNotContain(freeParkingSpot);
+    }
 }
@@ -0,0 +1,272 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.occupancy.OccupancyEngine;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotApplicationService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotOfferDTO;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWaitlistService;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotWriteBehindQueue;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpotStateChange;
+import com.companyname.parking.api.domain.waitlist.WaitlistEntry;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.parkingspot.ParkingSpotStateJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jdbc.waitlist.WaitlistJdbcRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ParkingSpotWaitlistResource REST controller.
+ * The parkingSpots are committed, as offers only follow committed changes, and are deleted after each test.
+ *
+ * @see ParkingSpotWaitlistResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotWaitlistResourceIntTests {
+
+    @Autowired
+    private ParkingSpotWaitlistService parkingSpotWaitlistService;
+
+    @Autowired
+    private ParkingSpotOfferPusher parkingSpotOfferPusher;
+
+    @Autowired
+    private ParkingSpotApplicationService parkingSpotApplicationService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private WaitlistJdbcRepository waitlistJdbcRepository;
+
+    @Autowired
+    private ParkingSpotWriteBehindQueue parkingSpotWriteBehindQueue;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    private MockMvc restWaitlistMockMvc;
+
+    private final List<ParkingSpot> parkingSpots = new ArrayList<>();
+
+    private String firstLogin;
+
+    private String secondLogin;
+
+    @Before
+    public void setup() {
+        ParkingSpotWaitlistResource waitlistResource = new ParkingSpotWaitlistResource(parkingSpotWaitlistService, parkingSpotOfferPusher);
+        this.restWaitlistMockMvc = MockMvcBuilders.standaloneSetup(waitlistResource)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter).build();
+        firstLogin = "waiting-" + RandomStringUtils.randomAlphabetic(8).toLowerCase();
+        secondLogin = "waiting-" + RandomStringUtils.randomAlphabetic(8).toLowerCase();
+        authenticate(firstLogin);
+    }
+
+    @After
+    public void cleanUp() {
+        parkingSpotWaitlistService.leave(firstLogin);
+        parkingSpotWaitlistService.leave(secondLogin);
+        // the owned account is deleted along
+        parkingSpots.forEach(parkingSpot -> parkingSpotRepository.deleteById(parkingSpot.getId()));
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void joinAndLeaveWaitlist() throws Exception {
+        restWaitlistMockMvc.perform(post("/parking-spots/waitlist"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.position").isNumber())
+            .andExpect(jsonPath("$.joinedAt").isNotEmpty());
+        int position = parkingSpotWaitlistService.getPosition(firstLogin).get().getPosition();
+
+        parkingSpotWaitlistService.join(secondLogin);
+        assertThat(parkingSpotWaitlistService.getPosition(secondLogin).get().getPosition()).isEqualTo(position + 1);
+
+        restWaitlistMockMvc.perform(get("/parking-spots/waitlist"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.position").value(position));
+        restWaitlistMockMvc.perform(delete("/parking-spots/waitlist"))
+            .andExpect(status().isOk());
+        restWaitlistMockMvc.perform(delete("/parking-spots/waitlist"))
+            .andExpect(status().isNotFound());
+        restWaitlistMockMvc.perform(get("/parking-spots/waitlist"))
+            .andExpect(status().isNotFound());
+        assertThat(parkingSpotWaitlistService.getPosition(secondLogin).get().getPosition()).isEqualTo(position);
+
+        parkingSpotWaitlistService.flush();
+        assertThat(waitlistJdbcRepository.findAll()).extracting(WaitlistEntry::getLogin)
+            .contains(secondLogin).doesNotContain(firstLogin);
+    }
+
+    @Test
+    public void acceptOfferOfFreedParkingSpot() throws Exception {
+        parkingSpotWaitlistService.join(firstLogin);
+        ParkingSpot parkingSpot = saveHeldParkingSpot();
+
+        free(parkingSpot);
+        ParkingSpotOfferDTO offer = awaitOffer(firstLogin);
+        assertThat(offer.getSpotId()).isEqualTo(parkingSpot.getId());
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().getReservedUntil()).isNotNull();
+
+        restWaitlistMockMvc.perform(post("/parking-spots/waitlist/offers/{spotId}/accept", parkingSpot.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.spotId").value(parkingSpot.getId().intValue()))
+            .andExpect(jsonPath("$.login").value(firstLogin));
+        restWaitlistMockMvc.perform(post("/parking-spots/waitlist/offers/{spotId}/accept", parkingSpot.getId()))
+            .andExpect(status().isNotFound());
+
+        ParkingSpot acceptedParkingSpot = parkingSpotRepository.findById(parkingSpot.getId()).get();
+        assertThat(acceptedParkingSpot.isFree()).isFalse();
+        assertThat(acceptedParkingSpot.getReservedUntil()).isNull();
+        assertThat(acceptedParkingSpot.getLastModifiedBy()).isEqualTo(firstLogin);
+        assertThat(acceptedParkingSpot.getAssignedTo()).isEqualTo(firstLogin);
+    }
+
+    @Test
+    public void declinedOfferGoesToNextUser() throws Exception {
+        parkingSpotWaitlistService.join(firstLogin);
+        parkingSpotWaitlistService.join(secondLogin);
+        ParkingSpot parkingSpot = saveHeldParkingSpot();
+
+        free(parkingSpot);
+        assertThat(awaitOffer(firstLogin).getSpotId()).isEqualTo(parkingSpot.getId());
+
+        restWaitlistMockMvc.perform(post("/parking-spots/waitlist/offers/{spotId}/decline", parkingSpot.getId()))
+            .andExpect(status().isOk());
+
+        assertThat(awaitOffer(secondLogin).getSpotId()).isEqualTo(parkingSpot.getId());
+        assertThat(parkingSpotWaitlistService.getOffer(firstLogin)).isEmpty();
+        assertThat(parkingSpotRepository.findById(parkingSpot.getId()).get().isFree()).isFalse();
+    }
+
+    @Test
+    public void skipUsersOfferedAParkingSpotByAnotherNode() throws Exception {
+        parkingSpotWaitlistService.join(firstLogin);
+        parkingSpotWaitlistService.join(secondLogin);
+        parkingSpotWaitlistService.flush();
+        // claimed by the offer of another node
+        WaitlistEntry firstEntry = waitlistJdbcRepository.findAll().stream()
+            .filter(entry -> entry.getLogin().equals(firstLogin))
+            .findFirst().get();
+        assertThat(waitlistJdbcRepository.claim(firstEntry)).isTrue();
+        ParkingSpot parkingSpot = saveHeldParkingSpot();
+
+        free(parkingSpot);
+        assertThat(awaitOffer(secondLogin).getSpotId()).isEqualTo(parkingSpot.getId());
+        assertThat(parkingSpotWaitlistService.getOffer(firstLogin)).isEmpty();
+        assertThat(parkingSpotWaitlistService.getPosition(firstLogin)).isEmpty();
+        assertThat(waitlistJdbcRepository.findAll()).extracting(WaitlistEntry::getLogin).doesNotContain(secondLogin);
+    }
+
+    @Test
+    public void keepTheTurnIfTheOfferIsNotWritten() throws Exception {
+        CountDownLatch reserving = new CountDownLatch(1);
+        ParkingSpotStateJdbcRepository failingRepository = new ParkingSpotStateJdbcRepository(jdbcTemplate) {
+            @Override
+            public boolean claimReservation(Long spotId, Instant reservedUntil, String actor, Instant timestamp) {
+                reserving.countDown();
+                throw new DataAccessResourceFailureException("Database unavailable");
+            }
+        };
+        ParkingSpotWaitlistService failingWaitlistService = new ParkingSpotWaitlistService(waitlistJdbcRepository, failingRepository,
+            parkingSpotApplicationService, parkingSpotWriteBehindQueue, occupancyEngine, transactionManager, applicationProperties);
+        failingWaitlistService.start();
+        try {
+            failingWaitlistService.join(firstLogin);
+            failingWaitlistService.join(secondLogin);
+            // offered once committed
+            ParkingSpot parkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(true));
+            parkingSpots.add(parkingSpot);
+
+            assertThat(reserving.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 100 && !failingWaitlistService.getPosition(firstLogin).isPresent(); i++) {
+                Thread.sleep(50);
+            }
+
+            assertThat(failingWaitlistService.getPosition(firstLogin).get().getPosition()).isEqualTo(1);
+            assertThat(failingWaitlistService.getPosition(secondLogin).get().getPosition()).isEqualTo(2);
+            assertThat(failingWaitlistService.getOffer(firstLogin)).isEmpty();
+            assertThat(occupancyEngine.getState(parkingSpot.getId())).isEqualTo(OccupancyEngine.FREE);
+        } finally {
+            failingWaitlistService.leave(firstLogin);
+            failingWaitlistService.leave(secondLogin);
+            failingWaitlistService.stop();
+        }
+    }
+
+    private ParkingSpot saveHeldParkingSpot() {
+        ParkingSpot parkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(false));
+        parkingSpots.add(parkingSpot);
+        return parkingSpot;
+    }
+
+    private void free(ParkingSpot parkingSpot) throws Exception {
+        parkingSpotApplicationService.changeStates(Collections.singletonList(
+            new ParkingSpotStateChange(parkingSpot.getId(), true, parkingSpot.getOwnedAccount().getLogin(), Instant.now()))).get();
+    }
+
+    private ParkingSpotOfferDTO awaitOffer(String login) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Optional<ParkingSpotOfferDTO> offer = parkingSpotWaitlistService.getOffer(login);
+            if (offer.isPresent()) {
+                return offer.get();
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No offer made to " + login);
+    }
+
+    private static void authenticate(String login) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login));
+    }
+}
@@ -8,6 +8,7 @@ import com.companyname.parking.api.domain.user.User;
 import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.util.PaginationUtil;
 import com.companyname.parking.api.infrastructure.port.adapter.rest.vm.ManagedUserVM;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
@@ -16,6 +17,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -28,8 +30,12 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -266,6 +272,52 @@ public class UserResourceIntTests {
             .andExpect(jsonPath("$.[*].langKey").value(hasItem(DEFAULT_LANGKEY)));
     }
 
+    @Test
+    @Transactional
+    public void getAllUsersWithoutCount() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        restUserMockMvc.perform(get("/users?sort=id,desc&size=1&count=none")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(contains(DEFAULT_LOGIN)))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("count=none&page=1&size=1>; rel=\"next\"")))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"last\""))));
+
+        restUserMockMvc.perform(get("/users?count=estimate")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("X-Total-Count-Estimate"));
+    }
+
+    @Test
+    @Transactional
+    public void getAllUsersAfterCursor() throws Exception {
+        // Initialize the database
+        userRepository.saveAndFlush(user);
+
+        // Get the users after the one before the saved user
+        restUserMockMvc.perform(get("/users?after={after}&size=1", PaginationUtil.encodeCursor(user.getId() - 1))
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].login").value(contains(DEFAULT_LOGIN)))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")));
+
+        restUserMockMvc.perform(get("/users?after=&size=1&count=exact")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").value(hasSize(1)))
+            .andExpect(header().string("X-Total-Count", String.valueOf(userService.countManagedUsers())))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+
+        restUserMockMvc.perform(get("/users?after=not-a-cursor")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getUser() throws Exception {
@@ -0,0 +1,179 @@
+package com.companyname.parking.api.infrastructure.port.adapter.rest.zone;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.zone.ZoneApplicationService;
+import com.companyname.parking.api.application.zone.ZoneDTO;
+import com.companyname.parking.api.application.zone.ZoneMapper;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.domain.zone.Zone;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.user.UserRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.zone.ZoneRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.errors.ExceptionTranslator;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot.ParkingSpotResourceIntTests;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.Validator;
+
+import java.util.List;
+
+import static com.companyname.parking.api.infrastructure.port.adapter.rest.TestsUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the ZoneResource REST controller.
+ *
+ * @see ZoneResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ZoneResourceIntTests {
+
+    private static final String DEFAULT_NAME = "AAAAAAAAAA";
+
+    private static final int DEFAULT_LEVEL = 1;
+
+    @Autowired
+    private ZoneRepository zoneRepository;
+
+    @Autowired
+    private ZoneMapper zoneMapper;
+
+    @Autowired
+    private ZoneApplicationService zoneApplicationService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    @Autowired
+    private PageableHandlerMethodArgumentResolver pageableArgumentResolver;
+
+    @Autowired
+    private ExceptionTranslator exceptionTranslator;
+
+    @Autowired
+    private Validator validator;
+
+    private MockMvc restZoneMockMvc;
+
+    private Zone zone;
+
+    @Before
+    public void setup() {
+        final ZoneResource zoneResource = new ZoneResource(zoneApplicationService);
+        this.restZoneMockMvc = MockMvcBuilders.standaloneSetup(zoneResource)
+            .setCustomArgumentResolvers(pageableArgumentResolver)
+            .setControllerAdvice(exceptionTranslator)
+            .setConversionService(createFormattingConversionService())
+            .setMessageConverters(jacksonMessageConverter)
+            .setValidator(validator).build();
+    }
+
+    /**
+     * Create an entity for this test.
+     *
+     * This is a static method, as tests for other entities might also need it,
+     * if they test an entity which requires the current entity.
+     */
+    public static Zone createEntity() {
+        return new Zone()
+            .setName(DEFAULT_NAME)
+            .setLevel(DEFAULT_LEVEL);
+    }
+
+    @Before
+    public void initTest() {
+        zone = createEntity();
+    }
+
+    @Test
+    @Transactional
+    public void createZone() throws Exception {
+        int databaseSizeBeforeCreate = zoneRepository.findAll().size();
+
+        ZoneDTO zoneDTO = zoneMapper.toDto(zone);
+        restZoneMockMvc.perform(post("/zones")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(zoneDTO)))
+            .andExpect(status().isCreated());
+
+        List<Zone> zoneList = zoneRepository.findAll();
+        assertThat(zoneList).hasSize(databaseSizeBeforeCreate + 1);
+        Zone testZone = zoneList.get(zoneList.size() - 1);
+        assertThat(testZone.getName()).isEqualTo(DEFAULT_NAME);
+        assertThat(testZone.getLevel()).isEqualTo(DEFAULT_LEVEL);
+
+        // A new zone is counted right away, without any parking spot
+        restZoneMockMvc.perform(get("/zones/{id}/count", testZone.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string("0"));
+    }
+
+    @Test
+    @Transactional
+    public void countZoneParkingSpots() throws Exception {
+        ZoneDTO zoneDTO = zoneApplicationService.save(zoneMapper.toDto(zone));
+        Zone savedZone = zoneRepository.getOne(zoneDTO.getId());
+        saveParkingSpot(savedZone, true);
+        saveParkingSpot(savedZone, false);
+        saveParkingSpot(null, true);
+
+        restZoneMockMvc.perform(get("/zones/{id}/count", savedZone.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string("2"));
+
+        restZoneMockMvc.perform(get("/zones/{id}/count?isFree.equals=true", savedZone.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string("1"));
+    }
+
+    @Test
+    @Transactional
+    public void countNonExistingZoneParkingSpots() throws Exception {
+        restZoneMockMvc.perform(get("/zones/{id}/count", Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void checkNameIsRequired() throws Exception {
+        int databaseSizeBeforeTest = zoneRepository.findAll().size();
+        zone.setName(null);
+
+        ZoneDTO zoneDTO = zoneMapper.toDto(zone);
+        restZoneMockMvc.perform(post("/zones")
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .content(TestsUtil.convertObjectToJsonBytes(zoneDTO)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(zoneRepository.findAll()).hasSize(databaseSizeBeforeTest);
+    }
+
+    private void saveParkingSpot(Zone zone, boolean isFree) {
+        ParkingSpot parkingSpot = ParkingSpotResourceIntTests.createRandomizedEntity()
+            .setFree(isFree)
+            .setZone(zone);
+        parkingSpot.setOwnedAccount(userRepository.save(parkingSpot.getOwnedAccount()));
+        parkingSpotRepository.saveAndFlush(parkingSpot);
+    }
+}
@@ -0,0 +1,147 @@
+package com.companyname.parking.api.infrastructure.port.adapter.udp.parkingspot;
+
+import com.companyname.parking.api.ParkingApiServiceApplication;
+import com.companyname.parking.api.application.parkingspot.ParkingSpotApplicationService;
+import com.companyname.parking.api.domain.parkingspot.ParkingSpot;
+import com.companyname.parking.api.infrastructure.port.adapter.persistence.jpa.parkingspot.ParkingSpotRepository;
+import com.companyname.parking.api.infrastructure.port.adapter.rest.parkingspot.ParkingSpotResourceIntTests;
+import com.companyname.parking.api.infrastructure.spring.config.ApplicationProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ParkingSpotStateDatagramListener.
+ *
+ * @see ParkingSpotStateDatagramListener
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ParkingApiServiceApplication.class)
+public class ParkingSpotStateDatagramListenerIntTests {
+
+    private static final byte[] MASTER_KEY = "0123456789abcdef0123456789abcdef".getBytes();
+
+    @Autowired
+    private ParkingSpotApplicationService parkingSpotApplicationService;
+
+    @Autowired
+    private ParkingSpotRepository parkingSpotRepository;
+
+    private ParkingSpotStateDatagramListener listener;
+
+    private ParkingSpot parkingSpot;
+
+    @Before
+    public void initTest() throws Exception {
+        // committed, as the states are applied in their own transaction
+        parkingSpot = parkingSpotRepository.save(ParkingSpotResourceIntTests.createRandomizedEntity().setFree(false));
+        listener = startListener();
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        listener.stop();
+        parkingSpotRepository.deleteById(parkingSpot.getId());
+    }
+
+    @Test
+    public void applyDecodedFrame() throws Exception {
+        assertThat(listener.handle(frame(parkingSpot.getId(), Instant.now(), true), Instant.now())).isTrue();
+        assertThat(isFree()).isFalse();
+
+        listener.flush();
+        assertThat(isFree()).isTrue();
+    }
+
+    @Test
+    public void dropFrameWithAnInvalidSignature() throws Exception {
+        // signed with the key of another spot
+        ByteBuffer frame = frame(parkingSpot.getId() + 1, Instant.now(), true);
+        frame.putLong(0, parkingSpot.getId());
+        assertThat(listener.handle(frame, Instant.now())).isFalse();
+
+        // tampered with after signing
+        frame = frame(parkingSpot.getId(), Instant.now(), false);
+        frame.put(14, (byte) 1);
+        assertThat(listener.handle(frame, Instant.now())).isFalse();
+
+        // of the wrong size
+        assertThat(listener.handle(ByteBuffer.allocate(ParkingSpotStateDatagramListener.FRAME_SIZE - 1), Instant.now())).isFalse();
+
+        listener.flush();
+        assertThat(isFree()).isFalse();
+    }
+
+    @Test
+    public void dropFrameOutsideOfTheTimeWindow() throws Exception {
+        Instant now = Instant.now();
+        assertThat(listener.handle(frame(parkingSpot.getId(), now.minus(Duration.ofMinutes(2)), true), now)).isFalse();
+        assertThat(listener.handle(frame(parkingSpot.getId(), now.plus(Duration.ofMinutes(2)), true), now)).isFalse();
+    }
+
+    @Test
+    public void rejectReplayedFrame() throws Exception {
+        Instant observedAt = Instant.now().minusSeconds(10);
+        ByteBuffer freeFrame = frame(parkingSpot.getId(), observedAt, true);
+        listener.handle(freeFrame.duplicate(), Instant.now());
+        listener.flush();
+        listener.handle(frame(parkingSpot.getId(), observedAt.plusSeconds(1), false), Instant.now());
+        listener.flush();
+        assertThat(isFree()).isFalse();
+
+        listener.handle(freeFrame.duplicate(), Instant.now());
+        listener.flush();
+        assertThat(isFree()).isFalse();
+
+        // the last observation is persisted, so a restarted listener rejects it too
+        listener.stop();
+        listener = startListener();
+        listener.handle(freeFrame.duplicate(), Instant.now());
+        listener.flush();
+        assertThat(isFree()).isFalse();
+    }
+
+    private ParkingSpotStateDatagramListener startListener() throws Exception {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.ParkingSpots.Ingestion.Udp udp = applicationProperties.getParkingSpots().getIngestion().getUdp();
+        udp.setEnabled(true);
+        udp.setHost("127.0.0.1");
+        udp.setPort(0);
+        udp.setBase64Secret(Base64.getEncoder().encodeToString(MASTER_KEY));
+        ParkingSpotStateDatagramListener started = new ParkingSpotStateDatagramListener(parkingSpotApplicationService, applicationProperties);
+        started.start();
+        return started;
+    }
+
+    /**
+     * Encode a frame as a sensor does, signed with the key of the spot.
+     */
+    private static ByteBuffer frame(long spotId, Instant observedAt, boolean isFree) throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(ParkingSpotStateDatagramListener.FRAME_SIZE);
+        frame.putLong(spotId);
+        frame.putLong(observedAt.toEpochMilli() << 16 | (isFree ? 1 : 0) << 8);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(ParkingSpotStateDatagramListener.deriveSpotKey(MASTER_KEY, spotId), "HmacSHA256"));
+        mac.update(frame.array(), 0, 16);
+        frame.put(mac.doFinal(), 0, 16);
+        frame.flip();
+        return frame;
+    }
+
+    private boolean isFree() {
+        return parkingSpotRepository.findById(parkingSpot.getId()).get().isFree();
+    }
+}